@@ -10,6 +10,7 @@ import cuchaz.enigma.utils.Utils;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.stream.Stream;
 
 public class ComposeMappingsCommand extends Command {
 	public ComposeMappingsCommand() {
@@ -44,7 +45,7 @@ public class ComposeMappingsCommand extends Command {
 
 		EntryTree<EntryMapping> left = MappingCommandsUtil.read(leftFormat, leftFile, saveParameters);
 		EntryTree<EntryMapping> right = MappingCommandsUtil.read(rightFormat, rightFile, saveParameters);
-		EntryTree<EntryMapping> result = MappingOperations.compose(left, right, keepMode.equals("left") || keepMode.equals("both"), keepMode.equals("right") || keepMode.equals("both"));
+		Stream<EntryTree<EntryMapping>> result = MappingOperations.composeByClass(left, right, keepMode.equals("left") || keepMode.equals("both"), keepMode.equals("right") || keepMode.equals("both"));
 
 		Utils.delete(resultFile);
 		MappingCommandsUtil.write(result, resultFormat, resultFile, saveParameters);
@@ -9,34 +9,49 @@ import org.tinylog.Logger;
 
 import java.lang.reflect.Field;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Locale;
 
 public class DecompileCommand extends Command {
+	private static final String INCREMENTAL_FLAG = "--incremental";
+
 	public DecompileCommand() {
 		super("decompile");
 	}
 
 	@Override
 	public String getUsage() {
-		return "<decompiler> <in jar> <out folder> [<mappings file>]";
+		return "<decompiler> <in jar> <out folder or zip> [<mappings file>] [--incremental]";
 	}
 
 	@Override
 	public boolean isValidArgument(int length) {
-		return length == 3 || length == 4;
+		return length >= 3 && length <= 5;
 	}
 
 	@Override
 	public void run(String... args) throws Exception {
+		// a flag rather than a positional argument, so that it doesn't need a mappings file
+		boolean incremental = Arrays.asList(args).contains(INCREMENTAL_FLAG);
+		args = Arrays.stream(args).filter(arg -> !arg.equals(INCREMENTAL_FLAG)).toArray(String[]::new);
+		if (args.length > 4) {
+			throw new IllegalArgumentException("Unexpected argument: " + args[4]);
+		}
+
 		String decompilerName = getArg(args, 0, "decompiler", true);
 		Path fileJarIn = getReadableFile(getArg(args, 1, "in jar", true)).toPath();
-		Path fileJarOut = getWritableFolder(getArg(args, 2, "out folder", true)).toPath();
+		String out = getArg(args, 2, "out folder or zip", true);
+		Path fileJarOut = EnigmaProject.JarExport.isZip(Path.of(out)) ? getWritablePath(out) : getWritableFolder(out).toPath();
 		Path fileMappings = getReadablePath(getArg(args, 3, "mappings file", false));
 
-		run(decompilerName, fileJarIn, fileJarOut, fileMappings);
+		run(decompilerName, fileJarIn, fileJarOut, fileMappings, incremental);
 	}
 
 	public static void run(String decompilerName, Path fileJarIn, Path fileJarOut, Path fileMappings) throws Exception {
+		run(decompilerName, fileJarIn, fileJarOut, fileMappings, false);
+	}
+
+	public static void run(String decompilerName, Path fileJarIn, Path fileJarOut, Path fileMappings, boolean incremental) throws Exception {
 		DecompilerService decompilerService;
 
 		try {
@@ -52,8 +67,6 @@ public class DecompileCommand extends Command {
 		ProgressListener progress = new ConsoleProgressListener();
 
 		EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-		EnigmaProject.SourceExport source = jar.decompile(progress, decompilerService, DecompileErrorStrategy.TRACE_AS_SOURCE);
-
-		source.write(fileJarOut, progress);
+		jar.decompileTo(fileJarOut, progress, decompilerService, DecompileErrorStrategy.TRACE_AS_SOURCE, incremental);
 	}
 }
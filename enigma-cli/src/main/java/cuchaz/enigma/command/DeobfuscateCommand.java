@@ -4,37 +4,51 @@ import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.ProgressListener;
 
 import java.nio.file.Path;
+import java.util.Arrays;
 
 public class DeobfuscateCommand extends Command {
+	private static final String STORE_FLAG = "--store";
+
 	public DeobfuscateCommand() {
 		super("deobfuscate");
 	}
 
 	@Override
 	public String getUsage() {
-		return "<in jar> <out jar> [<mappings file>]";
+		return "<in jar> <out jar> [<mappings file>] [--store]";
 	}
 
 	@Override
 	public boolean isValidArgument(int length) {
-		return length == 2 || length == 3;
+		return length >= 2 && length <= 4;
 	}
 
 	@Override
 	public void run(String... args) throws Exception {
+		// a flag rather than a positional argument, so that it doesn't need a mappings file
+		boolean store = Arrays.asList(args).contains(STORE_FLAG);
+		args = Arrays.stream(args).filter(arg -> !arg.equals(STORE_FLAG)).toArray(String[]::new);
+		if (args.length > 3) {
+			throw new IllegalArgumentException("Unexpected argument: " + args[3]);
+		}
+
 		Path fileJarIn = getReadablePath(getArg(args, 0, "in jar", true));
 		Path fileJarOut = getWritableFile(getArg(args, 1, "out jar", true)).toPath();
 		Path fileMappings = getReadablePath(getArg(args, 2, "mappings file", false));
 
-		run(fileJarIn, fileJarOut, fileMappings);
+		run(fileJarIn, fileJarOut, fileMappings, store);
 	}
 
 	public static void run(Path fileJarIn, Path fileJarOut, Path fileMappings) throws Exception {
+		run(fileJarIn, fileJarOut, fileMappings, false);
+	}
+
+	public static void run(Path fileJarIn, Path fileJarOut, Path fileMappings, boolean store) throws Exception {
 		EnigmaProject project = openProject(fileJarIn, fileMappings);
 
 		ProgressListener progress = new ConsoleProgressListener();
 
 		EnigmaProject.JarExport jar = project.exportRemappedJar(progress);
-		jar.write(fileJarOut, progress);
+		jar.write(fileJarOut, progress, store);
 	}
 }
@@ -0,0 +1,129 @@
+package cuchaz.enigma.command;
+
+import com.google.gson.stream.JsonWriter;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingDiff;
+import cuchaz.enigma.translation.mapping.MappingOperations;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import org.tinylog.Logger;
+
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class DiffMappingsCommand extends Command {
+	public DiffMappingsCommand() {
+		super("diff-mappings");
+	}
+
+	@Override
+	public String getUsage() {
+		return "<left-format> <left> <right-format> <right> <result-format (delta or json)> <result>";
+	}
+
+	@Override
+	public boolean isValidArgument(int length) {
+		return length == 6;
+	}
+
+	@Override
+	public void run(String... args) throws IOException, MappingParseException {
+		String leftFormat = getArg(args, 0, "left-format", true);
+		Path left = getReadablePath(getArg(args, 1, "left", true));
+		String rightFormat = getArg(args, 2, "right-format", true);
+		Path right = getReadablePath(getArg(args, 3, "right", true));
+		String resultFormat = getArg(args, 4, "result-format", true);
+		Path result = getWritablePath(getArg(args, 5, "result", true));
+
+		run(leftFormat, left, rightFormat, right, resultFormat, result);
+	}
+
+	public static void run(String leftFormat, Path leftFile, String rightFormat, Path rightFile, String resultFormat, Path resultFile) throws IOException, MappingParseException {
+		if (!resultFormat.equals("delta") && !resultFormat.equals("json")) {
+			throw new IllegalArgumentException("result format must be 'delta' or 'json'");
+		}
+
+		MappingSaveParameters saveParameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+		EntryTree<EntryMapping> left = MappingCommandsUtil.read(leftFormat, leftFile, saveParameters);
+		EntryTree<EntryMapping> right = MappingCommandsUtil.read(rightFormat, rightFile, saveParameters);
+		List<MappingDiff> diffs = MappingOperations.diff(left, right);
+
+		try (BufferedWriter writer = Files.newBufferedWriter(resultFile)) {
+			if (resultFormat.equals("json")) {
+				writeJson(diffs, writer);
+			} else {
+				writeDelta(diffs, writer);
+			}
+		}
+
+		Map<MappingDiff.Kind, Integer> counts = new EnumMap<>(MappingDiff.Kind.class);
+		for (MappingDiff diff : diffs) {
+			counts.merge(diff.kind(), 1, Integer::sum);
+		}
+
+		Logger.info("{} differences: {}", diffs.size(), counts);
+	}
+
+	/**
+	 * Writes one changed entry per line, prefixed with the kind of change and followed by the names on both sides.
+	 */
+	private static void writeDelta(List<MappingDiff> diffs, Writer writer) throws IOException {
+		for (MappingDiff diff : diffs) {
+			writer.write(switch (diff.kind()) {
+				case ADDED -> "+ " + diff.entry() + " " + getName(diff.right());
+				case REMOVED -> "- " + diff.entry() + " " + getName(diff.left());
+				case RENAMED -> "~ " + diff.entry() + " " + getName(diff.left()) + " -> " + getName(diff.right());
+				case CHANGED -> "* " + diff.entry() + " " + getName(diff.right());
+			});
+			writer.write('\n');
+		}
+	}
+
+	private static void writeJson(List<MappingDiff> diffs, Writer writer) throws IOException {
+		JsonWriter json = new JsonWriter(writer);
+		json.setIndent("\t");
+
+		json.beginArray();
+		for (MappingDiff diff : diffs) {
+			json.beginObject();
+			json.name("kind").value(diff.kind().name().toLowerCase(Locale.ROOT));
+			json.name("entry").value(diff.entry().toString());
+			writeJsonMapping(json, "left", diff.left());
+			writeJsonMapping(json, "right", diff.right());
+			json.endObject();
+		}
+
+		json.endArray();
+		json.flush();
+	}
+
+	private static void writeJsonMapping(JsonWriter json, String name, @Nullable EntryMapping mapping) throws IOException {
+		if (mapping == null) {
+			return;
+		}
+
+		json.name(name).beginObject();
+		json.name("name").value(mapping.targetName());
+		json.name("access").value(mapping.accessModifier().name().toLowerCase(Locale.ROOT));
+		if (mapping.javadoc() != null) {
+			json.name("javadoc").value(mapping.javadoc());
+		}
+
+		json.endObject();
+	}
+
+	private static String getName(@Nullable EntryMapping mapping) {
+		return mapping != null && mapping.targetName() != null ? mapping.targetName() : "-";
+	}
+}
@@ -10,6 +10,7 @@ import cuchaz.enigma.utils.Utils;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.stream.Stream;
 
 public class InvertMappingsCommand extends Command {
 	public InvertMappingsCommand() {
@@ -40,7 +41,7 @@ public class InvertMappingsCommand extends Command {
 		MappingSaveParameters saveParameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
 
 		EntryTree<EntryMapping> source = MappingCommandsUtil.read(sourceFormat, sourceFile, saveParameters);
-		EntryTree<EntryMapping> result = MappingOperations.invert(source);
+		Stream<EntryTree<EntryMapping>> result = MappingOperations.invertByClass(source);
 
 		Utils.delete(resultFile);
 		MappingCommandsUtil.write(result, resultFormat, resultFile, saveParameters);
@@ -85,6 +85,7 @@ public class Main {
 		register(new InsertProposedMappingsCommand());
 		register(new DropInvalidMappingsCommand());
 		register(new FillClassMappingsCommand());
+		register(new DiffMappingsCommand());
 	}
 
 	private static final class CommandHelpException extends IllegalArgumentException {
@@ -13,6 +13,7 @@ import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.stream.Stream;
 
 public final class MappingCommandsUtil {
 	private MappingCommandsUtil() {}
@@ -33,6 +34,8 @@ public final class MappingCommandsUtil {
 		} catch (IllegalArgumentException ignored) {
 			if (type.equals("tinyv2")) {
 				format = MappingFormat.TINY_V2;
+			} else if (type.equals("binary")) {
+				format = MappingFormat.BINARY_FILE;
 			}
 		}
 
@@ -44,9 +47,19 @@ public final class MappingCommandsUtil {
 	}
 
 	public static void write(EntryTree<EntryMapping> mappings, String type, Path path, MappingSaveParameters saveParameters) {
+		getWriter(type).write(mappings, path, ProgressListener.none(), saveParameters);
+	}
+
+	/**
+	 * Writes mappings produced one top-level class at a time, see {@link MappingsWriter#write(Stream, Path, ProgressListener, MappingSaveParameters)}.
+	 */
+	public static void write(Stream<EntryTree<EntryMapping>> classTrees, String type, Path path, MappingSaveParameters saveParameters) {
+		getWriter(type).write(classTrees, path, ProgressListener.none(), saveParameters);
+	}
+
+	public static MappingsWriter getWriter(String type) {
 		if (type.equals("enigma")) {
-			EnigmaMappingsWriter.DIRECTORY.write(mappings, path, ProgressListener.none(), saveParameters);
-			return;
+			return EnigmaMappingsWriter.DIRECTORY;
 		}
 
 		if (type.startsWith("tinyv2:") || type.startsWith("tiny_v2:")) {
@@ -56,8 +69,7 @@ public final class MappingCommandsUtil {
 				throw new IllegalArgumentException("specify column names as 'tinyv2:from_namespace:to_namespace'");
 			}
 
-			new TinyV2Writer(split[1], split[2]).write(mappings, path, ProgressListener.none(), saveParameters);
-			return;
+			return new TinyV2Writer(split[1], split[2]);
 		}
 
 		if (type.startsWith("tiny:")) {
@@ -67,18 +79,20 @@ public final class MappingCommandsUtil {
 				throw new IllegalArgumentException("specify column names as 'tiny:from_column:to_column'");
 			}
 
-			new TinyMappingsWriter(split[1], split[2]).write(mappings, path, ProgressListener.none(), saveParameters);
-			return;
+			return new TinyMappingsWriter(split[1], split[2]);
 		}
 
 		MappingFormat format = null;
 		try {
 			format = MappingFormat.valueOf(type.toUpperCase());
-		} catch (IllegalArgumentException ignored) {}
+		} catch (IllegalArgumentException ignored) {
+			if (type.equals("binary")) {
+				format = MappingFormat.BINARY_FILE;
+			}
+		}
 
-		if (format != null) {
-			format.getWriter().write(mappings, path, ProgressListener.none(), saveParameters);
-			return;
+		if (format != null && format.getWriter() != null) {
+			return format.getWriter();
 		}
 
 		throw new IllegalArgumentException("no writer for " + type);
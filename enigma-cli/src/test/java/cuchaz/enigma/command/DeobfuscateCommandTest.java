@@ -0,0 +1,55 @@
+package cuchaz.enigma.command;
+
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class DeobfuscateCommandTest extends CommandTest {
+	private static final Path JAR = obfJar("constructors");
+
+	@Test
+	public void testStore() throws Exception {
+		Path directory = Files.createTempDirectory("deobfuscate");
+		Path deflated = directory.resolve("deflated.jar");
+		Path stored = directory.resolve("stored.jar");
+
+		new DeobfuscateCommand().run(JAR.toString(), deflated.toString());
+		new DeobfuscateCommand().run(JAR.toString(), stored.toString(), "--store");
+
+		try (ZipFile deflatedJar = new ZipFile(deflated.toFile()); ZipFile storedJar = new ZipFile(stored.toFile())) {
+			Map<String, byte[]> deflatedClasses = readClasses(deflatedJar, ZipEntry.DEFLATED);
+			Map<String, byte[]> storedClasses = readClasses(storedJar, ZipEntry.STORED);
+
+			assertFalse(deflatedClasses.isEmpty());
+			assertEquals(deflatedClasses.keySet(), storedClasses.keySet());
+
+			for (String name : deflatedClasses.keySet()) {
+				assertArrayEquals(deflatedClasses.get(name), storedClasses.get(name));
+			}
+		}
+
+		Utils.delete(directory);
+	}
+
+	private static Map<String, byte[]> readClasses(ZipFile jar, int method) throws Exception {
+		Map<String, byte[]> classes = new HashMap<>();
+
+		for (ZipEntry entry : Collections.list(jar.entries())) {
+			assertEquals(method, entry.getMethod(), entry.getName());
+			classes.put(entry.getName(), jar.getInputStream(entry).readAllBytes());
+		}
+
+		return classes;
+	}
+}
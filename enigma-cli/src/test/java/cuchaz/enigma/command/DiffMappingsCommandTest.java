@@ -0,0 +1,60 @@
+package cuchaz.enigma.command;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DiffMappingsCommandTest extends CommandTest {
+	private static final MappingSaveParameters PARAMETERS = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+	private static Path write(EntryTree<EntryMapping> mappings) throws Exception {
+		Path file = Files.createTempFile("diffMappings", ".mapping");
+		MappingFormat.ENIGMA_FILE.write(mappings, file, ProgressListener.none(), PARAMETERS);
+		return file;
+	}
+
+	@Test
+	public void test() throws Exception {
+		EntryTree<EntryMapping> left = new HashEntryTree<>();
+		left.insert(new ClassEntry("a"), new EntryMapping("Alpha"));
+		left.insert(FieldEntry.parse("a", "f", "I"), new EntryMapping("field"));
+		left.insert(new ClassEntry("b"), new EntryMapping("Bravo"));
+
+		EntryTree<EntryMapping> right = new HashEntryTree<>();
+		right.insert(new ClassEntry("a"), new EntryMapping("Alpha"));
+		right.insert(FieldEntry.parse("a", "f", "I"), new EntryMapping("value"));
+		right.insert(new ClassEntry("c"), new EntryMapping("Charlie"));
+
+		Path leftFile = write(left);
+		Path rightFile = write(right);
+		Path delta = Files.createTempFile("diffMappings", ".txt");
+		Path json = Files.createTempFile("diffMappings", ".json");
+
+		DiffMappingsCommand.run("enigma_file", leftFile, "enigma_file", rightFile, "delta", delta);
+		assertEquals(List.of("~ a.f:I field -> value", "- b Bravo", "+ c Charlie"), Files.readAllLines(delta));
+
+		DiffMappingsCommand.run("enigma_file", leftFile, "enigma_file", rightFile, "json", json);
+		String content = Files.readString(json);
+		assertTrue(content.contains("\"kind\": \"renamed\""));
+		assertTrue(content.contains("\"entry\": \"c\""));
+
+		Files.delete(leftFile);
+		Files.delete(rightFile);
+		Files.delete(delta);
+		Files.delete(json);
+	}
+}
@@ -3,9 +3,15 @@ package cuchaz.enigma.network;
 import com.google.common.io.MoreFiles;
 import cuchaz.enigma.*;
 import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.serde.AsyncMappingSaver;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryFormat;
+import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsReader;
+import cuchaz.enigma.translation.mapping.serde.enigma.MappingFileCache;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.utils.Utils;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
@@ -19,6 +25,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +36,7 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 	private final Path mappingsFile;
 	private final PrintWriter log;
 	private final BlockingQueue<Runnable> tasks = new LinkedBlockingDeque<>();
+	private final AsyncMappingSaver mappingSaver = new AsyncMappingSaver();
 
 	public DedicatedEnigmaServer(
 			byte[] jarChecksum,
@@ -89,6 +97,10 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 				.withValuesConvertedBy(PathConverter.INSTANCE)
 				.defaultsTo(Paths.get("log.txt"));
 
+		OptionSpec<Path> mappingCacheOpt = parser.accepts("mapping-cache", "Cache file for parsed mapping files, so that only changed files of a mapping directory are parsed again")
+				.withRequiredArg()
+				.withValuesConvertedBy(PathConverter.INSTANCE);
+
 		OptionSet parsedArgs = parser.parse(args);
 		Path jar = parsedArgs.valueOf(jarOpt);
 		Path mappingsFile = parsedArgs.valueOf(mappingsOpt);
@@ -121,10 +133,26 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 					mappingFormat = MappingFormat.ENIGMA_DIRECTORY;
 				} else if ("zip".equalsIgnoreCase(MoreFiles.getFileExtension(mappingsFile))) {
 					mappingFormat = MappingFormat.ENIGMA_ZIP;
+				} else if (BinaryFormat.FILE_EXTENSION.equalsIgnoreCase(MoreFiles.getFileExtension(mappingsFile))) {
+					mappingFormat = MappingFormat.BINARY_FILE;
 				} else {
 					mappingFormat = MappingFormat.ENIGMA_FILE;
 				}
-				mappings = EntryRemapper.mapped(project.getJarIndex(), mappingFormat.read(mappingsFile, ProgressListener.none(), profile.getMappingSaveParameters()));
+				EntryTree<EntryMapping> mappingTree;
+				if (mappingFormat == MappingFormat.ENIGMA_DIRECTORY && parsedArgs.has(mappingCacheOpt)) {
+					MappingFileCache cache = MappingFileCache.load(parsedArgs.valueOf(mappingCacheOpt));
+					mappingTree = EnigmaMappingsReader.readDirectory(mappingsFile, cache, ProgressListener.none());
+
+					try {
+						cache.save();
+					} catch (IOException e) {
+						Logger.warn(e, "Failed to save mapping cache");
+					}
+				} else {
+					mappingTree = mappingFormat.read(mappingsFile, ProgressListener.none(), profile.getMappingSaveParameters());
+				}
+
+				mappings = EntryRemapper.mapped(project.getJarIndex(), mappingTree);
 			}
 
 			PrintWriter log = new PrintWriter(Files.newBufferedWriter(logFile));
@@ -141,7 +169,7 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 		// noinspection RedundantSuppression
 		// noinspection Convert2MethodRef - javac 8 bug
 		Executors.newScheduledThreadPool(1).scheduleAtFixedRate(() -> server.runOnThread(() -> server.saveMappings()), 0, 1, TimeUnit.MINUTES);
-		Runtime.getRuntime().addShutdownHook(new Thread(server::saveMappings));
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> server.saveMappings().join()));
 
 		while (true) {
 			try {
@@ -158,9 +186,12 @@ public class DedicatedEnigmaServer extends EnigmaServer {
 		System.exit(0);
 	}
 
-	private void saveMappings() {
-		this.mappingFormat.write(this.getMappings().getObfToDeobf(), this.getMappings().takeMappingDelta(), this.mappingsFile, ProgressListener.none(), this.profile.getMappingSaveParameters());
+	/**
+	 * Takes a snapshot of the mappings and writes it in the background, so that the server thread isn't blocked while saving.
+	 */
+	private CompletableFuture<Void> saveMappings() {
 		this.log.flush();
+		return this.mappingSaver.save(this.getMappings(), this.mappingFormat, this.mappingsFile, this.profile.getMappingSaveParameters(), false, ProgressListener.none());
 	}
 
 	public static class PathConverter implements ValueConverter<Path> {
@@ -47,7 +47,7 @@ public class PacketHelper {
 					throw new IOException("Field requires class parent");
 				}
 
-				TypeDescriptor desc = new TypeDescriptor(readString(input));
+				TypeDescriptor desc = TypeDescriptor.parse(readString(input));
 				return new FieldEntry(parentClass, name, desc, javadocs);
 			}
 			case ENTRY_METHOD -> {
@@ -55,7 +55,7 @@ public class PacketHelper {
 					throw new IOException("Method requires class parent");
 				}
 
-				MethodDescriptor desc = new MethodDescriptor(readString(input));
+				MethodDescriptor desc = MethodDescriptor.parse(readString(input));
 				return new MethodEntry(parentClass, name, desc, javadocs);
 			}
 			case ENTRY_LOCAL_VAR -> {
@@ -552,14 +552,11 @@ public class Gui {
 		} else if (data instanceof ClassEntry entry) {
 			// class rename
 
-			// TODO optimize reverse class lookup, although it looks like it's
-			//	  fast enough for now
 			EntryRemapper mapper = this.controller.project.getMapper();
-			ClassEntry obf = mapper.getObfToDeobf().getAllEntries()
-					.filter(ClassEntry.class::isInstance)
-					.map(ClassEntry.class::cast)
-					.filter(e -> mapper.deobfuscate(e).equals(entry))
-					.findAny().orElse(entry);
+			ClassEntry obf = mapper.getDeobfNameIndex().getObfClass(entry);
+			if (obf == null) {
+				obf = entry;
+			}
 
 			this.controller.applyChange(vc, EntryChange.modify(obf).withDeobfName(((ClassEntry) data).getFullName()));
 		} else {
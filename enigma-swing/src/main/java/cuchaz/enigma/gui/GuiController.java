@@ -22,6 +22,7 @@ import com.google.common.io.MoreFiles;
 import cuchaz.enigma.Enigma;
 import cuchaz.enigma.EnigmaProfile;
 import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.*;
 import cuchaz.enigma.api.service.ObfuscationTestService;
 import cuchaz.enigma.classhandle.ClassHandle;
@@ -29,6 +30,7 @@ import cuchaz.enigma.classhandle.ClassHandleProvider;
 import cuchaz.enigma.classprovider.ClasspathClassProvider;
 import cuchaz.enigma.gui.config.NetConfig;
 import cuchaz.enigma.gui.config.UiConfig;
+import cuchaz.enigma.gui.dialog.CrashDialog;
 import cuchaz.enigma.gui.dialog.ProgressDialog;
 import cuchaz.enigma.gui.docker.CollabDocker;
 import cuchaz.enigma.gui.docker.Docker;
@@ -46,6 +48,7 @@ import cuchaz.enigma.network.packet.LoginC2SPacket;
 import cuchaz.enigma.network.packet.Packet;
 import cuchaz.enigma.source.DecompiledClassSource;
 import cuchaz.enigma.source.DecompilerService;
+import cuchaz.enigma.source.SourceCache;
 import cuchaz.enigma.source.SourceIndex;
 import cuchaz.enigma.source.Token;
 import cuchaz.enigma.translation.TranslateResult;
@@ -54,13 +57,17 @@ import cuchaz.enigma.translation.mapping.EntryChange;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.mapping.EntryUtil;
-import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.mapping.ResolutionStrategy;
+import cuchaz.enigma.translation.mapping.serde.AsyncMappingSaver;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import cuchaz.enigma.translation.mapping.serde.MappingParseException;
 import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryFormat;
+import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsReader;
+import cuchaz.enigma.translation.mapping.serde.enigma.MappingFileCache;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
@@ -74,6 +81,8 @@ import cuchaz.enigma.utils.validation.ValidationContext;
 import org.tinylog.Logger;
 
 public class GuiController implements ClientPacketHandler {
+	private static final long MAX_SOURCE_CACHE_SIZE = 256L * 1024 * 1024;
+
 	private final Gui gui;
 	public final Enigma enigma;
 
@@ -84,6 +93,7 @@ public class GuiController implements ClientPacketHandler {
 	private MappingFormat loadedMappingFormat;
 
 	private ClassHandleProvider chp;
+	private final AsyncMappingSaver mappingSaver = new AsyncMappingSaver();
 
 	private ClassHandle tokenHandle;
 
@@ -110,6 +120,13 @@ public class GuiController implements ClientPacketHandler {
 			this.project = this.enigma.openJar(jarPath, new ClasspathClassProvider(), progress);
 			this.indexTreeBuilder = new IndexTreeBuilder(this.project.getJarIndex());
 			this.chp = new ClassHandleProvider(this.project, UiConfig.getDecompiler().service);
+
+			if (UiConfig.useSourceCache()) {
+				SourceCache sourceCache = new SourceCache(SourceCache.getDefaultPath());
+				this.chp.setSourceCache(sourceCache);
+				CompletableFuture.runAsync(() -> sourceCache.prune(MAX_SOURCE_CACHE_SIZE));
+			}
+
 			SwingUtilities.invokeLater(() -> {
 				this.gui.onFinishOpenJar(jarPath.getFileName().toString());
 				this.refreshClasses();
@@ -134,6 +151,7 @@ public class GuiController implements ClientPacketHandler {
 				case "zip" -> this.openMappings(MappingFormat.ENIGMA_ZIP, path);
 				case "tiny" -> this.openMappings(MappingFormat.TINY_FILE, path);
 				case "tinyv2" -> this.openMappings(MappingFormat.TINY_V2, path);
+				case BinaryFormat.FILE_EXTENSION -> this.openMappings(MappingFormat.BINARY_FILE, path);
 				default -> this.openMappings(MappingFormat.ENIGMA_FILE, path);
 			}
 		}
@@ -152,7 +170,11 @@ public class GuiController implements ClientPacketHandler {
 			try {
 				MappingSaveParameters saveParameters = this.enigma.getProfile().getMappingSaveParameters();
 
-				EntryTree<EntryMapping> mappings = format.read(path, progress, saveParameters);
+				// large mapping directories are usable right away, the classes are loaded as they're needed
+				MappingFileCache cache = format == MappingFormat.ENIGMA_DIRECTORY && UiConfig.useMappingCache() ? MappingFileCache.load(MappingFileCache.getDefaultPath(path)) : null;
+				EntryTree<EntryMapping> mappings = format == MappingFormat.ENIGMA_DIRECTORY
+						? EnigmaMappingsReader.readDirectoryLazily(path, cache, progress)
+						: format.read(path, progress, saveParameters);
 				this.project.setMappings(mappings);
 
 				this.loadedMappingFormat = format;
@@ -160,6 +182,24 @@ public class GuiController implements ClientPacketHandler {
 
 				this.refreshClasses();
 				this.chp.invalidateJavadoc();
+
+				if (mappings instanceof LazyEntryTree<EntryMapping> lazyMappings) {
+					lazyMappings.loadInBackground().whenComplete((v, t) -> {
+						if (cache != null) {
+							try {
+								cache.save();
+							} catch (IOException e) {
+								Logger.warn(e, "Failed to save mapping cache");
+							}
+						}
+
+						// the class stays unloaded and can't be saved, rather than losing its mappings
+						if (t != null) {
+							Logger.error(t, "Failed to load mappings");
+							SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this.gui.getFrame(), t.getMessage()));
+						}
+					});
+				}
 			} catch (MappingParseException e) {
 				JOptionPane.showMessageDialog(this.gui.getFrame(), e.getMessage());
 			}
@@ -180,7 +220,8 @@ public class GuiController implements ClientPacketHandler {
 	}
 
 	/**
-	 * Saves the mappings, with a dialog popping up, showing the progress.
+	 * Saves the mappings in the background. The mappings are captured when this is called,
+	 * so they can be edited while they are being written.
 	 *
 	 * <p>Notice the returned completable future has to be completed by
 	 * {@link SwingUtilities#invokeLater(Runnable)}. Hence, do not try to
@@ -193,22 +234,19 @@ public class GuiController implements ClientPacketHandler {
 	public CompletableFuture<Void> saveMappings(Path path, MappingFormat format) {
 		if (this.project == null) return CompletableFuture.completedFuture(null);
 
-		return ProgressDialog.runOffThread(this.gui.getFrame(), progress -> {
-			EntryRemapper mapper = this.project.getMapper();
-			MappingSaveParameters saveParameters = this.enigma.getProfile().getMappingSaveParameters();
-
-			MappingDelta<EntryMapping> delta = mapper.takeMappingDelta();
-			boolean saveAll = !path.equals(this.loadedMappingPath);
+		EntryRemapper mapper = this.project.getMapper();
+		MappingSaveParameters saveParameters = this.enigma.getProfile().getMappingSaveParameters();
+		boolean saveAll = !path.equals(this.loadedMappingPath) || format != this.loadedMappingFormat;
 
-			this.loadedMappingFormat = format;
-			this.loadedMappingPath = path;
+		this.loadedMappingFormat = format;
+		this.loadedMappingPath = path;
 
-			if (saveAll) {
-				format.write(mapper.getObfToDeobf(), path, progress, saveParameters);
-			} else {
-				format.write(mapper.getObfToDeobf(), delta, path, progress, saveParameters);
-			}
-		});
+		return this.mappingSaver.save(mapper, format, path, saveParameters, saveAll, ProgressListener.none())
+				.whenCompleteAsync((result, t) -> {
+					if (t != null) {
+						CrashDialog.show(t);
+					}
+				}, SwingUtilities::invokeLater);
 	}
 
 	public void closeMappings() {
@@ -250,14 +288,7 @@ public class GuiController implements ClientPacketHandler {
 
 		return ProgressDialog.runOffThread(this.gui.getFrame(), progress -> {
 			EnigmaProject.JarExport jar = this.project.exportRemappedJar(progress);
-			jar.decompileStream(progress, this.chp.getDecompilerService(), EnigmaProject.DecompileErrorStrategy.TRACE_AS_SOURCE)
-					.forEach(source -> {
-						try {
-							source.writeTo(source.resolvePath(path));
-						} catch (IOException e) {
-							Logger.error(e);
-						}
-					});
+			jar.decompileTo(path, progress, this.chp.getDecompilerService(), EnigmaProject.DecompileErrorStrategy.TRACE_AS_SOURCE);
 		});
 	}
 
@@ -509,7 +540,7 @@ public class GuiController implements ClientPacketHandler {
 		this.gui.updateStructure(this.gui.getActiveEditor());
 
 		if (!Objects.equals(prev.targetName(), mapping.targetName())) {
-			this.chp.invalidateMapped();
+			this.chp.invalidateMappedReferences(target);
 		}
 
 		if (!Objects.equals(prev.javadoc(), mapping.javadoc())) {
@@ -52,6 +52,8 @@ public final class UiConfig {
 	public static final String SAVED_WITH_LEFT_OPEN = "Saved With Left Open";
 	public static final String TOP_LEVEL_PACKAGE = "Top Level Package";
 	public static final String SYNTHETIC_PARAMETERS = "Synthetic Parameters";
+	public static final String MAPPING_CACHE = "Mapping Cache";
+	public static final String SOURCE_CACHE = "Decompiled Source Cache";
 	public static final String LINE_NUMBERS_FOREGROUND = "Line Numbers Foreground";
 	public static final String LINE_NUMBERS_BACKGROUND = "Line Numbers Background";
 	public static final String LINE_NUMBERS_SELECTED = "Line Numbers Selected";
@@ -230,6 +232,22 @@ public final class UiConfig {
 		return swing.data().section(GENERAL).setIfAbsentBool(SAVED_WITH_LEFT_OPEN, false);
 	}
 
+	public static boolean useMappingCache() {
+		return swing.data().section(GENERAL).setIfAbsentBool(MAPPING_CACHE, true);
+	}
+
+	public static void setUseMappingCache(boolean b) {
+		swing.data().section(GENERAL).setBool(MAPPING_CACHE, b);
+	}
+
+	public static boolean useSourceCache() {
+		return swing.data().section(GENERAL).setIfAbsentBool(SOURCE_CACHE, true);
+	}
+
+	public static void setUseSourceCache(boolean b) {
+		swing.data().section(GENERAL).setBool(SOURCE_CACHE, b);
+	}
+
 	public static void setMaxRecentFiles(int max) {
 		ui.data().setInt(MAX_RECENT_FILES, max);
 	}
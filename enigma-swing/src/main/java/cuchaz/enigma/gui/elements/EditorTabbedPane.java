@@ -13,6 +13,7 @@ import com.google.common.collect.HashBiMap;
 
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.classhandle.ClassHandle;
+import cuchaz.enigma.classhandle.ClassHandleProvider;
 import cuchaz.enigma.gui.Gui;
 import cuchaz.enigma.gui.config.keybind.KeyBinds;
 import cuchaz.enigma.gui.events.EditorActionListener;
@@ -34,6 +35,7 @@ public class EditorTabbedPane {
 		this.editorTabPopupMenu = new EditorTabPopupMenu(this);
 
 		this.openFiles.addMouseListener(GuiUtil.onMousePress(this::onTabPressed));
+		this.openFiles.addChangeListener(e -> this.onActiveEditorChanged());
 	}
 
 	public EditorPanel openClass(ClassEntry entry) {
@@ -128,6 +130,15 @@ public class EditorTabbedPane {
 		}
 	}
 
+	private void onActiveEditorChanged() {
+		ClassHandleProvider chp = this.gui.getController().getClassHandleProvider();
+		if (chp == null) return;
+
+		// the source shown to the user is decompiled first
+		EditorPanel activeEditor = this.getActiveEditor();
+		chp.setActiveClass(activeEditor != null && activeEditor.getClassHandle() != null ? activeEditor.getClassHandle().getRef() : null);
+	}
+
 	@Nullable
 	public EditorPanel getActiveEditor() {
 		return EditorPanel.byUi(this.openFiles.getSelectedComponent());
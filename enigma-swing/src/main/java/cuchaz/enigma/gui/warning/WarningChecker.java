@@ -6,13 +6,11 @@ import cuchaz.enigma.gui.Gui;
 import cuchaz.enigma.gui.GuiController;
 import cuchaz.enigma.gui.TooltipEditorPane;
 import cuchaz.enigma.source.Token;
+import cuchaz.enigma.translation.mapping.DeobfNameIndex;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.*;
 
-import java.util.Collection;
-import java.util.Objects;
-
 public class WarningChecker {
     private final GuiController controller;
     private final Gui gui;
@@ -35,13 +33,10 @@ public class WarningChecker {
     }
 
     public boolean checkOverwrittenMethods(EntryReference<Entry<?>, Entry<?>> reference, EntryRemapper mapper) {
-        Collection<MethodEntry> methods = this.controller.project.getJarIndex().getEntryIndex().getMethods();
-        for (MethodEntry methodEntry : methods) {
-            if (Objects.equals(methodEntry.getName(), reference.entry.getName())) {
-                String methodName = mapper.getDeobfMapping(methodEntry).targetName();
-                if (methodName != null) {
-                    return followsMethodStyle(reference, methodName);
-                }
+        for (Entry<?> methodEntry : mapper.getDeobfNameIndex().getMappedEntriesByObfName(reference.entry.getName(), DeobfNameIndex.Kind.METHOD)) {
+            String methodName = mapper.getDeobfMapping(methodEntry).targetName();
+            if (methodName != null) {
+                return followsMethodStyle(reference, methodName);
             }
         }
         return true;
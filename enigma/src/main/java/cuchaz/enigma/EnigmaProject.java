@@ -1,17 +1,18 @@
 package cuchaz.enigma;
 
-import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.index.EnclosingMethodIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.api.service.NameProposalService;
 import cuchaz.enigma.api.service.ObfuscationTestService;
-import cuchaz.enigma.bytecode.translators.TranslationClassVisitor;
+import cuchaz.enigma.classprovider.CachingClassProvider;
 import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.classprovider.ObfuscationFixClassProvider;
+import cuchaz.enigma.classprovider.TranslatingClassProvider;
 import cuchaz.enigma.source.Decompiler;
 import cuchaz.enigma.source.DecompilerService;
+import cuchaz.enigma.source.SourceExportManifest;
 import cuchaz.enigma.source.SourceSettings;
 import cuchaz.enigma.translation.ProposingTranslator;
 import cuchaz.enigma.translation.Translator;
@@ -24,16 +25,20 @@ import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.AsmUtil;
 import cuchaz.enigma.utils.I18n;
 import cuchaz.enigma.utils.Pair;
-import org.objectweb.asm.ClassWriter;
+import cuchaz.enigma.utils.ZipWriter;
 import org.objectweb.asm.tree.ClassNode;
 import org.tinylog.Logger;
 
+import javax.annotation.Nullable;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -42,10 +47,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class EnigmaProject {
@@ -127,18 +131,16 @@ public class EnigmaProject {
 	}
 
 	private Collection<Entry<?>> dropMappings(EntryTree<EntryMapping> mappings, ProgressListener progress) {
-		// drop mappings that don't match the jar
+		// drop mappings that don't match the jar, and mappings left empty afterwards
 		MappingsChecker checker = new MappingsChecker(this.jarIndex, mappings);
-		MappingsChecker.Dropped droppedBroken = checker.dropBrokenMappings(progress);
+		MappingsChecker.Result result = checker.dropBrokenAndEmptyMappings(progress);
 
-		Map<Entry<?>, String> droppedBrokenMappings = droppedBroken.getDroppedMappings();
+		Map<Entry<?>, String> droppedBrokenMappings = result.broken().getDroppedMappings();
 		for (Map.Entry<Entry<?>, String> mapping : droppedBrokenMappings.entrySet()) {
 			Logger.warn("Couldn't find {} ({}) in jar. Mapping was dropped.", mapping.getKey(), mapping.getValue());
 		}
 
-		MappingsChecker.Dropped droppedEmpty = checker.dropEmptyMappings(progress);
-
-		Map<Entry<?>, String> droppedEmptyMappings = droppedEmpty.getDroppedMappings();
+		Map<Entry<?>, String> droppedEmptyMappings = result.empty().getDroppedMappings();
 		for (Map.Entry<Entry<?>, String> mapping : droppedEmptyMappings.entrySet()) {
 			Logger.warn("{} ({}) was empty. Mapping was dropped.", mapping.getKey(), mapping.getValue());
 		}
@@ -206,6 +208,10 @@ public class EnigmaProject {
 		return enclosingMethodIndex.hasEnclosingMethod(classEntry);
 	}
 
+	/**
+	 * Prepares exporting the remapped classes. Classes are only translated when they're written or decompiled, so
+	 * that they don't all need to be in memory at once, and progress is reported by those steps instead.
+	 */
 	public JarExport exportRemappedJar(ProgressListener progress) {
 		Collection<ClassEntry> classEntries = this.jarIndex.getEntryIndex().getClasses();
 		ClassProvider fixingClassProvider = new ObfuscationFixClassProvider(this.classProvider, this.jarIndex);
@@ -213,55 +219,61 @@ public class EnigmaProject {
 		NameProposalService[] nameProposalServices = this.getEnigma().getServices().get(NameProposalService.TYPE).toArray(new NameProposalService[0]);
 		Translator deobfuscator = nameProposalServices.length == 0 ? this.mapper.getDeobfuscator() : new ProposingTranslator(this.mapper, nameProposalServices);
 
-		AtomicInteger count = new AtomicInteger();
-		progress.init(classEntries.size(), I18n.translate("progress.classes.deobfuscating"));
-
-		Map<String, ClassNode> compiled = classEntries.parallelStream()
-				.map(entry -> {
-					ClassEntry translatedEntry = deobfuscator.translate(entry);
-					progress.step(count.getAndIncrement(), translatedEntry.toString());
-
-					ClassNode node = fixingClassProvider.get(entry.getFullName());
-					if (node != null) {
-						ClassNode translatedNode = new ClassNode();
-						node.accept(new TranslationClassVisitor(deobfuscator, Enigma.ASM_VERSION, translatedNode));
-						return translatedNode;
-					}
-
-					return null;
-				})
-				.filter(Objects::nonNull)
-				.collect(Collectors.toMap(n -> n.name, Functions.identity()));
-
-		return new JarExport(this.mapper, compiled);
+		return new JarExport(this.mapper, new TranslatingClassProvider(fixingClassProvider, deobfuscator, classEntries));
 	}
 
 	public static final class JarExport {
+		/**
+		 * The number of classes translated at once while writing, which bounds the memory used.
+		 */
+		private static final int BATCH_SIZE = 256;
+		private static final SourceSettings SOURCE_SETTINGS = new SourceSettings(false, false);
+
 		private final EntryRemapper mapper;
-		private final Map<String, ClassNode> compiled;
+		private final TranslatingClassProvider classProvider;
 
-		JarExport(EntryRemapper mapper, Map<String, ClassNode> compiled) {
+		JarExport(EntryRemapper mapper, TranslatingClassProvider classProvider) {
 			this.mapper = mapper;
-			this.compiled = compiled;
+			this.classProvider = classProvider;
 		}
 
 		public void write(Path path, ProgressListener progress) throws IOException {
-			progress.init(this.compiled.size(), I18n.translate("progress.jar.writing"));
-
-			try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
-				AtomicInteger count = new AtomicInteger();
-
-				for (ClassNode node : this.compiled.values()) {
-					progress.step(count.getAndIncrement(), node.name);
-
-					String entryName = node.name.replace('.', '/') + ".class";
-
-					ClassWriter writer = new ClassWriter(0);
-					node.accept(writer);
+			this.write(path, progress, false);
+		}
 
-					out.putNextEntry(new JarEntry(entryName));
-					out.write(writer.toByteArray());
-					out.closeEntry();
+		/**
+		 * Writes the remapped classes to a jar. Classes are translated and compressed in parallel, a batch at a time,
+		 * and written in order.
+		 *
+		 * @param store whether to store the classes without compressing them, which is faster for intermediate jars
+		 *              that are only read locally
+		 */
+		public void write(Path path, ProgressListener progress, boolean store) throws IOException {
+			List<String> classNames = this.classProvider.getClassNames().stream().sorted().toList();
+			progress.init(classNames.size(), I18n.translate("progress.jar.writing"));
+
+			try (ZipWriter out = new ZipWriter(Files.newOutputStream(path))) {
+				int count = 0;
+
+				for (int start = 0; start < classNames.size(); start += BATCH_SIZE) {
+					List<String> batch = classNames.subList(start, Math.min(start + BATCH_SIZE, classNames.size()));
+
+					// translate and compress a batch in parallel, then write it and let it go
+					List<ZipWriter.CompressedEntry> classes = batch.parallelStream()
+							.map(name -> {
+								ClassNode node = this.classProvider.get(name);
+								return node != null ? ZipWriter.compress(name + ".class", AsmUtil.nodeToBytes(node), store) : null;
+							})
+							.toList();
+
+					for (int i = 0; i < batch.size(); i++) {
+						progress.step(count++, batch.get(i));
+
+						ZipWriter.CompressedEntry entry = classes.get(i);
+						if (entry != null) {
+							out.write(entry);
+						}
+					}
 				}
 			}
 		}
@@ -271,49 +283,218 @@ public class EnigmaProject {
 			return new SourceExport(decompiled);
 		}
 
-		public Stream<ClassSource> decompileStream(ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy) {
-			Collection<ClassNode> classes = this.compiled.values().stream()
-					.filter(classNode -> classNode.name.indexOf('$') == -1)
-					.toList();
+		public void decompileTo(Path path, ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy) throws IOException {
+			this.decompileTo(path, progress, decompilerService, errorStrategy, false);
+		}
 
-			progress.init(classes.size(), I18n.translate("progress.classes.decompiling"));
+		/**
+		 * Decompiles the classes and writes every source as soon as it's decompiled, so that sources aren't kept in
+		 * memory and writing overlaps with decompiling. Each decompiler thread writes its source before it decompiles
+		 * the next class, which keeps decompiling from running ahead of the disk. Zip files are written like jars, a
+		 * batch of classes is decompiled and compressed in parallel and then written in the order of the class names,
+		 * so that exports are reproducible.
+		 *
+		 * @param path        the directory to write the sources to, or a zip file if its name ends with {@code .zip}
+		 * @param incremental whether to only decompile the classes whose inputs changed since the last export to the
+		 *                    directory, see {@link SourceExportManifest}. Sources that earlier exports wrote for
+		 *                    classes that no longer exist are deleted, other files are left alone. Zip files are
+		 *                    always written completely.
+		 */
+		public void decompileTo(Path path, ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy, boolean incremental) throws IOException {
+			Collection<String> classes = this.getTopLevelClasses();
+
+			try {
+				if (isZip(path)) {
+					this.decompileToZip(path, classes, progress, decompilerService, errorStrategy);
+				} else if (incremental) {
+					this.decompileChanged(path, classes, progress, decompilerService, errorStrategy);
+				} else {
+					this.decompileStream(classes, progress, decompilerService, errorStrategy).forEach(source -> writeSource(path, source));
+				}
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
 
-			//create a common instance outside the loop as mappings shouldn't be changing while this is happening
-			Decompiler decompiler = decompilerService.create(ClassProvider.fromMap(this.compiled), new SourceSettings(false, false));
+		private void decompileToZip(Path path, Collection<String> classes, ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy) throws IOException {
+			List<String> classNames = List.copyOf(classes);
+			progress.init(classNames.size(), I18n.translate("progress.classes.decompiling"));
+			Decompiler decompiler = this.createDecompiler(decompilerService);
 
+			try (ZipWriter zip = new ZipWriter(Files.newOutputStream(path), ZipWriter.FIXED_TIME)) {
+				int count = 0;
+
+				for (int start = 0; start < classNames.size(); start += BATCH_SIZE) {
+					List<String> batch = classNames.subList(start, Math.min(start + BATCH_SIZE, classNames.size()));
+
+					// decompile and compress a batch in parallel, then write it and let it go
+					List<ZipWriter.CompressedEntry> sources = batch.parallelStream()
+							.map(name -> {
+								ClassSource source = this.decompileSource(name, decompiler, errorStrategy);
+								return source != null ? ZipWriter.compress(name + ".java", source.source.getBytes(StandardCharsets.UTF_8), false) : null;
+							})
+							.toList();
+
+					for (int i = 0; i < batch.size(); i++) {
+						progress.step(count++, batch.get(i));
+
+						ZipWriter.CompressedEntry entry = sources.get(i);
+						if (entry != null) {
+							zip.write(entry);
+						}
+					}
+				}
+			}
+		}
+
+		private void decompileChanged(Path path, Collection<String> classes, ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy) throws IOException {
+			Files.createDirectories(path);
+			SourceExportManifest previous = SourceExportManifest.read(path);
+			SourceExportManifest manifest = new SourceExportManifest();
+			ClassProvider classProvider = new CachingClassProvider(this.classProvider);
+			Map<String, String> changedHashes = new ConcurrentHashMap<>();
+
+			progress.init(classes.size(), I18n.translate("progress.classes.checking"));
 			AtomicInteger count = new AtomicInteger();
 
-			return classes.parallelStream()
-					.map(translatedNode -> {
-						progress.step(count.getAndIncrement(), translatedNode.name);
-
-						String source = null;
-						try {
-							source = this.decompileClass(translatedNode, decompiler);
-						} catch (Exception e) {
-							switch (errorStrategy) {
-								case PROPAGATE: throw e;
-								case IGNORE: break;
-								case TRACE_AS_SOURCE: {
-									StringWriter writer = new StringWriter();
-									e.printStackTrace(new PrintWriter(writer));
-									source = writer.toString();
-									break;
-								}
-							}
+			List<String> changed = classes.parallelStream()
+					.filter(name -> {
+						progress.step(count.getAndIncrement(), name);
+
+						String hash = SourceExportManifest.getHash(classProvider, name, this.classProvider.getObfName(name), decompilerService, SOURCE_SETTINGS, this.mapper);
+						if (hash != null && hash.equals(previous.getHash(name)) && Files.exists(ClassSource.resolvePath(path, name))) {
+							manifest.putHash(name, hash);
+							return false;
 						}
 
-						if (source == null) {
-							return null;
+						if (hash != null) {
+							changedHashes.put(name, hash);
 						}
 
-						return new ClassSource(translatedNode.name, source);
+						return true;
+					})
+					.toList();
+
+			// only sources this export wrote before are deleted, other files in the directory aren't ours
+			Set<String> exported = new HashSet<>(classes);
+			for (String name : previous.getClassNames()) {
+				if (!exported.contains(name)) {
+					deleteSource(path, name);
+				}
+			}
+
+			this.decompileStream(changed, progress, decompilerService, errorStrategy).forEach(source -> {
+				writeSource(path, source);
+
+				// only classes that were decompiled are up to date, the ones that failed are tried again next time
+				String hash = changedHashes.get(source.name);
+				if (hash != null && !source.failed) {
+					manifest.putHash(source.name, hash);
+				} else {
+					manifest.putClass(source.name);
+				}
+			});
+
+			// keep track of the old sources of classes that weren't written this time
+			for (String name : previous.getClassNames()) {
+				if (exported.contains(name)) {
+					manifest.putClass(name);
+				}
+			}
+
+			manifest.write(path);
+		}
+
+		private static void deleteSource(Path root, String name) throws IOException {
+			Path file = ClassSource.resolvePath(root, name);
+			if (!Files.deleteIfExists(file)) {
+				return;
+			}
+
+			// remove the packages that are left empty
+			for (Path directory = file.getParent(); !directory.equals(root) && isEmptyDirectory(directory); directory = directory.getParent()) {
+				Files.delete(directory);
+			}
+		}
+
+		private static boolean isEmptyDirectory(Path directory) throws IOException {
+			try (Stream<Path> entries = Files.list(directory)) {
+				return entries.findAny().isEmpty();
+			}
+		}
+
+		private static void writeSource(Path root, ClassSource source) {
+			try {
+				source.writeTo(source.resolvePath(root));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		public static boolean isZip(Path path) {
+			return path.getFileName() != null && path.getFileName().toString().endsWith(".zip");
+		}
+
+		public Stream<ClassSource> decompileStream(ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy) {
+			return this.decompileStream(this.getTopLevelClasses(), progress, decompilerService, errorStrategy);
+		}
+
+		private Collection<String> getTopLevelClasses() {
+			return this.classProvider.getClassNames().stream()
+					.filter(name -> name.indexOf('$') == -1)
+					.sorted()
+					.toList();
+		}
+
+		private Stream<ClassSource> decompileStream(Collection<String> classes, ProgressListener progress, DecompilerService decompilerService, DecompileErrorStrategy errorStrategy) {
+			progress.init(classes.size(), I18n.translate("progress.classes.decompiling"));
+			Decompiler decompiler = this.createDecompiler(decompilerService);
+
+			AtomicInteger count = new AtomicInteger();
+
+			return classes.parallelStream()
+					.map(name -> {
+						progress.step(count.getAndIncrement(), name);
+						return this.decompileSource(name, decompiler, errorStrategy);
 					})
 					.filter(Objects::nonNull);
 		}
 
-		private String decompileClass(ClassNode translatedNode, Decompiler decompiler) {
-			return decompiler.getSource(translatedNode.name, this.mapper).asString();
+		private Decompiler createDecompiler(DecompilerService decompilerService) {
+			//create a common instance outside the loop as mappings shouldn't be changing while this is happening
+			//classes are translated when the decompiler loads them, and only a few are kept
+			return decompilerService.create(new CachingClassProvider(this.classProvider), SOURCE_SETTINGS);
+		}
+
+		@Nullable
+		private ClassSource decompileSource(String name, Decompiler decompiler, DecompileErrorStrategy errorStrategy) {
+			String source = null;
+			boolean failed = false;
+			try {
+				source = this.decompileClass(name, decompiler);
+			} catch (Exception e) {
+				switch (errorStrategy) {
+					case PROPAGATE: throw e;
+					case IGNORE: break;
+					case TRACE_AS_SOURCE: {
+						StringWriter writer = new StringWriter();
+						e.printStackTrace(new PrintWriter(writer));
+						source = writer.toString();
+						failed = true;
+						break;
+					}
+				}
+			}
+
+			if (source == null) {
+				return null;
+			}
+
+			return new ClassSource(name, source, failed);
+		}
+
+		private String decompileClass(String name, Decompiler decompiler) {
+			return decompiler.getSource(name, this.mapper).asString();
 		}
 	}
 
@@ -340,10 +521,13 @@ public class EnigmaProject {
 	public static class ClassSource {
 		public final String name;
 		public final String source;
+		// whether the source is the stack trace of a failed decompile
+		private final boolean failed;
 
-		ClassSource(String name, String source) {
+		ClassSource(String name, String source, boolean failed) {
 			this.name = name;
 			this.source = source;
+			this.failed = failed;
 		}
 
 		public void writeTo(Path path) throws IOException {
@@ -354,7 +538,11 @@ public class EnigmaProject {
 		}
 
 		public Path resolvePath(Path root) {
-			return root.resolve(this.name.replace('.', '/') + ".java");
+			return resolvePath(root, this.name);
+		}
+
+		public static Path resolvePath(Path root, String name) {
+			return root.resolve(name.replace('.', '/') + ".java");
 		}
 	}
 
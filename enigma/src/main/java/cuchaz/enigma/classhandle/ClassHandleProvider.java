@@ -1,33 +1,48 @@
 package cuchaz.enigma.classhandle;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
 
 import javax.annotation.Nullable;
 
 import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.CancellableClassProvider;
+import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.classprovider.ObfuscationFixClassProvider;
 import cuchaz.enigma.events.ClassHandleListener;
 import cuchaz.enigma.events.ClassHandleListener.InvalidationType;
 import cuchaz.enigma.source.*;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.Cancellation;
 import cuchaz.enigma.utils.Result;
 
 import static cuchaz.enigma.utils.Utils.withLock;
 
 public final class ClassHandleProvider {
+	private static final SourceSettings SOURCE_SETTINGS = new SourceSettings(true, true);
+
 	private final EnigmaProject project;
 
-	private final ExecutorService pool = Executors.newWorkStealingPool();
+	private final DecompileScheduler scheduler = new DecompileScheduler(Runtime.getRuntime().availableProcessors());
 	private DecompilerService ds;
-	private Decompiler decompiler;
+	private volatile ActiveDecompiler decompiler;
+	@Nullable
+	private SourceCache sourceCache;
+	private final SourcePrefetcher prefetcher;
+	@Nullable
+	private volatile ClassEntry activeClass;
 
 	private final Map<ClassEntry, Entry> handles = new HashMap<>();
 
@@ -37,11 +52,13 @@ public final class ClassHandleProvider {
 		this.project = project;
 		this.ds = ds;
 		this.decompiler = this.createDecompiler();
+		this.prefetcher = new SourcePrefetcher(this, project, this.scheduler);
 	}
 
 	/**
 	 * Open a class by entry. Schedules decompilation immediately if this is the
-	 * only handle to the class.
+	 * only handle to the class, and starts prefetching the classes that are
+	 * likely to be opened after it in the background.
 	 *
 	 * @param entry the entry of the class to open
 	 * @return a handle to the class, {@code null} if a class by that name does
@@ -51,10 +68,27 @@ public final class ClassHandleProvider {
 	public ClassHandle openClass(ClassEntry entry) {
 		if (!this.project.getJarIndex().getEntryIndex().hasClass(entry)) return null;
 
-		return withLock(this.lock.writeLock(), () -> {
+		ClassHandle handle = withLock(this.lock.writeLock(), () -> {
 			Entry e = this.handles.computeIfAbsent(entry, entry1 -> new Entry(this, entry1));
 			return e.createHandle();
 		});
+
+		this.prefetcher.prefetchAround(entry);
+		return handle;
+	}
+
+	/**
+	 * Set the class shown to the user. Its decompilation runs before the one
+	 * of the other open classes.
+	 *
+	 * @param entry the class shown, or {@code null} if there is none
+	 */
+	public void setActiveClass(@Nullable ClassEntry entry) {
+		this.activeClass = entry;
+	}
+
+	boolean isOpen(ClassEntry entry) {
+		return withLock(this.lock.readLock(), () -> this.handles.containsKey(entry));
 	}
 
 	/**
@@ -71,6 +105,7 @@ public final class ClassHandleProvider {
 
 		this.ds = ds;
 		this.decompiler = this.createDecompiler();
+		this.prefetcher.invalidateAll();
 		withLock(this.lock.readLock(), () -> this.handles.values().forEach(Entry::invalidate));
 	}
 
@@ -83,8 +118,40 @@ public final class ClassHandleProvider {
 		return this.ds;
 	}
 
-	private Decompiler createDecompiler() {
-		return this.ds.create(new CachingClassProvider(new ObfuscationFixClassProvider(this.project.getClassProvider(), this.project.getJarIndex())), new SourceSettings(true, true));
+	/**
+	 * Set the cache decompiled sources are read from and stored to. Only
+	 * affects classes decompiled from now on.
+	 *
+	 * @param sourceCache the cache to use, or {@code null} to always decompile
+	 */
+	public void setSourceCache(@Nullable SourceCache sourceCache) {
+		this.sourceCache = sourceCache;
+	}
+
+	private ActiveDecompiler createDecompiler() {
+		// decompilers load classes all the time, which lets superseded decompiles stop early
+		ClassProvider classProvider = new CancellableClassProvider(new CachingClassProvider(new ObfuscationFixClassProvider(this.project.getClassProvider(), this.project.getJarIndex())));
+		return new ActiveDecompiler(this.ds, classProvider, this.ds.create(classProvider, SOURCE_SETTINGS));
+	}
+
+	ActiveDecompiler getActiveDecompiler() {
+		return this.decompiler;
+	}
+
+	/**
+	 * Creates the source of a class with the given decompiler. Its key in the
+	 * source cache must be computed for the decompiler that produces it, even
+	 * if it gets replaced meanwhile.
+	 */
+	Source decompile(ActiveDecompiler decompiler, ClassEntry entry) {
+		SourceCache cache = this.sourceCache;
+		String key = cache != null ? SourceCache.getKey(decompiler.classProvider(), entry.getFullName(), decompiler.service().getCacheKey(), SOURCE_SETTINGS) : null;
+
+		if (key == null) {
+			return decompiler.decompiler().getSource(entry.getFullName(), null);
+		}
+
+		return cache.wrap(key, entry.getFullName(), () -> decompiler.decompiler().getSource(entry.getFullName(), null));
 	}
 
 	/**
@@ -95,6 +162,27 @@ public final class ClassHandleProvider {
 		withLock(this.lock.readLock(), () -> this.handles.values().forEach(Entry::invalidateMapped));
 	}
 
+	/**
+	 * Invalidates mappings of the classes that reference an entry or one of
+	 * its equivalents, like the overrides of a method. The other open class
+	 * handles are left untouched. Use this instead of
+	 * {@link #invalidateMapped()} when a single entry was renamed.
+	 *
+	 * @param entry the renamed entry, as given to the remapper before it's
+	 * resolved to its root
+	 */
+	public void invalidateMappedReferences(cuchaz.enigma.translation.representation.entry.Entry<?> entry) {
+		EntryResolver resolver = this.project.getMapper().getObfResolver();
+		Set<cuchaz.enigma.translation.representation.entry.Entry<?>> renamed = new HashSet<>();
+		renamed.add(entry);
+		for (cuchaz.enigma.translation.representation.entry.Entry<?> resolved : resolver.resolveEntry(entry, ResolutionStrategy.RESOLVE_ROOT)) {
+			renamed.add(resolved);
+			renamed.addAll(resolver.resolveEquivalentEntries(resolved));
+		}
+
+		withLock(this.lock.readLock(), () -> this.handles.values().stream().filter(e -> e.references(renamed)).toList()).forEach(e -> e.invalidateMapped(renamed));
+	}
+
 	/**
 	 * Invalidates mappings for a single class. Note that this does not
 	 * invalidate any mappings of other classes where this class is used, so
@@ -117,6 +205,7 @@ public final class ClassHandleProvider {
 	 * re-remapped.
 	 */
 	public void invalidateJavadoc() {
+		this.prefetcher.invalidateAll();
 		withLock(this.lock.readLock(), () -> this.handles.values().forEach(Entry::invalidateJavadoc));
 	}
 
@@ -127,6 +216,7 @@ public final class ClassHandleProvider {
 	 * @param entry the class entry to invalidate
 	 */
 	public void invalidateJavadoc(ClassEntry entry) {
+		this.prefetcher.invalidate(entry);
 		withLock(this.lock.readLock(), () -> {
 			Entry e = this.handles.get(entry);
 			if (e != null) {
@@ -153,9 +243,11 @@ public final class ClassHandleProvider {
 	 * be used.
 	 */
 	public void destroy() {
-		this.pool.shutdown();
+		this.prefetcher.destroy();
+		withLock(this.lock.readLock(), () -> this.handles.values().forEach(Entry::cancel));
+		this.scheduler.shutdown();
 		try {
-			this.pool.awaitTermination(30, TimeUnit.SECONDS);
+			this.scheduler.awaitTermination(30, TimeUnit.SECONDS);
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
 		}
@@ -166,6 +258,13 @@ public final class ClassHandleProvider {
 		});
 	}
 
+	record ActiveDecompiler(DecompilerService service, ClassProvider classProvider, Decompiler decompiler) {
+	}
+
+	private static boolean isCancellation(Throwable t) {
+		return t instanceof CancellationException || t instanceof CompletionException && t.getCause() instanceof CancellationException;
+	}
+
 	private static final class Entry {
 		private final ClassHandleProvider p;
 		private final ClassEntry entry;
@@ -173,6 +272,12 @@ public final class ClassHandleProvider {
 		private final List<ClassHandleImpl> handles = new ArrayList<>();
 		private Result<Source, ClassHandleError> uncommentedSource;
 		private Result<DecompiledClassSource, ClassHandleError> source;
+		/**
+		 * The entries whose names appear in the source, or {@code null} if it
+		 * wasn't indexed yet.
+		 */
+		@Nullable
+		private volatile Set<cuchaz.enigma.translation.representation.entry.Entry<?>> referencedEntries;
 
 		private final List<CompletableFuture<Result<Source, ClassHandleError>>> waitingUncommentedSources = Collections.synchronizedList(new ArrayList<>());
 		private final List<CompletableFuture<Result<DecompiledClassSource, ClassHandleError>>> waitingSources = Collections.synchronizedList(new ArrayList<>());
@@ -181,8 +286,10 @@ public final class ClassHandleProvider {
 		private final AtomicInteger javadocVersion = new AtomicInteger();
 		private final AtomicInteger indexVersion = new AtomicInteger();
 		private final AtomicInteger mappedVersion = new AtomicInteger();
+		private volatile int completedMappedVersion;
 
 		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+		private volatile boolean closed;
 
 		private Entry(ClassHandleProvider p, ClassEntry entry) {
 			this.p = p;
@@ -214,7 +321,13 @@ public final class ClassHandleProvider {
 		public void invalidate() {
 			this.checkDeobfRefForUpdate();
 			withLock(this.lock.readLock(), () -> new ArrayList<>(this.handles)).forEach(h -> h.onInvalidate(InvalidationType.FULL));
-			this.continueMapSource(this.continueIndexSource(this.continueInsertJavadoc(this.decompile())));
+
+			CompletableFuture<SourcePrefetcher.PrefetchedSource> prefetched = this.p.prefetcher.take(this.entry, this.p.decompiler, this::getPriority);
+			if (prefetched != null) {
+				this.continueMapSource(this.continueIndexSource(this.usePrefetched(prefetched)));
+			} else {
+				this.continueMapSource(this.continueIndexSource(this.continueInsertJavadoc(this.decompile())));
+			}
 		}
 
 		public void invalidateJavadoc() {
@@ -229,18 +342,102 @@ public final class ClassHandleProvider {
 			this.continueMapSource(CompletableFuture.completedFuture(this.source));
 		}
 
+		/**
+		 * Remaps only the tokens of the renamed entries, if the current source
+		 * is up to date.
+		 */
+		public void invalidateMapped(Set<cuchaz.enigma.translation.representation.entry.Entry<?>> renamed) {
+			Result<DecompiledClassSource, ClassHandleError> source = this.source;
+			boolean upToDate = source != null && source.isOk() && this.mappedVersion.get() == this.completedMappedVersion;
+			if (!upToDate || renamed.stream().anyMatch(e -> e instanceof ClassEntry)) {
+				this.invalidateMapped();
+				return;
+			}
+
+			this.checkDeobfRefForUpdate();
+			withLock(this.lock.readLock(), () -> new ArrayList<>(this.handles)).forEach(h -> h.onInvalidate(InvalidationType.MAPPINGS));
+			this.continueMapSource(CompletableFuture.completedFuture(source), s -> s.remapSource(this.p.project, this.p.project.getMapper().getDeobfuscator(), renamed));
+		}
+
+		private static Set<cuchaz.enigma.translation.representation.entry.Entry<?>> getReferencedEntries(SourceIndex index) {
+			Set<cuchaz.enigma.translation.representation.entry.Entry<?>> entries = new HashSet<>();
+			for (EntryReference<cuchaz.enigma.translation.representation.entry.Entry<?>, cuchaz.enigma.translation.representation.entry.Entry<?>> reference : index.references()) {
+				// renaming a class also changes the qualified names of its inner classes
+				entries.addAll(reference.entry.getAncestry());
+			}
+
+			return entries;
+		}
+
+		/**
+		 * Checks whether renaming one of the given entries changes the mapped
+		 * source of this class.
+		 */
+		private boolean references(Set<cuchaz.enigma.translation.representation.entry.Entry<?>> renamed) {
+			Set<cuchaz.enigma.translation.representation.entry.Entry<?>> referenced = this.referencedEntries;
+			if (referenced == null) return true;
+
+			for (cuchaz.enigma.translation.representation.entry.Entry<?> entry : renamed) {
+				if (referenced.contains(entry)) return true;
+			}
+
+			return false;
+		}
+
+		private DecompileScheduler.Priority getPriority() {
+			return this.entry.equals(this.p.activeClass) ? DecompileScheduler.Priority.ACTIVE : DecompileScheduler.Priority.OPEN;
+		}
+
+		/**
+		 * Creates an executor for a stage, whose running tasks are cancelled
+		 * once the stage is started again or the last handle is closed.
+		 */
+		private Executor executor(AtomicInteger version, int v) {
+			return this.p.scheduler.executor(this::getPriority, () -> this.closed || version.get() != v);
+		}
+
+		private void cancel() {
+			this.closed = true;
+		}
+
 		private CompletableFuture<Result<Source, ClassHandleError>> decompile() {
 			int v = this.decompileVersion.incrementAndGet();
+			ActiveDecompiler decompiler = this.p.decompiler;
 			return CompletableFuture.supplyAsync(() -> {
 				if (this.decompileVersion.get() != v) return null;
 
-				Result<Source, ClassHandleError> uncommentedSource = Result.ok(this.p.decompiler.getSource(this.entry.getFullName()));
-				Entry.this.uncommentedSource = uncommentedSource;
-				Entry.this.waitingUncommentedSources.forEach(f -> f.complete(uncommentedSource));
-				Entry.this.waitingUncommentedSources.clear();
-				withLock(this.lock.readLock(), () -> new ArrayList<>(this.handles)).forEach(h -> h.onUncommentedSourceChanged(uncommentedSource));
+				Result<Source, ClassHandleError> uncommentedSource = Result.ok(this.p.decompile(decompiler, this.entry));
+				this.setUncommentedSource(uncommentedSource);
 				return uncommentedSource;
-			}, this.p.pool);
+			}, this.executor(this.decompileVersion, v));
+		}
+
+		/**
+		 * Uses a prefetched source instead of decompiling and inserting
+		 * javadocs again. Decompiles the class if the prefetch failed or
+		 * was cancelled before being taken.
+		 */
+		private CompletableFuture<Result<Source, ClassHandleError>> usePrefetched(CompletableFuture<SourcePrefetcher.PrefetchedSource> f) {
+			int dv = this.decompileVersion.incrementAndGet();
+			int jv = this.javadocVersion.incrementAndGet();
+			ActiveDecompiler decompiler = this.p.decompiler;
+			return f.handle((prefetched, e) -> prefetched).thenApplyAsync(prefetched -> {
+				if (this.decompileVersion.get() != dv) return null;
+				Source uncommented = prefetched != null ? prefetched.uncommented() : this.p.decompile(decompiler, this.entry);
+				this.setUncommentedSource(Result.ok(uncommented));
+
+				if (this.javadocVersion.get() != jv) return null;
+				Result<Source, ClassHandleError> jdSource = Result.ok(prefetched != null ? prefetched.commented() : uncommented.withJavadocs(this.p.project.getMapper()));
+				withLock(this.lock.readLock(), () -> new ArrayList<>(this.handles)).forEach(h -> h.onDocsChanged(jdSource));
+				return jdSource;
+			}, this.executor(this.decompileVersion, dv));
+		}
+
+		private void setUncommentedSource(Result<Source, ClassHandleError> uncommentedSource) {
+			Entry.this.uncommentedSource = uncommentedSource;
+			Entry.this.waitingUncommentedSources.forEach(f -> f.complete(uncommentedSource));
+			Entry.this.waitingUncommentedSources.clear();
+			withLock(this.lock.readLock(), () -> new ArrayList<>(this.handles)).forEach(h -> h.onUncommentedSourceChanged(uncommentedSource));
 		}
 
 		private CompletableFuture<Result<Source, ClassHandleError>> continueInsertJavadoc(CompletableFuture<Result<Source, ClassHandleError>> f) {
@@ -250,7 +447,7 @@ public final class ClassHandleProvider {
 				Result<Source, ClassHandleError> jdSource = res.map(s -> s.withJavadocs(this.p.project.getMapper()));
 				withLock(this.lock.readLock(), () -> new ArrayList<>(this.handles)).forEach(h -> h.onDocsChanged(jdSource));
 				return jdSource;
-			}, this.p.pool);
+			}, this.executor(this.javadocVersion, v));
 		}
 
 		private CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> continueIndexSource(CompletableFuture<Result<Source, ClassHandleError>> f) {
@@ -259,22 +456,32 @@ public final class ClassHandleProvider {
 				if (res == null || this.indexVersion.get() != v) return null;
 				return res.andThen(jdSource -> {
 					SourceIndex index = jdSource.index();
+					// the decompiler may have given up on parts of the class when it was cancelled
+					Cancellation.check();
 					index.resolveReferences(this.p.project.getMapper().getObfResolver());
+					this.referencedEntries = getReferencedEntries(index);
 					DecompiledClassSource source = new DecompiledClassSource(this.entry, index);
 					return Result.ok(source);
 				});
-			}, this.p.pool).exceptionally(e -> Result.err(ClassHandleError.decompile(e)));
+			}, this.executor(this.indexVersion, v)).exceptionally(e -> isCancellation(e) ? null : Result.err(ClassHandleError.decompile(e)));
 		}
 
 		private void continueMapSource(CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> f) {
+			this.continueMapSource(f, source -> source.remapSource(this.p.project, this.p.project.getMapper().getDeobfuscator()));
+		}
+
+		private void continueMapSource(CompletableFuture<Result<DecompiledClassSource, ClassHandleError>> f, UnaryOperator<DecompiledClassSource> remap) {
 			int v = this.mappedVersion.incrementAndGet();
 			f.thenApplyAsync(res -> {
 				if (res == null || this.mappedVersion.get() != v) return null;
-				return res.andThen(source -> Result.ok(source.remapSource(this.p.project, this.p.project.getMapper().getDeobfuscator())));
-			}, this.p.pool).whenComplete((res, e) -> {
+				return res.andThen(source -> Result.ok(remap.apply(source)));
+			}, this.executor(this.mappedVersion, v)).whenComplete((res, e) -> {
+				if (e != null && isCancellation(e)) return;
 				if (e != null) res = Result.err(ClassHandleError.remap(e));
 				if (res == null) return;
 				Entry.this.source = res;
+				// patching the source is only correct if it has every change before this one
+				Entry.this.completedMappedVersion = v;
 				Entry.this.waitingSources.forEach(s -> s.complete(this.source));
 				Entry.this.waitingSources.clear();
 				withLock(this.lock.readLock(), () -> new ArrayList<>(this.handles)).forEach(h -> h.onMappedSourceChanged(this.source));
@@ -286,12 +493,15 @@ public final class ClassHandleProvider {
 			withLock(this.lock.writeLock(), () -> {
 				this.handles.remove(classHandle);
 				if (this.handles.isEmpty()) {
+					// nothing needs the source anymore, running stages stop early
+					this.closed = true;
 					this.p.deleteEntry(this);
 				}
 			});
 		}
 
 		public void destroy() {
+			this.closed = true;
 			withLock(this.lock.writeLock(), () -> {
 				this.handles.forEach(ClassHandleImpl::destroy);
 				this.handles.clear();
@@ -0,0 +1,174 @@
+package cuchaz.enigma.classhandle;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.tinylog.Logger;
+
+import cuchaz.enigma.utils.Cancellation;
+
+/**
+ * Runs the decompilation work of class handles by priority: the class shown
+ * in the active editor first, then the other open classes, then prefetching.
+ * Tasks of the same priority run in the order they were submitted.
+ *
+ * <p>The priority of a task is read again every time a task is picked, so
+ * switching editors also reorders the work already queued. Every task runs
+ * with a {@link Cancellation} condition, which lets a running task stop early
+ * once it is superseded. When all threads are busy and a more important task
+ * is queued, a running prefetch task is cancelled to make room for it.
+ */
+final class DecompileScheduler {
+	enum Priority {
+		ACTIVE,
+		OPEN,
+		PREFETCH
+	}
+
+	private final List<Thread> threads = new ArrayList<>();
+
+	// guarded by this
+	private final List<Task> queue = new ArrayList<>();
+	private final Set<Task> running = new HashSet<>();
+	private long sequence;
+	private boolean shutdown;
+
+	DecompileScheduler(int threadCount) {
+		for (int i = 0; i < threadCount; i++) {
+			Thread thread = new Thread(this::work, "Decompiler " + (i + 1));
+			thread.setDaemon(true);
+			this.threads.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * @param priority  the current priority of the tasks
+	 * @param cancelled whether the tasks aren't needed anymore, checked by
+	 *                  the tasks while they run
+	 * @return an executor submitting tasks to this scheduler
+	 */
+	Executor executor(Supplier<Priority> priority, BooleanSupplier cancelled) {
+		return runnable -> this.submit(new Task(priority, cancelled, runnable));
+	}
+
+	private synchronized void submit(Task task) {
+		if (this.shutdown) {
+			throw new RejectedExecutionException("Decompile scheduler was shut down");
+		}
+
+		task.sequence = this.sequence++;
+		this.queue.add(task);
+		this.notify();
+
+		if (this.running.size() >= this.threads.size() && task.priority.get() != Priority.PREFETCH) {
+			for (Task running : this.running) {
+				if (!running.preempted && running.priority.get() == Priority.PREFETCH) {
+					running.preempted = true;
+					break;
+				}
+			}
+		}
+	}
+
+	private synchronized Task take() throws InterruptedException {
+		while (this.queue.isEmpty()) {
+			if (this.shutdown) {
+				return null;
+			}
+
+			this.wait();
+		}
+
+		Task next = null;
+		int nextPriority = Integer.MAX_VALUE;
+		for (Task task : this.queue) {
+			int priority = task.priority.get().ordinal();
+			if (priority < nextPriority || priority == nextPriority && task.sequence < next.sequence) {
+				next = task;
+				nextPriority = priority;
+			}
+		}
+
+		this.queue.remove(next);
+		this.running.add(next);
+		return next;
+	}
+
+	private void work() {
+		while (true) {
+			Task task;
+			try {
+				task = this.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			if (task == null) {
+				return;
+			}
+
+			try {
+				// tasks are always run, so that the futures depending on them complete
+				Cancellation.run(task::isCancelled, task.runnable);
+			} catch (Throwable t) {
+				Logger.error(t, "Uncaught exception in decompile task");
+			} finally {
+				synchronized (this) {
+					this.running.remove(task);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting tasks, and lets the threads finish the queued ones.
+	 */
+	synchronized void shutdown() {
+		this.shutdown = true;
+		this.notifyAll();
+	}
+
+	boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (Thread thread : this.threads) {
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remaining <= 0) {
+				return false;
+			}
+
+			thread.join(remaining);
+			if (thread.isAlive()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static final class Task {
+		final Supplier<Priority> priority;
+		final BooleanSupplier cancelled;
+		final Runnable runnable;
+		long sequence;
+		volatile boolean preempted;
+
+		Task(Supplier<Priority> priority, BooleanSupplier cancelled, Runnable runnable) {
+			this.priority = priority;
+			this.cancelled = cancelled;
+			this.runnable = runnable;
+		}
+
+		boolean isCancelled() {
+			// a prefetched source taken by a handle isn't preempted anymore
+			return this.preempted && this.priority.get() == Priority.PREFETCH || this.cancelled.getAsBoolean();
+		}
+	}
+}
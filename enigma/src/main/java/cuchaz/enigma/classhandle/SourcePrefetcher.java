@@ -0,0 +1,310 @@
+package cuchaz.enigma.classhandle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.tinylog.Logger;
+
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodDefEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.translation.representation.entry.ParentedEntry;
+import cuchaz.enigma.utils.Cancellation;
+
+/**
+ * Decompiles the classes that are likely to be opened next in the
+ * background, so that opening them doesn't wait for the decompiler.
+ *
+ * <p>The candidates are the supertypes of the last opened class, the
+ * classes it references, its subtypes, and classes of recently browsed
+ * packages. They are decompiled with the lowest priority of the
+ * {@link DecompileScheduler}, so they only run when no class handle needs
+ * the decompiler, and are cancelled when a class handle does. Prefetched
+ * sources are kept until a handle takes them, they get invalidated, or
+ * they're evicted to stay within the size budget.
+ */
+final class SourcePrefetcher {
+	private static final int MAX_CANDIDATES = 16;
+	private static final int RECENT_PACKAGES = 4;
+	private static final int CLASSES_PER_PACKAGE = 4;
+	private static final long MAX_SOURCE_LENGTH = 8 * 1024 * 1024;
+
+	private final ClassHandleProvider provider;
+	private final EnigmaProject project;
+	private final DecompileScheduler scheduler;
+	/**
+	 * Total length of the prefetched sources that are kept.
+	 */
+	private final long maxSourceLength;
+
+	private final AtomicInteger generation = new AtomicInteger();
+	private final Deque<String> recentPackages = new ArrayDeque<>();
+
+	// guarded by this
+	private final Map<ClassEntry, Prefetched> prefetched = new LinkedHashMap<>();
+	private long sourceLength;
+	private volatile boolean destroyed;
+
+	SourcePrefetcher(ClassHandleProvider provider, EnigmaProject project, DecompileScheduler scheduler) {
+		this(provider, project, scheduler, MAX_SOURCE_LENGTH);
+	}
+
+	SourcePrefetcher(ClassHandleProvider provider, EnigmaProject project, DecompileScheduler scheduler, long maxSourceLength) {
+		this.provider = provider;
+		this.project = project;
+		this.scheduler = scheduler;
+		this.maxSourceLength = maxSourceLength;
+	}
+
+	/**
+	 * Prefetches the classes likely to be opened after the given one,
+	 * replacing the candidates of the previous call that weren't started
+	 * yet.
+	 */
+	void prefetchAround(ClassEntry entry) {
+		ClassEntry root = entry.getOutermostClass();
+		int generation = this.generation.incrementAndGet();
+
+		synchronized (this.recentPackages) {
+			String packageName = root.getPackageName();
+			if (packageName != null) {
+				this.recentPackages.remove(packageName);
+				this.recentPackages.addFirst(packageName);
+				if (this.recentPackages.size() > RECENT_PACKAGES) {
+					this.recentPackages.removeLast();
+				}
+			}
+		}
+
+		BooleanSupplier superseded = () -> this.destroyed || this.generation.get() != generation;
+		Executor executor = this.scheduler.executor(() -> DecompileScheduler.Priority.PREFETCH, superseded);
+		executor.execute(() -> {
+			for (ClassEntry candidate : this.getCandidates(root)) {
+				Prefetched prefetched = new Prefetched();
+				this.scheduler.executor(prefetched::getPriority, () -> !prefetched.isTaken() && superseded.getAsBoolean())
+						.execute(() -> this.prefetch(candidate, prefetched));
+			}
+		});
+	}
+
+	/**
+	 * Takes the prefetched source of a class, if it was decompiled by the
+	 * current decompiler. The source may still be decompiling.
+	 */
+	@Nullable
+	synchronized CompletableFuture<PrefetchedSource> take(ClassEntry entry, ClassHandleProvider.ActiveDecompiler decompiler, Supplier<DecompileScheduler.Priority> priority) {
+		Prefetched prefetched = this.prefetched.remove(entry);
+		if (prefetched == null) {
+			return null;
+		}
+
+		this.sourceLength -= prefetched.sourceLength;
+		if (prefetched.decompiler != decompiler) {
+			return null;
+		}
+
+		// a source still being prefetched now has the priority of its handle
+		prefetched.owner = priority;
+		return prefetched.future;
+	}
+
+	synchronized void invalidate(ClassEntry entry) {
+		Prefetched prefetched = this.prefetched.remove(entry.getOutermostClass());
+		if (prefetched != null) {
+			this.sourceLength -= prefetched.sourceLength;
+		}
+	}
+
+	synchronized void invalidateAll() {
+		this.prefetched.clear();
+		this.sourceLength = 0;
+	}
+
+	synchronized long getSourceLength() {
+		return this.sourceLength;
+	}
+
+	void destroy() {
+		this.destroyed = true;
+		this.invalidateAll();
+	}
+
+	private void prefetch(ClassEntry entry, Prefetched prefetched) {
+		// the provider locks its handles before this prefetcher, never the other way around
+		if (Cancellation.isCancelled() || this.provider.isOpen(entry)) {
+			return;
+		}
+
+		ClassHandleProvider.ActiveDecompiler decompiler = this.provider.getActiveDecompiler();
+		prefetched.decompiler = decompiler;
+
+		synchronized (this) {
+			if (this.prefetched.containsKey(entry)) {
+				return;
+			}
+
+			this.prefetched.put(entry, prefetched);
+		}
+
+		try {
+			Source uncommented = this.provider.decompile(decompiler, entry);
+			Source commented = uncommented.withJavadocs(this.project.getMapper());
+			int length = commented.index().getSource().length();
+			// the decompiler may have given up on parts of the class when it was cancelled
+			Cancellation.check();
+			prefetched.future.complete(new PrefetchedSource(uncommented, commented));
+
+			synchronized (this) {
+				// only count sources that weren't taken or invalidated meanwhile
+				if (this.prefetched.get(entry) == prefetched) {
+					prefetched.sourceLength = length;
+					this.sourceLength += length;
+					this.evict();
+				}
+			}
+		} catch (Throwable t) {
+			if (!(t instanceof CancellationException)) {
+				Logger.debug(t, "Failed to prefetch {}", entry);
+			}
+
+			prefetched.future.completeExceptionally(t);
+
+			synchronized (this) {
+				this.prefetched.remove(entry, prefetched);
+			}
+		}
+	}
+
+	private void evict() {
+		Iterator<Prefetched> iterator = this.prefetched.values().iterator();
+		while (this.sourceLength > this.maxSourceLength && iterator.hasNext()) {
+			Prefetched prefetched = iterator.next();
+			if (prefetched.future.isDone()) {
+				this.sourceLength -= prefetched.sourceLength;
+				iterator.remove();
+			}
+		}
+	}
+
+	private Collection<ClassEntry> getCandidates(ClassEntry root) {
+		JarIndex index = this.project.getJarIndex();
+		Set<ClassEntry> candidates = new LinkedHashSet<>();
+
+		List<ClassEntry> nest = this.getNest(root);
+		for (ClassEntry entry : nest) {
+			candidates.addAll(index.getInheritanceIndex().getParents(entry));
+		}
+
+		// the classes referenced the most come first
+		Map<ClassEntry, Integer> references = new HashMap<>();
+		for (ClassEntry entry : nest) {
+			for (ParentedEntry<?> child : index.getChildrenByClass().get(entry)) {
+				if (child instanceof MethodDefEntry method) {
+					for (MethodEntry referenced : index.getReferenceIndex().getMethodsReferencedBy(method)) {
+						references.merge(referenced.getParent(), 1, Integer::sum);
+					}
+
+					for (TypeDescriptor argument : method.getDesc().getArgumentDescs()) {
+						this.addTypeReference(references, argument);
+					}
+
+					this.addTypeReference(references, method.getDesc().getReturnDesc());
+				} else if (child instanceof FieldDefEntry field) {
+					this.addTypeReference(references, field.getDesc());
+				}
+			}
+		}
+
+		references.entrySet().stream()
+				.sorted(Map.Entry.<ClassEntry, Integer>comparingByValue().reversed())
+				.forEach(e -> candidates.add(e.getKey()));
+
+		for (ClassEntry entry : nest) {
+			candidates.addAll(index.getInheritanceIndex().getChildren(entry));
+		}
+
+		List<String> packages;
+		synchronized (this.recentPackages) {
+			packages = List.copyOf(this.recentPackages);
+		}
+
+		for (String packageName : packages) {
+			index.getEntryIndex().getClasses().stream()
+					.filter(c -> !c.isInnerClass() && packageName.equals(c.getPackageName()))
+					.sorted()
+					.limit(CLASSES_PER_PACKAGE)
+					.forEach(candidates::add);
+		}
+
+		return candidates.stream()
+				.map(ClassEntry::getOutermostClass)
+				.distinct()
+				.filter(c -> !c.equals(root) && index.getEntryIndex().hasClass(c))
+				.limit(MAX_CANDIDATES)
+				.toList();
+	}
+
+	private List<ClassEntry> getNest(ClassEntry root) {
+		List<ClassEntry> nest = new ArrayList<>();
+		nest.add(root);
+		for (int i = 0; i < nest.size(); i++) {
+			for (ParentedEntry<?> child : this.project.getJarIndex().getChildrenByClass().get(nest.get(i))) {
+				if (child instanceof ClassEntry inner) {
+					nest.add(inner);
+				}
+			}
+		}
+
+		return nest;
+	}
+
+	private void addTypeReference(Map<ClassEntry, Integer> references, TypeDescriptor descriptor) {
+		if (descriptor.isArray()) {
+			this.addTypeReference(references, descriptor.getArrayType());
+		} else if (descriptor.isType()) {
+			references.merge(descriptor.getTypeEntry(), 1, Integer::sum);
+		}
+	}
+
+	record PrefetchedSource(Source uncommented, Source commented) {
+	}
+
+	private static final class Prefetched {
+		final CompletableFuture<PrefetchedSource> future = new CompletableFuture<>();
+		volatile ClassHandleProvider.ActiveDecompiler decompiler;
+		@Nullable
+		volatile Supplier<DecompileScheduler.Priority> owner;
+		long sourceLength;
+
+		boolean isTaken() {
+			return this.owner != null;
+		}
+
+		DecompileScheduler.Priority getPriority() {
+			Supplier<DecompileScheduler.Priority> owner = this.owner;
+			return owner != null ? owner.get() : DecompileScheduler.Priority.PREFETCH;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package cuchaz.enigma.classprovider;
+
+import cuchaz.enigma.utils.Cancellation;
+import org.objectweb.asm.tree.ClassNode;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+
+/**
+ * Wraps a ClassProvider to stop a cancelled task when it loads a class, see {@link Cancellation}.
+ */
+public class CancellableClassProvider implements ClassProvider {
+	private final ClassProvider classProvider;
+
+	public CancellableClassProvider(ClassProvider classProvider) {
+		this.classProvider = classProvider;
+	}
+
+	@Override
+	@Nullable
+	public ClassNode get(String name) {
+		Cancellation.check();
+		return this.classProvider.get(name);
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		return this.classProvider.getClassNames();
+	}
+
+	@Override
+	public Collection<String> getClasses(String className) {
+		Cancellation.check();
+		return this.classProvider.getClasses(className);
+	}
+}
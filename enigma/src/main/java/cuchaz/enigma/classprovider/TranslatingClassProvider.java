@@ -0,0 +1,81 @@
+package cuchaz.enigma.classprovider;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.bytecode.translators.TranslationClassVisitor;
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.objectweb.asm.tree.ClassNode;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps a ClassProvider to translate its classes, which are then provided under their translated names.
+ * <p>
+ * Classes are translated every time they're requested and aren't kept, so this should usually be wrapped in a
+ * {@link CachingClassProvider} when classes are requested more than once.
+ */
+public class TranslatingClassProvider implements ClassProvider {
+	private final ClassProvider classProvider;
+	private final Translator translator;
+	private final Map<String, String> obfNames;
+	private final Map<String, List<String>> nests;
+
+	/**
+	 * @param classProvider the provider of the classes to translate
+	 * @param translator    the translator to translate the classes with
+	 * @param classes       the classes to provide
+	 */
+	public TranslatingClassProvider(ClassProvider classProvider, Translator translator, Collection<ClassEntry> classes) {
+		this.classProvider = classProvider;
+		this.translator = translator;
+		this.obfNames = classes.stream().collect(Collectors.toUnmodifiableMap(entry -> translator.extendedTranslate(entry).getValue().getFullName(), ClassEntry::getFullName));
+		this.nests = this.obfNames.keySet().stream().collect(Collectors.groupingBy(TranslatingClassProvider::getOutermostName));
+	}
+
+	private static String getOutermostName(String name) {
+		int index = name.indexOf('$');
+		return index != -1 ? name.substring(0, index) : name;
+	}
+
+	/**
+	 * @return the name of a class before translating it, or {@code null} if this provider doesn't provide the class
+	 */
+	@Nullable
+	public String getObfName(String name) {
+		return this.obfNames.get(name);
+	}
+
+	@Override
+	@Nullable
+	public ClassNode get(String name) {
+		String obfName = this.obfNames.get(name);
+		if (obfName == null) {
+			return null;
+		}
+
+		ClassNode node = this.classProvider.get(obfName);
+		if (node == null) {
+			return null;
+		}
+
+		ClassNode translatedNode = new ClassNode();
+		node.accept(new TranslationClassVisitor(this.translator, Enigma.ASM_VERSION, translatedNode));
+		return translatedNode;
+	}
+
+	@Override
+	public Collection<String> getClassNames() {
+		return Collections.unmodifiableSet(this.obfNames.keySet());
+	}
+
+	@Override
+	public Collection<String> getClasses(String className) {
+		// avoids going through all the classes for every class
+		return Collections.unmodifiableList(this.nests.getOrDefault(getOutermostName(className), List.of()));
+	}
+}
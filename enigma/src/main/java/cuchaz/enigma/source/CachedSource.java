@@ -0,0 +1,57 @@
+package cuchaz.enigma.source;
+
+import com.google.common.base.Suppliers;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.utils.Cancellation;
+
+import java.util.function.Supplier;
+
+/**
+ * A source read from a {@link SourceCache}. The real source is only created, and decompiled, on a cache miss.
+ */
+final class CachedSource implements Source {
+	private final SourceCache cache;
+	private final String key;
+	private final String className;
+	private final Supplier<Source> source;
+
+	private SourceIndex index;
+
+	CachedSource(SourceCache cache, String key, String className, Supplier<Source> source) {
+		this.cache = cache;
+		this.key = key;
+		this.className = className;
+		this.source = Suppliers.memoize(source::get);
+	}
+
+	@Override
+	public String asString() {
+		return this.index().getSource();
+	}
+
+	@Override
+	public Source withJavadocs(EntryRemapper remapper) {
+		String key = SourceCache.getJavadocKey(this.key, this.className, remapper);
+		return new CachedSource(this.cache, key, this.className, () -> this.source.get().withJavadocs(remapper));
+	}
+
+	@Override
+	public synchronized SourceIndex index() {
+		if (this.index != null) {
+			return this.index;
+		}
+
+		SourceIndex index = this.cache.read(this.key);
+		if (index == null) {
+			index = this.source.get().index();
+
+			// a cancelled decompiler may have given up on parts of the class
+			if (!Cancellation.isCancelled()) {
+				this.cache.write(this.key, index);
+			}
+		}
+
+		this.index = index;
+		return index;
+	}
+}
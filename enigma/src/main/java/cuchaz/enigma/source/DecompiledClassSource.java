@@ -28,6 +28,10 @@ public class DecompiledClassSource {
 
 	private final TokenStore highlightedTokens;
 
+	// computed on the first offset lookup, racing threads compute the same table
+	@Nullable
+	private volatile OffsetTable offsetTable;
+
 	private DecompiledClassSource(ClassEntry classEntry, SourceIndex obfuscatedIndex, SourceIndex remappedIndex, TokenStore highlightedTokens) {
 		this.classEntry = classEntry;
 		this.obfuscatedIndex = obfuscatedIndex;
@@ -52,6 +56,45 @@ public class DecompiledClassSource {
 		return new DecompiledClassSource(this.classEntry, this.obfuscatedIndex, remappedIndex, tokenStore);
 	}
 
+	/**
+	 * Remaps this source again after some entries were renamed, patching
+	 * only the tokens of these entries instead of remapping the whole source.
+	 * Renamed classes can also change other names, like the default names of
+	 * local variables, so these need {@link #remapSource(EnigmaProject, Translator)}.
+	 *
+	 * @param renamed the renamed entries, including their equivalents
+	 */
+	public DecompiledClassSource remapSource(EnigmaProject project, Translator translator, Set<Entry<?>> renamed) {
+		// tokens of the remapped index are in the same order as the obfuscated ones
+		Map<Token, Token> obfuscatedTokens = new HashMap<>();
+		Iterator<Token> obfuscatedTokenItr = this.obfuscatedIndex.referenceTokens().iterator();
+		for (Token token : this.remappedIndex.referenceTokens()) {
+			Token obfuscatedToken = obfuscatedTokenItr.next();
+			if (renamed.contains(this.remappedIndex.getReference(token).getNameableEntry())) {
+				obfuscatedTokens.put(token, obfuscatedToken);
+			}
+		}
+
+		if (obfuscatedTokens.isEmpty()) {
+			return this;
+		}
+
+		List<Token> tokens = new ArrayList<>(obfuscatedTokens.keySet());
+		Collections.sort(tokens);
+
+		SourceRemapper remapper = new SourceRemapper(this.remappedIndex.getSource(), tokens);
+		TokenStore tokenStore = TokenStore.create(this.obfuscatedIndex);
+		SourceRemapper.Result remapResult = remapper.remap((token, movedToken) -> {
+			Token obfuscatedToken = obfuscatedTokens.get(token);
+			String name = this.remapToken(tokenStore, project, obfuscatedToken, movedToken, translator);
+			// the token may have been renamed before, so it can't be left as it is
+			return name != null ? name : obfuscatedToken.text;
+		});
+
+		SourceIndex remappedIndex = this.remappedIndex.remapTo(remapResult);
+		return new DecompiledClassSource(this.classEntry, this.obfuscatedIndex, remappedIndex, this.highlightedTokens.remap(remapResult, tokenStore));
+	}
+
 	private String remapToken(TokenStore target, EnigmaProject project, Token token, Token movedToken, Translator translator) {
 		EntryReference<Entry<?>, Entry<?>> reference = this.obfuscatedIndex.getReference(token);
 
@@ -125,33 +168,57 @@ public class DecompiledClassSource {
 	}
 
 	public int getObfuscatedOffset(int deobfOffset) {
-		return getOffset(this.remappedIndex, this.obfuscatedIndex, deobfOffset);
+		OffsetTable offsets = this.getOffsetTable();
+		return getOffset(offsets.remappedEnds(), offsets.obfuscatedEnds(), deobfOffset);
 	}
 
 	public int getDeobfuscatedOffset(int obfOffset) {
-		return getOffset(this.obfuscatedIndex, this.remappedIndex, obfOffset);
+		OffsetTable offsets = this.getOffsetTable();
+		return getOffset(offsets.obfuscatedEnds(), offsets.remappedEnds(), obfOffset);
 	}
 
-	private static int getOffset(SourceIndex fromIndex, SourceIndex toIndex, int fromOffset) {
-		int relativeOffset = 0;
-
-		Iterator<Token> fromTokenItr = fromIndex.referenceTokens().iterator();
-		Iterator<Token> toTokenItr = toIndex.referenceTokens().iterator();
-		while (fromTokenItr.hasNext() && toTokenItr.hasNext()) {
-			Token fromToken = fromTokenItr.next();
-			Token toToken = toTokenItr.next();
-			if (fromToken.end > fromOffset) {
-				break;
-			}
-
-			relativeOffset = toToken.end - fromToken.end;
+	private OffsetTable getOffsetTable() {
+		OffsetTable offsets = this.offsetTable;
+		if (offsets == null) {
+			offsets = OffsetTable.create(this.obfuscatedIndex, this.remappedIndex);
+			this.offsetTable = offsets;
 		}
 
-		return fromOffset + relativeOffset;
+		return offsets;
+	}
+
+	private static int getOffset(int[] fromEnds, int[] toEnds, int fromOffset) {
+		// the last token ending at or before the offset
+		int i = Arrays.binarySearch(fromEnds, fromOffset);
+		int last = Math.min(i >= 0 ? i : -i - 2, toEnds.length - 1);
+		return last >= 0 ? fromOffset + toEnds[last] - fromEnds[last] : fromOffset;
 	}
 
 	@Override
 	public String toString() {
 		return this.remappedIndex.getSource();
 	}
+
+	/**
+	 * The ends of the reference tokens of both indices, which are in the same order.
+	 */
+	private record OffsetTable(int[] obfuscatedEnds, int[] remappedEnds) {
+		static OffsetTable create(SourceIndex obfuscatedIndex, SourceIndex remappedIndex) {
+			return new OffsetTable(getEnds(obfuscatedIndex), getEnds(remappedIndex));
+		}
+
+		private static int[] getEnds(SourceIndex index) {
+			int[] ends = new int[16];
+			int count = 0;
+			for (Token token : index.referenceTokens()) {
+				if (count == ends.length) {
+					ends = Arrays.copyOf(ends, count * 2);
+				}
+
+				ends[count++] = token.end;
+			}
+
+			return Arrays.copyOf(ends, count);
+		}
+	}
 }
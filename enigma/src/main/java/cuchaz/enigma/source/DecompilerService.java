@@ -4,8 +4,21 @@ import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.api.service.EnigmaService;
 import cuchaz.enigma.api.service.EnigmaServiceType;
 
+import javax.annotation.Nullable;
+
 public interface DecompilerService extends EnigmaService {
 	EnigmaServiceType<DecompilerService> TYPE = EnigmaServiceType.create("decompiler");
 
 	Decompiler create(ClassProvider classProvider, SourceSettings settings);
+
+	/**
+	 * Identifies the decompiler, its version and its options, so that its sources can be stored in a {@link SourceCache}.
+	 * The key must change whenever the same class could be decompiled differently.
+	 *
+	 * @return the key, or {@code null} if the sources of this decompiler can't be cached
+	 */
+	@Nullable
+	default String getCacheKey() {
+		return null;
+	}
 }
@@ -1,13 +1,46 @@
 package cuchaz.enigma.source;
 
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.classprovider.ClassProvider;
 import cuchaz.enigma.source.bytecode.BytecodeDecompiler;
 import cuchaz.enigma.source.cfr.CfrDecompiler;
 import cuchaz.enigma.source.procyon.ProcyonDecompiler;
 import cuchaz.enigma.source.quiltflower.QuiltflowerDecompiler;
+import cuchaz.enigma.source.quiltflower.QuiltflowerPreferences;
+
+import javax.annotation.Nullable;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
 public class Decompilers {
-	public static final DecompilerService QUILTFLOWER = QuiltflowerDecompiler::new;
+	private static final String UNKNOWN_VERSION = "Unknown Version";
+
+	public static final DecompilerService QUILTFLOWER = cached(QuiltflowerDecompiler::new, () -> getCacheKey("quiltflower", Enigma.QUILTFLOWER_VERSION, new TreeMap<>(QuiltflowerPreferences.getEffectiveOptions())));
+	// procyon sources index definitions and keep their syntax tree to insert javadocs, they can't be cached
 	public static final DecompilerService PROCYON = ProcyonDecompiler::new;
-	public static final DecompilerService CFR = CfrDecompiler::new;
+	public static final DecompilerService CFR = cached(CfrDecompiler::new, () -> getCacheKey("cfr", Enigma.CFR_VERSION, ""));
 	public static final DecompilerService BYTECODE = BytecodeDecompiler::new;
+
+	@Nullable
+	private static String getCacheKey(String name, String version, Object options) {
+		// without a version, an update of the decompiler wouldn't be noticed
+		return version.equals(UNKNOWN_VERSION) ? null : name + " " + version + " " + options;
+	}
+
+	private static DecompilerService cached(DecompilerService service, Supplier<String> cacheKey) {
+		return new CachedDecompilerService(service, cacheKey);
+	}
+
+	private record CachedDecompilerService(DecompilerService service, Supplier<String> cacheKey) implements DecompilerService {
+		@Override
+		public Decompiler create(ClassProvider classProvider, SourceSettings settings) {
+			return this.service.create(classProvider, settings);
+		}
+
+		@Nullable
+		@Override
+		public String getCacheKey() {
+			return this.cacheKey.get();
+		}
+	}
 }
@@ -0,0 +1,287 @@
+package cuchaz.enigma.source;
+
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.config.ConfigPaths;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.AsmUtil;
+import cuchaz.enigma.utils.Utils;
+import org.objectweb.asm.tree.ClassNode;
+import org.tinylog.Logger;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of decompiled sources, so that classes don't have to be decompiled again when a project is reopened.
+ *
+ * <p>Sources are stored with their token index, before references are resolved, in one file per source. A source is
+ * identified by the bytecode of its class and of the classes decompiled with it, the decompiler and its settings, and for
+ * sources with javadocs, the javadocs of the class. Changing any of these just misses the cache, old files are removed by
+ * {@link #prune(long)} once the cache grows too large.
+ */
+public final class SourceCache {
+	private static final int MAGIC = 0x45534331; // "ESC1"
+	private static final int VERSION = 1;
+
+	private final Path directory;
+
+	public SourceCache(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the default location of the cache, in the user cache directory
+	 */
+	public static Path getDefaultPath() {
+		return ConfigPaths.getCachePathRoot().resolve("enigma").resolve("sources");
+	}
+
+	/**
+	 * Computes the key of the source of a class, without javadocs.
+	 *
+	 * @param classProvider the class provider the decompiler reads classes from
+	 * @param decompilerKey the {@link DecompilerService#getCacheKey() cache key} of the decompiler
+	 * @return the key, or {@code null} if the source can't be cached
+	 */
+	@Nullable
+	public static String getKey(ClassProvider classProvider, String className, @Nullable String decompilerKey, SourceSettings settings) {
+		if (decompilerKey == null) {
+			return null;
+		}
+
+		MessageDigest digest = sha256();
+		update(digest, decompilerKey);
+		update(digest, settings.toString());
+		update(digest, className);
+
+		// the decompiled class, its inner classes, and the types they extend which decide what gets overridden
+		Set<String> nest = new TreeSet<>(classProvider.getClasses(className));
+		nest.add(new ClassEntry(className).getOutermostClass().getFullName());
+		Set<String> supertypes = new TreeSet<>();
+
+		for (String name : nest) {
+			ClassNode node = classProvider.get(name);
+			if (node == null) {
+				return null;
+			}
+
+			update(digest, name);
+			digest.update(AsmUtil.nodeToBytes(node));
+
+			if (node.superName != null) {
+				supertypes.add(node.superName);
+			}
+
+			supertypes.addAll(node.interfaces);
+		}
+
+		supertypes.removeAll(nest);
+		for (String name : supertypes) {
+			ClassNode node = classProvider.get(name);
+			update(digest, name);
+			if (node != null) {
+				digest.update(AsmUtil.nodeToBytes(node));
+			}
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Computes the key of the source of a class with the javadocs of the given remapper inserted.
+	 *
+	 * <p>The key is the one without javadocs if the class has none, which is the case of most classes.
+	 */
+	public static String getJavadocKey(String key, String className, EntryRemapper remapper) {
+		EntryTreeNode<EntryMapping> root = remapper.getObfToDeobf().findNode(new ClassEntry(className).getOutermostClass());
+		if (root == null) {
+			return key;
+		}
+
+		List<String> javadocs = new ArrayList<>();
+		List<String> classNames = new ArrayList<>();
+		for (EntryTreeNode<EntryMapping> node : root.getNodesRecursively()) {
+			EntryMapping mapping = node.getValue();
+			if (mapping == null) {
+				continue;
+			}
+
+			// parameter and record names are written in the javadocs
+			String line = node.getEntry() + "\0" + mapping.targetName() + "\0" + mapping.javadoc();
+			if (mapping.javadoc() != null) {
+				javadocs.add(line);
+			} else if (node.getEntry() instanceof ClassEntry) {
+				classNames.add(line);
+			}
+		}
+
+		if (javadocs.isEmpty()) {
+			return key;
+		}
+
+		MessageDigest digest = sha256();
+		update(digest, key);
+		javadocs.addAll(classNames);
+		javadocs.sort(Comparator.naturalOrder());
+		for (String line : javadocs) {
+			update(digest, line);
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Wraps a source so that its index is read from the cache if present, and stored to the cache otherwise.
+	 *
+	 * @param className the name of the decompiled class, used to find its javadocs
+	 * @param source    supplies the real source, only called on a cache miss
+	 */
+	public Source wrap(String key, String className, Supplier<Source> source) {
+		return new CachedSource(this, key, className, source);
+	}
+
+	@Nullable
+	SourceIndex read(String key) {
+		Path path = this.getPath(key);
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return null;
+			}
+
+			SourceIndex index = SourceIndex.read(in);
+			// recently used sources are kept when pruning
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+			return index;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | RuntimeException e) {
+			Logger.warn(e, "Failed to read cached source {}", path);
+			return null;
+		}
+	}
+
+	void write(String key, SourceIndex index) {
+		Path path = this.getPath(key);
+		Path tempPath = null;
+
+		try {
+			Files.createDirectories(path.getParent());
+			// sources of the same class can be written from several threads
+			tempPath = Files.createTempFile(path.getParent(), key, ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tempPath))))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				index.write(out);
+			}
+
+			Utils.moveAtomically(tempPath, path);
+		} catch (IOException e) {
+			Logger.warn(e, "Failed to cache source {}", path);
+
+			if (tempPath != null) {
+				try {
+					Files.deleteIfExists(tempPath);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the least recently used sources until the cache is at most the given size.
+	 */
+	public void prune(long maxSize) {
+		if (!Files.isDirectory(this.directory)) {
+			return;
+		}
+
+		List<CacheFile> files = new ArrayList<>();
+		long size = 0;
+
+		try (Stream<Path> paths = Files.walk(this.directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				BasicFileAttributes attributes;
+				try {
+					attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				} catch (NoSuchFileException e) {
+					// moved into place or pruned concurrently
+					continue;
+				}
+
+				if (attributes.isRegularFile()) {
+					files.add(new CacheFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+					size += attributes.size();
+				}
+			}
+		} catch (IOException e) {
+			Logger.warn(e, "Failed to list source cache {}", this.directory);
+			return;
+		}
+
+		if (size <= maxSize) {
+			return;
+		}
+
+		files.sort(Comparator.comparingLong(CacheFile::modified));
+		for (CacheFile file : files) {
+			if (size <= maxSize) {
+				break;
+			}
+
+			try {
+				Files.deleteIfExists(file.path());
+				size -= file.size();
+			} catch (IOException e) {
+				Logger.warn(e, "Failed to delete cached source {}", file.path());
+			}
+		}
+	}
+
+	private Path getPath(String key) {
+		return this.directory.resolve(key.substring(0, 2)).resolve(key);
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Algorithm guaranteed to be supported
+			throw new RuntimeException(e);
+		}
+	}
+
+	private record CacheFile(Path path, long size, long modified) {
+	}
+}
@@ -0,0 +1,125 @@
+package cuchaz.enigma.source;
+
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.utils.Utils;
+import org.tinylog.Logger;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The input hashes of the classes of a source export, stored in the export directory, so that exporting again only
+ * decompiles the classes whose inputs changed.
+ *
+ * <p>The hash of a class is its {@link SourceCache#getKey source cache key} computed from the remapped classes, and
+ * the javadocs of the class. Since the remapped bytecode contains the mapped names of everything a class references,
+ * renaming a referenced entry changes the hash too.
+ *
+ * <p>The manifest also tells which sources in the directory belong to the export, only those are ever deleted.
+ */
+public final class SourceExportManifest {
+	public static final String FILE_NAME = ".enigma-sources";
+	private static final String HEADER = "enigma-sources 1";
+	// the source of the class was written, but it has to be exported again
+	private static final String NO_HASH = "-";
+
+	private final Map<String, String> hashes = new ConcurrentHashMap<>();
+
+	/**
+	 * Reads the manifest of an export directory. A missing or unreadable manifest reads as an empty one, so that
+	 * every class is exported again.
+	 */
+	public static SourceExportManifest read(Path directory) {
+		SourceExportManifest manifest = new SourceExportManifest();
+
+		try (BufferedReader reader = Files.newBufferedReader(directory.resolve(FILE_NAME))) {
+			if (!HEADER.equals(reader.readLine())) {
+				return manifest;
+			}
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int separator = line.indexOf(' ');
+				if (separator != -1) {
+					manifest.hashes.put(line.substring(separator + 1), line.substring(0, separator));
+				}
+			}
+		} catch (NoSuchFileException e) {
+			return manifest;
+		} catch (IOException e) {
+			Logger.warn(e, "Failed to read source export manifest in {}", directory);
+			return new SourceExportManifest();
+		}
+
+		return manifest;
+	}
+
+	public void write(Path directory) throws IOException {
+		Path path = directory.resolve(FILE_NAME);
+		Path tempPath = Utils.getTempSibling(path);
+
+		try (BufferedWriter writer = Files.newBufferedWriter(tempPath)) {
+			writer.write(HEADER);
+			writer.newLine();
+
+			for (Map.Entry<String, String> entry : new TreeMap<>(this.hashes).entrySet()) {
+				writer.write(entry.getValue() + " " + entry.getKey());
+				writer.newLine();
+			}
+		}
+
+		Utils.moveAtomically(tempPath, path);
+	}
+
+	/**
+	 * Computes the input hash of a class.
+	 *
+	 * @param classProvider the provider of the remapped classes
+	 * @param className     the remapped name of the class
+	 * @param obfName       the name of the class before remapping, which its javadocs are found with
+	 * @return the hash, or {@code null} if the class should always be exported, like when the decompiler has no
+	 * {@link DecompilerService#getCacheKey() cache key}
+	 */
+	@Nullable
+	public static String getHash(ClassProvider classProvider, String className, @Nullable String obfName, DecompilerService decompilerService, SourceSettings settings, EntryRemapper remapper) {
+		String key = SourceCache.getKey(classProvider, className, decompilerService.getCacheKey(), settings);
+		if (key == null || obfName == null) {
+			return key;
+		}
+
+		return SourceCache.getJavadocKey(key, obfName, remapper);
+	}
+
+	@Nullable
+	public String getHash(String className) {
+		String hash = this.hashes.get(className);
+		return NO_HASH.equals(hash) ? null : hash;
+	}
+
+	public void putHash(String className, String hash) {
+		this.hashes.put(className, hash);
+	}
+
+	/**
+	 * Records a class whose source is in the directory without a hash, like one that failed to decompile, so that it
+	 * is exported again next time and its source can still be deleted once the class is gone.
+	 */
+	public void putClass(String className) {
+		this.hashes.putIfAbsent(className, NO_HASH);
+	}
+
+	public Set<String> getClassNames() {
+		return Collections.unmodifiableSet(this.hashes.keySet());
+	}
+}
@@ -1,22 +1,39 @@
 package cuchaz.enigma.source;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.ResolutionStrategy;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
-
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableDefEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 public class SourceIndex {
 	private String source;
-	private List<Integer> lineOffsets;
+	// the offsets where each line starts, only the first lineCount are used
+	private int[] lineOffsets;
+	private int lineCount;
 	private final TreeMap<Token, EntryReference<Entry<?>, Entry<?>>> tokenToReference;
 	private final Multimap<EntryReference<Entry<?>, Entry<?>>, Token> referenceToTokens;
 	private final Map<Entry<?>, Token> declarationToToken;
@@ -34,13 +51,15 @@ public class SourceIndex {
 
 	public void setSource(String source) {
 		this.source = source;
-		this.lineOffsets = new ArrayList<>();
-		this.lineOffsets.add(0);
+		this.lineOffsets = new int[64];
+		this.lineCount = 1;
 
-		for (int i = 0; i < this.source.length(); i++) {
-			if (this.source.charAt(i) == '\n') {
-				this.lineOffsets.add(i + 1);
+		for (int i = this.source.indexOf('\n'); i >= 0; i = this.source.indexOf('\n', i + 1)) {
+			if (this.lineCount == this.lineOffsets.length) {
+				this.lineOffsets = Arrays.copyOf(this.lineOffsets, this.lineCount * 2);
 			}
+
+			this.lineOffsets[this.lineCount++] = i + 1;
 		}
 	}
 
@@ -49,25 +68,21 @@ public class SourceIndex {
 	}
 
 	public int getLineNumber(int position) {
-		int line = 0;
-
-		for (int offset : this.lineOffsets) {
-			if (offset > position) {
-				break;
-			}
-
-			line++;
-		}
-
-		return line;
+		// the number of lines starting at or before the position
+		int i = Arrays.binarySearch(this.lineOffsets, 0, this.lineCount, position);
+		return i >= 0 ? i + 1 : -i - 1;
 	}
 
 	public int getColumnNumber(int position) {
-		return position - this.lineOffsets.get(this.getLineNumber(position) - 1) + 1;
+		return position - this.lineOffsets[this.getLineNumber(position) - 1] + 1;
 	}
 
 	public int getPosition(int line, int column) {
-		return this.lineOffsets.get(line - 1) + column - 1;
+		if (line < 1 || line > this.lineCount) {
+			throw new IndexOutOfBoundsException("Line " + line + " out of bounds for " + this.lineCount + " lines");
+		}
+
+		return this.lineOffsets[line - 1] + column - 1;
 	}
 
 	public Iterable<Entry<?>> declarations() {
@@ -147,26 +162,195 @@ public class SourceIndex {
 	public SourceIndex remapTo(SourceRemapper.Result result) {
 		SourceIndex remapped = new SourceIndex(result.getSource());
 
+		// every token is also a key of tokenToReference, so each one is only moved once
+		Map<Token, Token> remappedTokens = new HashMap<>(this.tokenToReference.size() * 2);
+		for (Map.Entry<Token, EntryReference<Entry<?>, Entry<?>>> entry : this.tokenToReference.entrySet()) {
+			Token remappedToken = result.getRemappedToken(entry.getKey());
+			remappedTokens.put(entry.getKey(), remappedToken);
+			remapped.tokenToReference.put(remappedToken, entry.getValue());
+		}
+
 		for (Map.Entry<Entry<?>, Token> entry : this.declarationToToken.entrySet()) {
-			remapped.declarationToToken.put(entry.getKey(), result.getRemappedToken(entry.getValue()));
+			remapped.declarationToToken.put(entry.getKey(), remappedTokens.getOrDefault(entry.getValue(), entry.getValue()));
 		}
 
-		for (Map.Entry<EntryReference<Entry<?>, Entry<?>>, Collection<Token>> entry : this.referenceToTokens.asMap().entrySet()) {
-			EntryReference<Entry<?>, Entry<?>> reference = entry.getKey();
-			Collection<Token> oldTokens = entry.getValue();
+		for (Map.Entry<EntryReference<Entry<?>, Entry<?>>, Token> entry : this.referenceToTokens.entries()) {
+			remapped.referenceToTokens.put(entry.getKey(), remappedTokens.getOrDefault(entry.getValue(), entry.getValue()));
+		}
 
-			Collection<Token> newTokens = oldTokens
-					.stream()
-					.map(result::getRemappedToken)
-					.toList();
+		return remapped;
+	}
 
-			remapped.referenceToTokens.putAll(reference, newTokens);
+	/**
+	 * Writes this index, before its references are resolved, so that it can be read back with {@link #read(DataInput)}.
+	 *
+	 * @throws IOException if writing fails, or if the index contains entries that can't be written, like definitions
+	 */
+	public void write(DataOutput out) throws IOException {
+		byte[] source = this.source.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(source.length);
+		out.write(source);
+
+		Map<EntryReference<Entry<?>, Entry<?>>, Integer> referenceIds = new HashMap<>();
+		List<EntryReference<Entry<?>, Entry<?>>> references = new ArrayList<>();
+		for (EntryReference<Entry<?>, Entry<?>> reference : Iterables.concat(this.tokenToReference.values(), this.referenceToTokens.keySet())) {
+			referenceIds.computeIfAbsent(reference, r -> {
+				references.add(r);
+				return references.size() - 1;
+			});
 		}
 
+		out.writeInt(references.size());
+		for (EntryReference<Entry<?>, Entry<?>> reference : references) {
+			writeEntry(out, reference.entry);
+			writeEntry(out, reference.context);
+			out.writeBoolean(reference.isDeclaration());
+			out.writeBoolean(reference.isNamed());
+		}
+
+		out.writeInt(this.tokenToReference.size());
 		for (Map.Entry<Token, EntryReference<Entry<?>, Entry<?>>> entry : this.tokenToReference.entrySet()) {
-			remapped.tokenToReference.put(result.getRemappedToken(entry.getKey()), entry.getValue());
+			writeToken(out, entry.getKey());
+			out.writeInt(referenceIds.get(entry.getValue()));
 		}
 
-		return remapped;
+		out.writeInt(this.referenceToTokens.size());
+		for (Map.Entry<EntryReference<Entry<?>, Entry<?>>, Token> entry : this.referenceToTokens.entries()) {
+			out.writeInt(referenceIds.get(entry.getKey()));
+			writeToken(out, entry.getValue());
+		}
+
+		out.writeInt(this.declarationToToken.size());
+		for (Map.Entry<Entry<?>, Token> entry : this.declarationToToken.entrySet()) {
+			writeEntry(out, entry.getKey());
+			writeToken(out, entry.getValue());
+		}
+	}
+
+	public static SourceIndex read(DataInput in) throws IOException {
+		byte[] source = new byte[in.readInt()];
+		in.readFully(source);
+		SourceIndex index = new SourceIndex(new String(source, StandardCharsets.UTF_8));
+
+		List<EntryReference<Entry<?>, Entry<?>>> references = new ArrayList<>();
+		int referenceCount = in.readInt();
+		for (int i = 0; i < referenceCount; i++) {
+			Entry<?> entry = readEntry(in);
+			Entry<?> context = readEntry(in);
+			boolean declaration = in.readBoolean();
+			// only whether the reference had a source name is kept, any name gives the same result
+			String sourceName = in.readBoolean() ? "name" : null;
+
+			references.add(declaration ? EntryReference.declaration(entry, sourceName) : new EntryReference<>(entry, sourceName, context));
+		}
+
+		int tokenCount = in.readInt();
+		for (int i = 0; i < tokenCount; i++) {
+			Token token = readToken(in);
+			index.tokenToReference.put(token, references.get(in.readInt()));
+		}
+
+		int referenceTokenCount = in.readInt();
+		for (int i = 0; i < referenceTokenCount; i++) {
+			EntryReference<Entry<?>, Entry<?>> reference = references.get(in.readInt());
+			index.referenceToTokens.put(reference, readToken(in));
+		}
+
+		int declarationCount = in.readInt();
+		for (int i = 0; i < declarationCount; i++) {
+			Entry<?> entry = readEntry(in);
+			index.declarationToToken.put(entry, readToken(in));
+		}
+
+		return index;
+	}
+
+	private static void writeToken(DataOutput out, Token token) throws IOException {
+		out.writeInt(token.start);
+		out.writeInt(token.end);
+		out.writeUTF(token.text);
+	}
+
+	private static Token readToken(DataInput in) throws IOException {
+		int start = in.readInt();
+		int end = in.readInt();
+		return new Token(start, end, in.readUTF());
+	}
+
+	private static void writeEntry(DataOutput out, @Nullable Entry<?> entry) throws IOException {
+		if (entry == null) {
+			out.writeByte(0);
+			return;
+		}
+
+		// exact classes only, definitions carry more information than is written here
+		Class<?> type = entry.getClass();
+		if (type == ClassEntry.class) {
+			out.writeByte(1);
+		} else if (type == FieldEntry.class) {
+			out.writeByte(2);
+		} else if (type == MethodEntry.class) {
+			out.writeByte(3);
+		} else if (type == LocalVariableEntry.class) {
+			out.writeByte(4);
+		} else if (type == LocalVariableDefEntry.class) {
+			out.writeByte(5);
+		} else {
+			throw new IOException("Can't write entry " + entry + " of type " + type.getName());
+		}
+
+		writeEntry(out, entry.getParent());
+		out.writeUTF(entry.getName());
+		writeNullableString(out, entry.getJavadocs());
+
+		if (entry instanceof FieldEntry field) {
+			out.writeUTF(field.getDesc().toString());
+		} else if (entry instanceof MethodEntry method) {
+			out.writeUTF(method.getDesc().toString());
+		} else if (entry instanceof LocalVariableEntry variable) {
+			out.writeInt(variable.getIndex());
+			out.writeBoolean(variable.isArgument());
+
+			if (variable instanceof LocalVariableDefEntry definition) {
+				out.writeUTF(definition.getDesc().toString());
+			}
+		}
+	}
+
+	@Nullable
+	private static Entry<?> readEntry(DataInput in) throws IOException {
+		byte type = in.readByte();
+		if (type == 0) {
+			return null;
+		}
+
+		Entry<?> parent = readEntry(in);
+		String name = in.readUTF();
+		String javadocs = readNullableString(in);
+
+		return switch (type) {
+			case 1 -> new ClassEntry((ClassEntry) parent, name, javadocs);
+			case 2 -> new FieldEntry((ClassEntry) parent, name, new TypeDescriptor(in.readUTF()), javadocs);
+			case 3 -> new MethodEntry((ClassEntry) parent, name, new MethodDescriptor(in.readUTF()), javadocs);
+			case 4 -> new LocalVariableEntry((MethodEntry) parent, in.readInt(), name, in.readBoolean(), javadocs);
+			case 5 -> {
+				int index = in.readInt();
+				boolean parameter = in.readBoolean();
+				yield new LocalVariableDefEntry((MethodEntry) parent, index, name, parameter, new TypeDescriptor(in.readUTF()), javadocs);
+			}
+			default -> throw new IOException("Unknown entry type " + type);
+		};
+	}
+
+	private static void writeNullableString(DataOutput out, @Nullable String string) throws IOException {
+		out.writeBoolean(string != null);
+		if (string != null) {
+			out.writeUTF(string);
+		}
+	}
+
+	@Nullable
+	private static String readNullableString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
 	}
 }
@@ -1,59 +1,116 @@
 package cuchaz.enigma.source;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
+/**
+ * Renames tokens of a source in a single pass, copying the text between them.
+ *
+ * <p>The tokens don't need to be all the tokens of the source: remapping only
+ * some of them patches a source that was already remapped, and the other
+ * tokens are moved with {@link Result#getRemappedToken(Token)}.
+ */
 public class SourceRemapper {
 	private final String source;
 	private final Iterable<Token> tokens;
 
+	/**
+	 * @param source the source to remap
+	 * @param tokens the tokens to rename, ordered by position and not overlapping
+	 */
 	public SourceRemapper(String source, Iterable<Token> tokens) {
 		this.source = source;
 		this.tokens = tokens;
 	}
 
 	public Result remap(Remapper remapper) {
-		StringBuilder remappedSource = new StringBuilder(this.source);
-		Map<Token, Token> remappedTokens = new HashMap<>();
+		StringBuilder remappedSource = new StringBuilder(this.source.length());
+		int[] starts = new int[16];
+		int[] offsets = new int[16];
+		Token[] remappedTokens = new Token[16];
+		int count = 0;
+		boolean changed = false;
 
+		int copied = 0;
 		int accumulatedOffset = 0;
 		for (Token token : this.tokens) {
 			Token movedToken = token.move(accumulatedOffset);
 
 			String remappedName = remapper.remap(token, movedToken);
 
+			remappedSource.append(this.source, copied, token.start);
 			if (remappedName != null) {
 				accumulatedOffset += movedToken.getRenameOffset(remappedName);
-				movedToken.rename(remappedSource, remappedName);
+				movedToken.text = remappedName;
+				movedToken.end = movedToken.start + remappedName.length();
+				remappedSource.append(remappedName);
+			} else {
+				remappedSource.append(this.source, token.start, token.end);
 			}
 
-			if (!token.equals(movedToken)) {
-				remappedTokens.put(token, movedToken);
+			copied = token.end;
+
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				offsets = Arrays.copyOf(offsets, count * 2);
+				remappedTokens = Arrays.copyOf(remappedTokens, count * 2);
 			}
+
+			starts[count] = token.start;
+			offsets[count] = accumulatedOffset;
+			remappedTokens[count] = movedToken;
+			count++;
+			changed |= !token.equals(movedToken);
 		}
 
-		return new Result(remappedSource.toString(), remappedTokens);
+		remappedSource.append(this.source, copied, this.source.length());
+		return new Result(remappedSource.toString(), starts, offsets, remappedTokens, count, changed);
 	}
 
 	public static class Result {
 		private final String remappedSource;
-		private final Map<Token, Token> remappedTokens;
+		// the starts of the remapped tokens before remapping, in order, with the offset of
+		// the text following each of them and the tokens after remapping
+		private final int[] starts;
+		private final int[] offsets;
+		private final Token[] remappedTokens;
+		private final int count;
+		private final boolean changed;
 
-		Result(String remappedSource, Map<Token, Token> remappedTokens) {
+		Result(String remappedSource, int[] starts, int[] offsets, Token[] remappedTokens, int count, boolean changed) {
 			this.remappedSource = remappedSource;
+			this.starts = starts;
+			this.offsets = offsets;
 			this.remappedTokens = remappedTokens;
+			this.count = count;
+			this.changed = changed;
 		}
 
 		public String getSource() {
 			return this.remappedSource;
 		}
 
+		/**
+		 * Gets the position of a token of the source after remapping. Tokens
+		 * that weren't remapped keep their text and are moved by the renames
+		 * before them.
+		 */
 		public Token getRemappedToken(Token token) {
-			return this.remappedTokens.getOrDefault(token, token);
+			int i = Arrays.binarySearch(this.starts, 0, this.count, token.start);
+			if (i >= 0) {
+				return this.remappedTokens[i];
+			}
+
+			int previous = -i - 2;
+			int offset = previous >= 0 ? this.offsets[previous] : 0;
+			return offset != 0 ? token.move(offset) : token;
+		}
+
+		boolean isRemapped(Token token) {
+			return Arrays.binarySearch(this.starts, 0, this.count, token.start) >= 0;
 		}
 
 		public boolean isEmpty() {
-			return this.remappedTokens.isEmpty();
+			return !this.changed;
 		}
 	}
 
@@ -16,17 +16,43 @@ public final class TokenStore {
 	}
 
 	public static TokenStore create(SourceIndex obfuscatedIndex) {
+		return create(obfuscatedIndex.getSource());
+	}
+
+	private static TokenStore create(String obfSource) {
 		EnumMap<RenamableTokenType, NavigableSet<Token>> map = new EnumMap<>(RenamableTokenType.class);
 		for (RenamableTokenType value : RenamableTokenType.values()) {
 			map.put(value, new TreeSet<>(Comparator.comparing(t -> t.start)));
 		}
-		return new TokenStore(new TreeSet<>(Comparator.comparing(t -> t.start)), Collections.unmodifiableMap(map), obfuscatedIndex.getSource());
+		return new TokenStore(new TreeSet<>(Comparator.comparing(t -> t.start)), Collections.unmodifiableMap(map), obfSource);
 	}
 
 	public static TokenStore empty() {
 		return TokenStore.EMPTY;
 	}
 
+	/**
+	 * Moves the tokens of this store into a source remapped again, where
+	 * the tokens that were remapped are replaced by those of another store.
+	 *
+	 * @param result   the result of remapping the source this store is for
+	 * @param remapped the tokens that were remapped again
+	 * @return a store for the source after remapping
+	 */
+	public TokenStore remap(SourceRemapper.Result result, TokenStore remapped) {
+		TokenStore store = create(this.obfSource);
+		for (Map.Entry<RenamableTokenType, NavigableSet<Token>> entry : this.byType.entrySet()) {
+			for (Token token : entry.getValue()) {
+				if (!result.isRemapped(token)) {
+					store.add(entry.getKey(), result.getRemappedToken(token));
+				}
+			}
+		}
+
+		remapped.byType.forEach((type, tokens) -> tokens.forEach(token -> store.add(type, token)));
+		return store;
+	}
+
 	public void add(RenamableTokenType type, Token token) {
 		this.tokens.add(token);
 		this.byType.get(type).add(token);
@@ -9,10 +9,20 @@ import cuchaz.enigma.translation.mapping.EntryResolver;
 public class MappingTranslator implements Translator {
 	private final EntryMap<EntryMapping> mappings;
 	private final EntryResolver resolver;
+	@Nullable
+	private final TranslationCache cache;
 
 	public MappingTranslator(EntryMap<EntryMapping> mappings, EntryResolver resolver) {
+		this(mappings, resolver, null);
+	}
+
+	/**
+	 * @param cache a cache for descriptor and signature translations, which must be kept up to date with the mappings
+	 */
+	public MappingTranslator(EntryMap<EntryMapping> mappings, EntryResolver resolver, @Nullable TranslationCache cache) {
 		this.mappings = mappings;
 		this.resolver = resolver;
+		this.cache = cache;
 	}
 
 	@Nullable
@@ -22,6 +32,19 @@ public class MappingTranslator implements Translator {
 		if (translatable == null) {
 			return null;
 		}
+
+		if (this.cache != null && TranslationCache.isCacheable(translatable)) {
+			TranslateResult<T> cached = this.cache.get(translatable);
+			if (cached != null) {
+				return cached;
+			}
+
+			long generation = this.cache.getGeneration();
+			TranslateResult<T> result = (TranslateResult<T>) translatable.extendedTranslate(this, this.resolver, this.mappings);
+			this.cache.put(translatable, result, generation);
+			return result;
+		}
+
 		return (TranslateResult<T>) translatable.extendedTranslate(this, this.resolver, this.mappings);
 	}
 }
@@ -0,0 +1,120 @@
+package cuchaz.enigma.translation;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.Signature;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+/**
+ * Bounded cache of descriptor and signature translations for a {@link MappingTranslator}.
+ *
+ * <p>Those only depend on the class mappings, so when registered on the {@link DeltaTrackingTree} the translator reads from,
+ * a changed class only evicts the cached values that refer to it (or to a class nested in the same top-level class).
+ * Changes to fields, methods and local variables evict nothing.
+ */
+public class TranslationCache implements DeltaTrackingTree.ChangeListener<EntryMapping> {
+	private final Cache<Translatable, TranslateResult<?>> cache;
+	private final AtomicLong generation = new AtomicLong();
+
+	public TranslationCache(long maximumSize) {
+		this(CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.build());
+	}
+
+	TranslationCache(Cache<Translatable, TranslateResult<?>> cache) {
+		this.cache = cache;
+	}
+
+	public static boolean isCacheable(Translatable translatable) {
+		return translatable instanceof TypeDescriptor || translatable instanceof MethodDescriptor || translatable instanceof Signature;
+	}
+
+	@Nullable
+	@SuppressWarnings("unchecked")
+	<T extends Translatable> TranslateResult<T> get(T translatable) {
+		return (TranslateResult<T>) this.cache.getIfPresent(translatable);
+	}
+
+	long getGeneration() {
+		return this.generation.get();
+	}
+
+	/**
+	 * Caches a translation, unless the mappings changed since {@code generation} was read, in which case the value could be stale.
+	 */
+	<T extends Translatable> void put(T translatable, TranslateResult<T> result, long generation) {
+		if (this.generation.get() != generation) {
+			return;
+		}
+
+		this.cache.put(translatable, result);
+
+		// a change between the check and the put could have evicted before the value was there, changes bump the generation
+		// before evicting, so either this sees the new generation or the eviction sees the value
+		if (this.generation.get() != generation) {
+			this.cache.asMap().remove(translatable, result);
+		}
+	}
+
+	public long size() {
+		return this.cache.size();
+	}
+
+	public void invalidateAll() {
+		this.generation.incrementAndGet();
+		this.cache.invalidateAll();
+	}
+
+	@Override
+	public void onChange(Entry<?> entry, @Nullable EntryMapping oldValue, @Nullable EntryMapping newValue) {
+		if (!(entry instanceof ClassEntry classEntry) || Objects.equals(targetName(oldValue), targetName(newValue))) {
+			return;
+		}
+
+		String topLevelName = classEntry.getOutermostClass().getFullName();
+
+		this.generation.incrementAndGet();
+		this.cache.asMap().keySet().removeIf(translatable -> references(translatable.toString(), topLevelName));
+	}
+
+	@Nullable
+	private static String targetName(@Nullable EntryMapping mapping) {
+		return mapping != null ? mapping.targetName() : null;
+	}
+
+	/**
+	 * @return whether the descriptor or signature refers to the class or to one of its inner classes
+	 */
+	private static boolean references(@Nullable String desc, String className) {
+		if (desc == null) {
+			return false;
+		}
+
+		int index = desc.indexOf(className);
+		while (index >= 0) {
+			int end = index + className.length();
+			if (index > 0 && desc.charAt(index - 1) == 'L' && end < desc.length()) {
+				char next = desc.charAt(end);
+				if (next == ';' || next == '$' || next == '<' || next == '.') {
+					return true;
+				}
+			}
+
+			index = desc.indexOf(className, end);
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,222 @@
+package cuchaz.enigma.translation.mapping;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+/**
+ * Reverse index of the mapped names in a mapping tree, answering "which obfuscated entries currently have this deobfuscated name"
+ * without translating every candidate entry.
+ *
+ * <p>Entries are indexed by their obfuscated parent, their deobfuscated name and their kind. Mapped entries are also indexed by
+ * their obfuscated name and kind, regardless of their parent. Every entry with a mapping, including the ones that only have a javadoc,
+ * is indexed by its obfuscated parent and obfuscated name as well, since those names are taken too. The index listens to a {@link DeltaTrackingTree} and is kept up to date
+ * with every change made to it.
+ *
+ * <p>When the tree is backed by a {@link LazyEntryTree}, classes are indexed as they are loaded, and lookups load the classes they
+ * depend on first.
+ */
+public class DeobfNameIndex implements DeltaTrackingTree.ChangeListener<EntryMapping> {
+	private final Map<Key, Set<Entry<?>>> byDeobfName = new HashMap<>();
+	private final Map<Key, Set<Entry<?>>> byObfName = new HashMap<>();
+	private final Map<Key, Set<Entry<?>>> byObfNameInParent = new HashMap<>();
+
+	@Nullable
+	private final LazyEntryTree<EntryMapping> lazyMappings;
+
+	public DeobfNameIndex(EntryTree<EntryMapping> mappings) {
+		this.lazyMappings = null;
+		this.addAll(mappings);
+	}
+
+	private DeobfNameIndex(LazyEntryTree<EntryMapping> mappings) {
+		this.lazyMappings = mappings;
+
+		synchronized (mappings) {
+			this.addAll(mappings.getLoaded());
+			mappings.addLoadListener((root, classTree) -> this.addAll(classTree));
+		}
+	}
+
+	public static DeobfNameIndex create(DeltaTrackingTree<EntryMapping> mappings) {
+		DeobfNameIndex index = mappings.getDelegate() instanceof LazyEntryTree<EntryMapping> lazyMappings ? new DeobfNameIndex(lazyMappings) : new DeobfNameIndex(mappings);
+		mappings.addListener(index);
+		return index;
+	}
+
+	private synchronized void addAll(EntryTree<EntryMapping> mappings) {
+		for (EntryTreeNode<EntryMapping> node : mappings) {
+			this.add(node.getEntry(), node.getValue());
+		}
+	}
+
+	/**
+	 * Loads the classes that entries with the given parent can come from, this must not be called while holding the lock of this index.
+	 */
+	private void load(@Nullable Entry<?> parent) {
+		if (this.lazyMappings != null) {
+			if (parent == null) {
+				this.lazyMappings.loadAll();
+			} else {
+				this.lazyMappings.load(parent);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void onChange(Entry<?> entry, @Nullable EntryMapping oldValue, @Nullable EntryMapping newValue) {
+		this.remove(entry, oldValue);
+		this.add(entry, newValue);
+	}
+
+	private void add(Entry<?> entry, @Nullable EntryMapping mapping) {
+		Kind kind = Kind.of(entry);
+		if (kind == null || mapping == null) {
+			return;
+		}
+
+		this.byObfNameInParent.computeIfAbsent(new Key(entry.getParent(), entry.getName(), kind), k -> new HashSet<>(1)).add(entry);
+
+		if (mapping.targetName() == null) {
+			return;
+		}
+
+		this.byDeobfName.computeIfAbsent(new Key(entry.getParent(), mapping.targetName(), kind), k -> new HashSet<>(1)).add(entry);
+		this.byObfName.computeIfAbsent(new Key(null, entry.getName(), kind), k -> new HashSet<>(1)).add(entry);
+	}
+
+	private void remove(Entry<?> entry, @Nullable EntryMapping mapping) {
+		Kind kind = Kind.of(entry);
+		if (kind == null || mapping == null) {
+			return;
+		}
+
+		removeFrom(this.byObfNameInParent, new Key(entry.getParent(), entry.getName(), kind), entry);
+
+		if (mapping.targetName() == null) {
+			return;
+		}
+
+		removeFrom(this.byDeobfName, new Key(entry.getParent(), mapping.targetName(), kind), entry);
+		removeFrom(this.byObfName, new Key(null, entry.getName(), kind), entry);
+	}
+
+	private static void removeFrom(Map<Key, Set<Entry<?>>> map, Key key, Entry<?> entry) {
+		Set<Entry<?>> entries = map.get(key);
+		if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+			map.remove(key);
+		}
+	}
+
+	/**
+	 * @param obfParent the obfuscated parent of the entries, {@code null} for top-level classes
+	 * @param deobfName the deobfuscated name, which for top-level classes is the full name including the package
+	 * @return the obfuscated entries of the given kind that are mapped to the given name
+	 */
+	public Collection<Entry<?>> getObfEntries(@Nullable Entry<?> obfParent, String deobfName, Kind kind) {
+		this.load(obfParent);
+		return this.lookUp(obfParent, deobfName, kind);
+	}
+
+	private synchronized Collection<Entry<?>> lookUp(@Nullable Entry<?> obfParent, String deobfName, Kind kind) {
+		Set<Entry<?>> entries = this.byDeobfName.get(new Key(obfParent, deobfName, kind));
+		return entries != null ? Collections.unmodifiableSet(entries) : Collections.emptySet();
+	}
+
+	/**
+	 * @param obfParent the obfuscated parent of the entries, {@code null} for top-level classes
+	 * @return the entries of the given kind with a mapping and the given obfuscated name, whether they're named or not
+	 */
+	public Collection<Entry<?>> getEntriesByObfName(@Nullable Entry<?> obfParent, String obfName, Kind kind) {
+		this.load(obfParent);
+
+		synchronized (this) {
+			Set<Entry<?>> entries = this.byObfNameInParent.get(new Key(obfParent, obfName, kind));
+			return entries != null ? Collections.unmodifiableSet(entries) : Collections.emptySet();
+		}
+	}
+
+	/**
+	 * @return the mapped entries of the given kind with the given obfuscated name, in any parent
+	 */
+	public Collection<Entry<?>> getMappedEntriesByObfName(String obfName, Kind kind) {
+		this.load(null);
+
+		synchronized (this) {
+			Set<Entry<?>> entries = this.byObfName.get(new Key(null, obfName, kind));
+			return entries != null ? Collections.unmodifiableSet(entries) : Collections.emptySet();
+		}
+	}
+
+	public boolean hasDeobfName(@Nullable Entry<?> obfParent, String deobfName, Kind kind) {
+		return !this.getObfEntries(obfParent, deobfName, kind).isEmpty();
+	}
+
+	/**
+	 * Finds the obfuscated class that is currently mapped to the given deobfuscated class.
+	 *
+	 * @return the obfuscated class, or {@code null} if no class is mapped to that name
+	 */
+	@Nullable
+	public ClassEntry getObfClass(ClassEntry deobfClass) {
+		ClassEntry obfOuterClass = null;
+		String name = deobfClass.getFullName();
+
+		ClassEntry deobfOuterClass = deobfClass.getOuterClass();
+		if (deobfOuterClass != null) {
+			// unmapped outer classes keep their obfuscated name
+			obfOuterClass = this.getObfClass(deobfOuterClass);
+			if (obfOuterClass == null) {
+				obfOuterClass = deobfOuterClass;
+			}
+
+			name = deobfClass.getName();
+		}
+
+		for (Entry<?> entry : this.getObfEntries(obfOuterClass, name, Kind.CLASS)) {
+			return (ClassEntry) entry;
+		}
+
+		return null;
+	}
+
+	public enum Kind {
+		CLASS,
+		FIELD,
+		METHOD,
+		LOCAL_VARIABLE;
+
+		@Nullable
+		public static Kind of(Entry<?> entry) {
+			if (entry instanceof ClassEntry) {
+				return CLASS;
+			} else if (entry instanceof FieldEntry) {
+				return FIELD;
+			} else if (entry instanceof MethodEntry) {
+				return METHOD;
+			} else if (entry instanceof LocalVariableEntry) {
+				return LOCAL_VARIABLE;
+			}
+
+			return null;
+		}
+	}
+
+	private record Key(@Nullable Entry<?> parent, String name, Kind kind) {
+	}
+}
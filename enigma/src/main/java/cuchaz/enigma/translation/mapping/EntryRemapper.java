@@ -11,6 +11,7 @@ import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.MappingTranslator;
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.TranslateResult;
+import cuchaz.enigma.translation.TranslationCache;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
@@ -24,6 +25,8 @@ import cuchaz.enigma.utils.validation.Message;
 import cuchaz.enigma.utils.validation.ValidationContext;
 
 public class EntryRemapper {
+	private static final int TRANSLATION_CACHE_SIZE = 1 << 15;
+
 	private final DeltaTrackingTree<EntryMapping> obfToDeobf;
 
 	private final EntryResolver obfResolver;
@@ -31,16 +34,20 @@ public class EntryRemapper {
 	private final JarIndex jarIndex;
 
 	private final MappingValidator validator;
+	private final DeobfNameIndex deobfNameIndex;
 
 	private EntryRemapper(JarIndex jarIndex, EntryTree<EntryMapping> obfToDeobf) {
 		this.obfToDeobf = new DeltaTrackingTree<>(obfToDeobf);
+		this.deobfNameIndex = DeobfNameIndex.create(this.obfToDeobf);
 
 		this.obfResolver = jarIndex.getEntryResolver();
 
-		this.deobfuscator = new MappingTranslator(obfToDeobf, this.obfResolver);
+		TranslationCache translationCache = new TranslationCache(TRANSLATION_CACHE_SIZE);
+		this.obfToDeobf.addListener(translationCache);
+		this.deobfuscator = new MappingTranslator(obfToDeobf, this.obfResolver, translationCache);
 		this.jarIndex = jarIndex;
 
-		this.validator = new MappingValidator(obfToDeobf, this.deobfuscator, jarIndex);
+		this.validator = new MappingValidator(this.deobfNameIndex, this.deobfuscator, jarIndex);
 	}
 
 	public static EntryRemapper mapped(JarIndex index, EntryTree<EntryMapping> obfToDeobf) {
@@ -152,6 +159,10 @@ public class EntryRemapper {
 		return this.obfToDeobf.takeDelta();
 	}
 
+	public DeltaTrackingTree.Snapshot<EntryMapping> takeMappingSnapshot() {
+		return this.obfToDeobf.takeSnapshot();
+	}
+
 	public boolean isDirty() {
 		return this.obfToDeobf.isDirty();
 	}
@@ -160,6 +171,10 @@ public class EntryRemapper {
 		return this.obfResolver;
 	}
 
+	public DeobfNameIndex getDeobfNameIndex() {
+		return this.deobfNameIndex;
+	}
+
 	public MappingValidator getValidator() {
 		return this.validator;
 	}
@@ -1,5 +1,6 @@
 package cuchaz.enigma.translation.mapping;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 import cuchaz.enigma.translation.Translatable;
@@ -33,6 +34,36 @@ public class MappingDelta<T> implements Translatable {
 		return new MappingDelta<>(new HashEntryTree<>(), changes);
 	}
 
+	/**
+	 * Combines this delta with one taken after it, as if both had been taken at once.
+	 * The result is based on the base mappings of this delta and contains the changes of both.
+	 *
+	 * <p>With lazily loaded mappings, the classes loaded after this delta was taken are only in the base of the next one. They
+	 * can't have changed before they were loaded, so their base is taken from there.
+	 */
+	public MappingDelta<T> andThen(MappingDelta<T> next) {
+		EntryTree<Object> changes = new HashEntryTree<>(this.changes);
+		next.changes.getAllEntries().forEach(entry -> changes.insert(entry, PLACEHOLDER));
+
+		List<EntryTreeNode<T>> loadedRoots = next.baseMappings.getRootNodes()
+				.filter(root -> this.baseMappings.findNode(root.getEntry()) == null && this.changes.findNode(root.getEntry()) == null)
+				.toList();
+		if (loadedRoots.isEmpty()) {
+			return new MappingDelta<>(this.baseMappings, changes);
+		}
+
+		EntryTree<T> baseMappings = new HashEntryTree<>(this.baseMappings);
+		for (EntryTreeNode<T> root : loadedRoots) {
+			for (EntryTreeNode<T> node : root.getNodesRecursively()) {
+				if (node.hasValue()) {
+					baseMappings.insert(node.getEntry(), node.getValue());
+				}
+			}
+		}
+
+		return new MappingDelta<>(baseMappings, changes);
+	}
+
 	public EntryTree<T> getBaseMappings() {
 		return this.baseMappings;
 	}
@@ -0,0 +1,49 @@
+package cuchaz.enigma.translation.mapping;
+
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * A difference between the mapping of an entry on two sides, see {@link MappingOperations#diff(EntryTree, EntryTree)}.
+ * A side without a mapping, or with an empty one, is {@code null}.
+ */
+public record MappingDiff(Entry<?> entry, @Nullable EntryMapping left, @Nullable EntryMapping right) {
+	public Kind kind() {
+		if (this.left == null) {
+			return Kind.ADDED;
+		} else if (this.right == null) {
+			return Kind.REMOVED;
+		} else if (!Objects.equals(this.left.targetName(), this.right.targetName())) {
+			return Kind.RENAMED;
+		} else {
+			return Kind.CHANGED;
+		}
+	}
+
+	/**
+	 * @return a delta from the left side to the right side, which can be used to write only the changed classes of the left side
+	 */
+	public static MappingDelta<EntryMapping> toDelta(EntryTree<EntryMapping> left, Collection<MappingDiff> diffs) {
+		EntryTree<Object> changes = new HashEntryTree<>();
+		for (MappingDiff diff : diffs) {
+			changes.insert(diff.entry(), MappingDelta.PLACEHOLDER);
+		}
+
+		return new MappingDelta<>(left, changes);
+	}
+
+	public enum Kind {
+		ADDED,
+		REMOVED,
+		RENAMED,
+		/**
+		 * Same name, but a different javadoc or access modifier.
+		 */
+		CHANGED
+	}
+}
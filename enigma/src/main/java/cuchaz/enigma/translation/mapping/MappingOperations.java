@@ -8,64 +8,240 @@ import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
+/**
+ * Every top-level class owns a disjoint subtree of the mappings, so the {@code ByClass} operations
+ * work on all top-level classes in parallel and produce one result tree per top-level class.
+ * Those can be streamed into a {@link cuchaz.enigma.translation.mapping.serde.MappingsWriter}
+ * without building the complete result tree.
+ */
 public class MappingOperations {
+	private static final Comparator<EntryTreeNode<EntryMapping>> SIBLING_ORDER = Comparator.comparing(EntryTreeNode::getEntry, MappingOperations::compareSiblings);
+
 	public static EntryTree<EntryMapping> invert(EntryTree<EntryMapping> mappings) {
+		return merge(invertByClass(mappings));
+	}
+
+	public static Stream<EntryTree<EntryMapping>> invertByClass(EntryTree<EntryMapping> mappings) {
 		Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
-		EntryTree<EntryMapping> result = new HashEntryTree<>();
 
-		for (EntryTreeNode<EntryMapping> node : mappings) {
-			Entry<?> leftEntry = node.getEntry();
-			EntryMapping leftMapping = node.getValue();
+		return mappings.getRootNodes().toList().parallelStream().map(rootNode -> {
+			EntryTree<EntryMapping> result = new HashEntryTree<>();
 
-			if (!(leftEntry instanceof ClassEntry || leftEntry instanceof MethodEntry || leftEntry instanceof FieldEntry)) {
-				result.insert(translator.translate(leftEntry), leftMapping);
-				continue;
-			}
+			for (EntryTreeNode<EntryMapping> node : rootNode.getNodesRecursively()) {
+				Entry<?> leftEntry = node.getEntry();
+				EntryMapping leftMapping = node.getValue();
 
-			Entry<?> rightEntry = translator.translate(leftEntry);
+				if (!(leftEntry instanceof ClassEntry || leftEntry instanceof MethodEntry || leftEntry instanceof FieldEntry)) {
+					result.insert(translator.translate(leftEntry), leftMapping);
+					continue;
+				}
 
-			result.insert(rightEntry, leftMapping == null ? null : leftMapping.withName(leftEntry.getName()));
-		}
+				Entry<?> rightEntry = translator.translate(leftEntry);
 
-		return result;
+				result.insert(rightEntry, leftMapping == null ? null : leftMapping.withName(leftEntry.getName()));
+			}
+
+			return result;
+		});
 	}
 
 	public static EntryTree<EntryMapping> compose(EntryTree<EntryMapping> left, EntryTree<EntryMapping> right, boolean keepLeftOnly, boolean keepRightOnly) {
+		return merge(composeByClass(left, right, keepLeftOnly, keepRightOnly));
+	}
+
+	public static Stream<EntryTree<EntryMapping>> composeByClass(EntryTree<EntryMapping> left, EntryTree<EntryMapping> right, boolean keepLeftOnly, boolean keepRightOnly) {
 		Translator leftTranslator = new MappingTranslator(left, VoidEntryResolver.INSTANCE);
-		EntryTree<EntryMapping> result = new HashEntryTree<>();
-		Set<Entry<?>> addedMappings = new HashSet<>();
 
-		for (EntryTreeNode<EntryMapping> node : left) {
-			Entry<?> leftEntry = node.getEntry();
-			EntryMapping leftMapping = node.getValue();
+		// group the right side by the left top-level class it belongs to, so that
+		// both sides of a class end up in the same partition
+		Map<Entry<?>, ComposePartition> partitions = new LinkedHashMap<>();
+		left.getRootNodes().forEach(node -> partitions.computeIfAbsent(node.getEntry(), e -> new ComposePartition()).leftNode = node);
+
+		Translator leftInverseTranslator;
+		if (keepRightOnly) {
+			leftInverseTranslator = new MappingTranslator(invert(left), VoidEntryResolver.INSTANCE);
+			right.getRootNodes().forEach(node -> partitions.computeIfAbsent(leftInverseTranslator.extendedTranslate(node.getEntry()).getValue(), e -> new ComposePartition()).rightNodes.add(node));
+		} else {
+			leftInverseTranslator = null;
+		}
+
+		return partitions.values().parallelStream().map(partition -> {
+			EntryTree<EntryMapping> result = new HashEntryTree<>();
+			Set<Entry<?>> addedMappings = new HashSet<>();
+
+			if (partition.leftNode != null) {
+				for (EntryTreeNode<EntryMapping> node : partition.leftNode.getNodesRecursively()) {
+					Entry<?> leftEntry = node.getEntry();
+					EntryMapping leftMapping = node.getValue();
+
+					Entry<?> rightEntry = leftTranslator.translate(leftEntry);
+
+					EntryMapping rightMapping = right.get(rightEntry);
+					if (rightMapping != null) {
+						result.insert(leftEntry, rightMapping);
+						addedMappings.add(rightEntry);
+					} else if (keepLeftOnly) {
+						result.insert(leftEntry, leftMapping);
+					}
+				}
+			}
+
+			for (EntryTreeNode<EntryMapping> rightRootNode : partition.rightNodes) {
+				for (EntryTreeNode<EntryMapping> node : rightRootNode.getNodesRecursively()) {
+					Entry<?> rightEntry = node.getEntry();
+					EntryMapping rightMapping = node.getValue();
+
+					if (!addedMappings.contains(rightEntry)) {
+						result.insert(leftInverseTranslator.translate(rightEntry), rightMapping);
+					}
+				}
+			}
+
+			return result;
+		});
+	}
+
+	public static List<MappingDiff> diff(EntryTree<EntryMapping> left, EntryTree<EntryMapping> right) {
+		return diffByClass(left, right).flatMap(List::stream).toList();
+	}
+
+	/**
+	 * Walks both sides together as a sorted merge of the children of every node, so that matching entries are found without lookups.
+	 * The differences of each top-level class are in depth-first order, with siblings sorted by kind and then by name.
+	 */
+	public static Stream<List<MappingDiff>> diffByClass(EntryTree<EntryMapping> left, EntryTree<EntryMapping> right) {
+		List<DiffPartition> partitions = new ArrayList<>();
+		mergeSorted(left.getRootNodes().toList(), right.getRootNodes().toList(), (leftNode, rightNode) -> partitions.add(new DiffPartition(leftNode, rightNode)));
+
+		return partitions.parallelStream().map(partition -> {
+			List<MappingDiff> diffs = new ArrayList<>();
+			diffNodes(partition.left(), partition.right(), diffs);
+			return diffs;
+		});
+	}
+
+	private static void diffNodes(@Nullable EntryTreeNode<EntryMapping> left, @Nullable EntryTreeNode<EntryMapping> right, List<MappingDiff> diffs) {
+		EntryMapping leftMapping = left != null ? getDiffedMapping(left) : null;
+		EntryMapping rightMapping = right != null ? getDiffedMapping(right) : null;
+
+		if (!Objects.equals(leftMapping, rightMapping)) {
+			diffs.add(new MappingDiff(left != null ? left.getEntry() : right.getEntry(), leftMapping, rightMapping));
+		}
+
+		mergeSorted(getChildNodes(left), getChildNodes(right), (leftChild, rightChild) -> diffNodes(leftChild, rightChild, diffs));
+	}
+
+	@Nullable
+	private static EntryMapping getDiffedMapping(EntryTreeNode<EntryMapping> node) {
+		EntryMapping mapping = node.getValue();
+		return EntryMapping.DEFAULT.equals(mapping) ? null : mapping;
+	}
 
-			Entry<?> rightEntry = leftTranslator.translate(leftEntry);
+	private static Collection<? extends EntryTreeNode<EntryMapping>> getChildNodes(@Nullable EntryTreeNode<EntryMapping> node) {
+		return node != null ? node.getChildNodes() : List.of();
+	}
+
+	private static void mergeSorted(Collection<? extends EntryTreeNode<EntryMapping>> left, Collection<? extends EntryTreeNode<EntryMapping>> right, BiConsumer<EntryTreeNode<EntryMapping>, EntryTreeNode<EntryMapping>> consumer) {
+		List<EntryTreeNode<EntryMapping>> sortedLeft = new ArrayList<>(left);
+		sortedLeft.sort(SIBLING_ORDER);
+		List<EntryTreeNode<EntryMapping>> sortedRight = new ArrayList<>(right);
+		sortedRight.sort(SIBLING_ORDER);
+
+		int i = 0;
+		int j = 0;
+		while (i < sortedLeft.size() || j < sortedRight.size()) {
+			int comparison;
+			if (i == sortedLeft.size()) {
+				comparison = 1;
+			} else if (j == sortedRight.size()) {
+				comparison = -1;
+			} else {
+				comparison = compareSiblings(sortedLeft.get(i).getEntry(), sortedRight.get(j).getEntry());
+			}
 
-			EntryMapping rightMapping = right.get(rightEntry);
-			if (rightMapping != null) {
-				result.insert(leftEntry, rightMapping);
-				addedMappings.add(rightEntry);
-			} else if (keepLeftOnly) {
-				result.insert(leftEntry, leftMapping);
+			if (comparison < 0) {
+				consumer.accept(sortedLeft.get(i++), null);
+			} else if (comparison > 0) {
+				consumer.accept(null, sortedRight.get(j++));
+			} else {
+				consumer.accept(sortedLeft.get(i++), sortedRight.get(j++));
 			}
 		}
+	}
 
-		if (keepRightOnly) {
-			Translator leftInverseTranslator = new MappingTranslator(invert(left), VoidEntryResolver.INSTANCE);
-			for (EntryTreeNode<EntryMapping> node : right) {
-				Entry<?> rightEntry = node.getEntry();
-				EntryMapping rightMapping = node.getValue();
+	/**
+	 * Orders entries with the same parent, consistently with their equality.
+	 */
+	private static int compareSiblings(Entry<?> a, Entry<?> b) {
+		int kind = Integer.compare(getKindOrder(a), getKindOrder(b));
+		if (kind != 0) {
+			return kind;
+		}
+
+		if (a instanceof LocalVariableEntry aVariable && b instanceof LocalVariableEntry bVariable) {
+			return Integer.compare(aVariable.getIndex(), bVariable.getIndex());
+		}
+
+		int name = a.getName().compareTo(b.getName());
+		if (name != 0) {
+			return name;
+		}
+
+		if (a instanceof FieldEntry aField && b instanceof FieldEntry bField) {
+			return aField.getDesc().toString().compareTo(bField.getDesc().toString());
+		} else if (a instanceof MethodEntry aMethod && b instanceof MethodEntry bMethod) {
+			return aMethod.getDesc().toString().compareTo(bMethod.getDesc().toString());
+		}
+
+		return 0;
+	}
+
+	private static int getKindOrder(Entry<?> entry) {
+		if (entry instanceof ClassEntry) {
+			return 0;
+		} else if (entry instanceof FieldEntry) {
+			return 1;
+		} else if (entry instanceof MethodEntry) {
+			return 2;
+		} else {
+			return 3;
+		}
+	}
 
-				if (!addedMappings.contains(rightEntry)) {
-					result.insert(leftInverseTranslator.translate(rightEntry), rightMapping);
+	public static EntryTree<EntryMapping> merge(Stream<EntryTree<EntryMapping>> classTrees) {
+		EntryTree<EntryMapping> result = new HashEntryTree<>();
+		for (EntryTree<EntryMapping> tree : classTrees.toList()) {
+			for (EntryTreeNode<EntryMapping> node : tree) {
+				if (node.hasValue()) {
+					result.insert(node.getEntry(), node.getValue());
 				}
 			}
 		}
+
 		return result;
 	}
+
+	private record DiffPartition(@Nullable EntryTreeNode<EntryMapping> left, @Nullable EntryTreeNode<EntryMapping> right) {
+	}
+
+	private static final class ComposePartition {
+		private EntryTreeNode<EntryMapping> leftNode;
+		private final List<EntryTreeNode<EntryMapping>> rightNodes = new ArrayList<>();
+	}
 }
@@ -2,14 +2,10 @@ package cuchaz.enigma.translation.mapping;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.translation.Translator;
-import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
@@ -17,17 +13,16 @@ import cuchaz.enigma.utils.validation.Message;
 import cuchaz.enigma.utils.validation.ValidationContext;
 
 public class MappingValidator {
-	private final EntryTree<EntryMapping> obfToDeobf;
+	private final DeobfNameIndex nameIndex;
 	private final Translator deobfuscator;
 	private final JarIndex index;
 
-	public MappingValidator(EntryTree<EntryMapping> obfToDeobf, Translator deobfuscator, JarIndex index) {
-		this.obfToDeobf = obfToDeobf;
+	public MappingValidator(DeobfNameIndex nameIndex, Translator deobfuscator, JarIndex index) {
+		this.nameIndex = nameIndex;
 		this.deobfuscator = deobfuscator;
 		this.index = index;
 	}
 
-
 	public void validateRename(ValidationContext vc, Entry<?> entry, String name) {
 		boolean uniquenessIssue = false;
 
@@ -40,9 +35,18 @@ public class MappingValidator {
 	}
 
 	/**
+	 * Probes the names already taken in the conflict domain of the entry in every related class,
+	 * rather than translating all of their siblings. Both the deobfuscated names and the obfuscated
+	 * names of the entries in the mappings are taken.
+	 *
 	 * @return whether an error was raised
 	 */
 	private boolean validateUnique(ValidationContext vc, Entry<?> entry, String name) {
+		DeobfNameIndex.Kind kind = DeobfNameIndex.Kind.of(entry);
+		if (kind == null) {
+			return false;
+		}
+
 		ClassEntry containingClass = entry.getContainingClass();
 		Collection<ClassEntry> relatedClasses = this.getRelatedClasses(containingClass);
 
@@ -53,19 +57,11 @@ public class MappingValidator {
 			}
 
 			Entry<?> relatedEntry = entry.replaceAncestor(containingClass, relatedClass);
-			Entry<?> translatedEntry = this.deobfuscator.translate(relatedEntry);
-
-			Stream<Entry<?>> filteredRelatedEntries = this.obfToDeobf.getSiblings(relatedEntry).stream()
-					.filter(e -> !e.equals(entry)); // if the entry is a class, this could contain itself
-
-			var siblings = filteredRelatedEntries.collect(Collectors.toList());
-			siblings.addAll(
-					siblings.stream()
-					.map(this.deobfuscator::translate)
-					.toList()
-			);
+			Collection<Entry<?>> namedEntries = this.nameIndex.getObfEntries(relatedEntry.getParent(), name, kind);
+			Collection<Entry<?>> obfNamedEntries = this.nameIndex.getEntriesByObfName(relatedEntry.getParent(), name, kind);
 
-			if (!this.isUnique(entry, siblings, name)) {
+			if (!this.isUnique(entry, namedEntries) || !this.isUnique(entry, obfNamedEntries)) {
+				Entry<?> translatedEntry = this.deobfuscator.translate(relatedEntry);
 				if (translatedEntry != null) {
 					Entry<?> parent = translatedEntry.getParent();
 					if (parent != null) {
@@ -93,9 +89,10 @@ public class MappingValidator {
 		return relatedClasses;
 	}
 
-	private boolean isUnique(Entry<?> entry, List<? extends Entry<?>> siblings, String name) {
-		for (Entry<?> sibling : siblings) {
-			if (this.canConflict(entry, sibling) && sibling.getName().equals(name)) {
+	private boolean isUnique(Entry<?> entry, Collection<Entry<?>> namedEntries) {
+		for (Entry<?> namedEntry : namedEntries) {
+			// if the entry is a class, this could contain itself
+			if (!namedEntry.equals(entry) && this.canConflict(entry, namedEntry)) {
 				return false;
 			}
 		}
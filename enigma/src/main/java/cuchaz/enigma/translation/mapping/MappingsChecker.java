@@ -11,13 +11,18 @@ import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.function.Consumer;
 
 public class MappingsChecker {
+	/**
+	 * The number of top-level classes checked in parallel between two progress steps.
+	 */
+	private static final int BATCH_SIZE = 256;
+
 	private final JarIndex index;
 	private final EntryTree<EntryMapping> mappings;
 
@@ -29,25 +34,67 @@ public class MappingsChecker {
 	private Dropped dropMappings(ProgressListener progress, BiConsumer<Dropped, Entry<?>> dropper) {
 		Dropped dropped = new Dropped();
 
-		// HashEntryTree#getAllEntries filters out empty classes
-		Stream<Entry<?>> allEntries = StreamSupport.stream(this.mappings.spliterator(), false).map(EntryTreeNode::getEntry);
-		Collection<Entry<?>> obfEntries = allEntries
-				.filter(e -> e instanceof ClassEntry || e instanceof MethodEntry || e instanceof FieldEntry || e instanceof LocalVariableEntry)
-				.toList();
-
-		progress.init(obfEntries.size(), "Checking for dropped mappings");
-
-		int steps = 0;
-		for (Entry<?> entry : obfEntries) {
-			progress.step(steps++, entry.toString());
-			dropper.accept(dropped, entry);
-		}
+		this.forEachTopLevelClass(progress, rootNode -> {
+			for (EntryTreeNode<EntryMapping> node : rootNode.getNodesRecursively()) {
+				if (isCheckedEntry(node.getEntry())) {
+					dropper.accept(dropped, node.getEntry());
+				}
+			}
+		});
 
 		dropped.apply(this.mappings);
 
 		return dropped;
 	}
 
+	/**
+	 * Runs both the broken and the empty mapping checks in a single walk over the mappings,
+	 * and only then removes the dropped mappings from the tree.
+	 *
+	 * <p>Mappings are considered empty as they would be after dropping the broken mappings,
+	 * which matches running {@link #dropBrokenMappings} followed by {@link #dropEmptyMappings}.
+	 */
+	public Result dropBrokenAndEmptyMappings(ProgressListener progress) {
+		Dropped broken = new Dropped();
+		Dropped empty = new Dropped();
+
+		this.forEachTopLevelClass(progress, rootNode -> {
+			for (EntryTreeNode<EntryMapping> node : rootNode.getNodesRecursively()) {
+				if (isCheckedEntry(node.getEntry())) {
+					this.tryDropBrokenEntry(broken, node.getEntry());
+				}
+			}
+
+			this.tryDropEmptyNodes(empty, broken, rootNode);
+		});
+
+		broken.apply(this.mappings);
+		empty.apply(this.mappings);
+
+		return new Result(broken, empty);
+	}
+
+	/**
+	 * Every top-level class owns a disjoint subtree of the mappings, so these can be checked in parallel.
+	 * The mappings must not be modified until all checks have finished. Classes are checked a batch at a time,
+	 * so that progress is only reported from the calling thread.
+	 */
+	private void forEachTopLevelClass(ProgressListener progress, Consumer<EntryTreeNode<EntryMapping>> action) {
+		List<EntryTreeNode<EntryMapping>> rootNodes = this.mappings.getRootNodes().toList();
+
+		progress.init(rootNodes.size(), "Checking for dropped mappings");
+
+		for (int start = 0; start < rootNodes.size(); start += BATCH_SIZE) {
+			List<EntryTreeNode<EntryMapping>> batch = rootNodes.subList(start, Math.min(start + BATCH_SIZE, rootNodes.size()));
+			progress.step(start, batch.get(0).getEntry().toString());
+			batch.parallelStream().forEach(action);
+		}
+	}
+
+	private static boolean isCheckedEntry(Entry<?> entry) {
+		return entry instanceof ClassEntry || entry instanceof MethodEntry || entry instanceof FieldEntry || entry instanceof LocalVariableEntry;
+	}
+
 	public Dropped dropBrokenMappings(ProgressListener progress) {
 		return this.dropMappings(progress, this::tryDropBrokenEntry);
 	}
@@ -95,25 +142,59 @@ public class MappingsChecker {
 		}
 	}
 
+	private void tryDropEmptyNodes(Dropped dropped, Dropped broken, EntryTreeNode<EntryMapping> node) {
+		if (broken.isDropped(node.getEntry())) {
+			// the whole subtree goes away with the broken mapping
+			return;
+		}
+
+		EntryMapping mapping = node.getValue();
+		if (mapping != null && isCheckedEntry(node.getEntry()) && isEmpty(mapping) && !hasRemainingChildren(node, broken)) {
+			dropped.drop(node.getEntry(), mapping);
+		}
+
+		for (EntryTreeNode<EntryMapping> child : node.getChildNodes()) {
+			this.tryDropEmptyNodes(dropped, broken, child);
+		}
+	}
+
+	private static boolean hasRemainingChildren(EntryTreeNode<EntryMapping> node, Dropped broken) {
+		for (EntryTreeNode<EntryMapping> child : node.getChildNodes()) {
+			if (!broken.isDropped(child.getEntry()) && (child.hasValue() || hasRemainingChildren(child, broken))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isEmpty(EntryMapping mapping) {
+		return mapping.targetName() == null && mapping.javadoc() == null && mapping.accessModifier() == AccessModifier.UNCHANGED;
+	}
+
 	private boolean shouldDropEmptyMapping(Entry<?> entry) {
 		EntryMapping mapping = this.mappings.get(entry);
-		if (mapping != null) {
-			boolean isEmpty = mapping.targetName() == null && mapping.javadoc() == null && mapping.accessModifier() == AccessModifier.UNCHANGED;
-			if (isEmpty) {
-				return this.mappings.getChildren(entry).isEmpty();
-			}
+		if (mapping != null && isEmpty(mapping)) {
+			return this.mappings.getChildren(entry).isEmpty();
 		}
 
 		return false;
 	}
 
+	public record Result(Dropped broken, Dropped empty) {
+	}
+
 	public static class Dropped {
-		private final Map<Entry<?>, String> droppedMappings = new HashMap<>();
+		private final Map<Entry<?>, String> droppedMappings = new ConcurrentHashMap<>();
 
 		public void drop(Entry<?> entry, EntryMapping mapping) {
 			this.droppedMappings.put(entry, mapping.targetName() != null ? mapping.targetName() : entry.getName());
 		}
 
+		public boolean isDropped(Entry<?> entry) {
+			return this.droppedMappings.containsKey(entry);
+		}
+
 		void apply(EntryTree<EntryMapping> mappings) {
 			for (Entry<?> entry : this.droppedMappings.keySet()) {
 				EntryTreeNode<EntryMapping> node = mappings.findNode(entry);
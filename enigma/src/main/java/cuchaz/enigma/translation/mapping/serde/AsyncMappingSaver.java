@@ -0,0 +1,100 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes mappings on a dedicated thread, so that saving doesn't block editing.
+ *
+ * <p>A snapshot of the mappings is taken when a save is requested, on the calling thread, which must be the one modifying them.
+ * Saves are written one at a time in the order they were requested. A save that is still waiting for the previous one to finish
+ * is merged with the next request to the same file, so that only the latest mappings get written.
+ *
+ * <p>The writers write to a temporary file that replaces the target once complete, or update enigma zips in place without
+ * invalidating them, so a crash while saving leaves the previous version in place.
+ */
+public class AsyncMappingSaver {
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Mapping saver");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	@Nullable
+	private PendingSave pending;
+
+	/**
+	 * Requests a save of the current mappings of the remapper.
+	 *
+	 * @param saveAll whether to write all mappings, or only the changes since the last snapshot of the remapper
+	 * @return a future completed once the mappings have been written
+	 */
+	public CompletableFuture<Void> save(EntryRemapper mapper, MappingFormat format, Path path, MappingSaveParameters saveParameters, boolean saveAll, ProgressListener progress) {
+		DeltaTrackingTree.Snapshot<EntryMapping> snapshot = mapper.takeMappingSnapshot();
+
+		synchronized (this) {
+			if (this.pending != null && this.pending.format == format && this.pending.path.equals(path) && this.pending.saveParameters.equals(saveParameters)) {
+				this.pending.mappings = snapshot.mappings();
+				this.pending.delta = this.pending.delta.andThen(snapshot.delta());
+				this.pending.saveAll |= saveAll;
+				return this.pending.future;
+			}
+
+			PendingSave save = new PendingSave(format, path, saveParameters, snapshot.mappings(), snapshot.delta(), saveAll);
+			this.pending = save;
+			this.executor.execute(() -> this.write(save, progress));
+			return save.future;
+		}
+	}
+
+	private void write(PendingSave save, ProgressListener progress) {
+		synchronized (this) {
+			// later requests can't be merged into this one anymore
+			if (this.pending == save) {
+				this.pending = null;
+			}
+		}
+
+		try {
+			if (save.saveAll) {
+				save.format.write(save.mappings, save.path, progress, save.saveParameters);
+			} else {
+				save.format.write(save.mappings, save.delta, save.path, progress, save.saveParameters);
+			}
+
+			save.future.complete(null);
+		} catch (Throwable t) {
+			save.future.completeExceptionally(t);
+		}
+	}
+
+	private static class PendingSave {
+		final MappingFormat format;
+		final Path path;
+		final MappingSaveParameters saveParameters;
+		final CompletableFuture<Void> future = new CompletableFuture<>();
+
+		EntryTree<EntryMapping> mappings;
+		MappingDelta<EntryMapping> delta;
+		boolean saveAll;
+
+		PendingSave(MappingFormat format, Path path, MappingSaveParameters saveParameters, EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, boolean saveAll) {
+			this.format = format;
+			this.path = path;
+			this.saveParameters = saveParameters;
+			this.mappings = mappings;
+			this.delta = delta;
+			this.saveAll = saveAll;
+		}
+	}
+}
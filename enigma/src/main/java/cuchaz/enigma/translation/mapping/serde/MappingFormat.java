@@ -3,6 +3,8 @@ package cuchaz.enigma.translation.mapping.serde;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryMappingsReader;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryMappingsWriter;
 import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsReader;
 import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsWriter;
 import cuchaz.enigma.translation.mapping.serde.proguard.ProguardMappingsReader;
@@ -27,7 +29,8 @@ public enum MappingFormat {
 	TINY_FILE(TinyMappingsWriter.INSTANCE, TinyMappingsReader.INSTANCE),
 	SRG_FILE(SrgMappingsWriter.INSTANCE, null),
 	PROGUARD(null, ProguardMappingsReader.INSTANCE),
-	RECAF(RecafMappingsWriter.INSTANCE, RecafMappingsReader.INSTANCE);
+	RECAF(RecafMappingsWriter.INSTANCE, RecafMappingsReader.INSTANCE),
+	BINARY_FILE(BinaryMappingsWriter.INSTANCE, BinaryMappingsReader.INSTANCE);
 
 	private final MappingsWriter writer;
 	private final MappingsReader reader;
@@ -72,7 +75,8 @@ public enum MappingFormat {
 				TINY_V2,
 				TINY_FILE,
 				ENIGMA_ZIP,
-				PROGUARD
+				PROGUARD,
+				BINARY_FILE
 		};
 	}
 
@@ -83,7 +87,8 @@ public enum MappingFormat {
 				TINY_V2,
 				TINY_FILE,
 				ENIGMA_ZIP,
-				SRG_FILE
+				SRG_FILE,
+				BINARY_FILE
 		};
 	}
 }
@@ -3,9 +3,11 @@ package cuchaz.enigma.translation.mapping.serde;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.MappingOperations;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 
 import java.nio.file.Path;
+import java.util.stream.Stream;
 
 public interface MappingsWriter {
 	void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters);
@@ -13,4 +15,13 @@ public interface MappingsWriter {
 	default void write(EntryTree<EntryMapping> mappings, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
 		this.write(mappings, MappingDelta.added(mappings), path, progress, saveParameters);
 	}
+
+	/**
+	 * Writes mappings that are produced one top-level class at a time, each tree holding the mappings of a single top-level class.
+	 * The stream may be parallel. Writers that store classes independently can write them as they arrive,
+	 * the others collect them into one tree first.
+	 */
+	default void write(Stream<EntryTree<EntryMapping>> classTrees, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+		this.write(MappingOperations.merge(classTrees), path, progress, saveParameters);
+	}
 }
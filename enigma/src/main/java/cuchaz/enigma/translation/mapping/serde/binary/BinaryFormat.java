@@ -0,0 +1,48 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+/**
+ * Layout of the binary mapping format. All numbers are big endian, {@code varint} is an unsigned LEB128 encoded int.
+ *
+ * <pre>
+ * header:  int magic, int version, long footer offset
+ * classes: for each top-level class, varint record length followed by its node
+ * footer:  varint string count, then for each string a varint byte length and its UTF-8 bytes,
+ *          varint type descriptor count, then the string index of each,
+ *          varint method descriptor count, then the string index of each,
+ *          varint class count
+ *
+ * node:    byte kind, varint name string index,
+ *          for fields the type descriptor index, for methods the method descriptor index,
+ *          for parameters and local variables the local variable index,
+ *          byte flags, then the target name and javadoc string indices if present,
+ *          varint child count followed by the child nodes
+ * </pre>
+ *
+ * <p>Every string and descriptor is stored once in the footer, so reading a file only resolves each of them once.
+ * The footer comes last so that classes can be written as they are produced, with its offset patched into the header at the end.
+ * Class records are length-prefixed, which allows skipping over classes without decoding them.
+ */
+public final class BinaryFormat {
+	public static final String FILE_EXTENSION = "emap";
+	public static final int MAGIC = 0x454D4150; // "EMAP"
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int FOOTER_OFFSET_POSITION = 8;
+
+	public static final byte CLASS = 0;
+	public static final byte FIELD = 1;
+	public static final byte METHOD = 2;
+	public static final byte PARAMETER = 3;
+	public static final byte LOCAL_VARIABLE = 4;
+
+	public static final int FLAG_MAPPED = 1;
+	public static final int FLAG_TARGET_NAME = 1 << 1;
+	public static final int FLAG_JAVADOC = 1 << 2;
+	/**
+	 * The {@link cuchaz.enigma.translation.mapping.AccessModifier} ordinal is stored in the upper bits of the flags.
+	 */
+	public static final int ACCESS_SHIFT = 4;
+
+	private BinaryFormat() {
+	}
+}
@@ -0,0 +1,168 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.AccessModifier;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.MappingsReader;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.I18n;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.annotation.Nullable;
+
+public enum BinaryMappingsReader implements MappingsReader {
+	INSTANCE;
+
+	private static final AccessModifier[] ACCESS_MODIFIERS = AccessModifier.values();
+
+	@Override
+	public EntryTree<EntryMapping> read(Path path, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
+		// not memory-mapped: a mapped file stays locked on Windows until the buffer is collected, which breaks saving back to it
+		return this.read(path, ByteBuffer.wrap(Files.readAllBytes(path)), progress);
+	}
+
+	/**
+	 * @param content the whole file, either read into memory or memory-mapped
+	 */
+	public EntryTree<EntryMapping> read(Path path, ByteBuffer content, ProgressListener progress) throws MappingParseException {
+		ByteBuffer buffer = content.slice();
+		if (buffer.remaining() < BinaryFormat.HEADER_SIZE || buffer.getInt() != BinaryFormat.MAGIC) {
+			throw new MappingParseException(path, 0, "Not a binary mappings file");
+		}
+
+		int version = buffer.getInt();
+		if (version != BinaryFormat.VERSION) {
+			throw new MappingParseException(path, 0, "Unsupported binary mappings version " + version);
+		}
+
+		int classesStart = buffer.position() + Long.BYTES;
+		long footerOffset = buffer.getLong();
+		if (footerOffset < classesStart || footerOffset > buffer.limit()) {
+			throw new MappingParseException(path, 0, "Invalid footer offset " + footerOffset);
+		}
+
+		Decoder decoder;
+		try {
+			decoder = new Decoder(buffer.position((int) footerOffset));
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new MappingParseException(path, 0, e);
+		}
+
+		progress.init(decoder.classCount, I18n.translate("progress.mappings.binary.loading"));
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		buffer.position(classesStart);
+
+		for (int i = 0; i < decoder.classCount; i++) {
+			try {
+				int length = readVarInt(buffer);
+				int end = buffer.position() + length;
+
+				decoder.readNode(buffer, null, mappings);
+				if (buffer.position() != end) {
+					throw new IllegalArgumentException("Class record length mismatch");
+				}
+			} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | ClassCastException e) {
+				// there are no lines, report the class record that's broken instead
+				throw new MappingParseException(path, i + 1, e);
+			}
+
+			progress.step(i, "");
+		}
+
+		return mappings;
+	}
+
+	private static final class Decoder {
+		private final String[] strings;
+		private final TypeDescriptor[] typeDescs;
+		private final MethodDescriptor[] methodDescs;
+		private final int classCount;
+
+		/**
+		 * Reads the footer, resolving every string and descriptor once.
+		 */
+		Decoder(ByteBuffer buffer) {
+			this.strings = new String[readVarInt(buffer)];
+			for (int i = 0; i < this.strings.length; i++) {
+				int length = readVarInt(buffer);
+				if (buffer.hasArray()) {
+					this.strings[i] = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+					buffer.position(buffer.position() + length);
+				} else {
+					byte[] bytes = new byte[length];
+					buffer.get(bytes);
+					this.strings[i] = new String(bytes, StandardCharsets.UTF_8);
+				}
+			}
+
+			this.typeDescs = new TypeDescriptor[readVarInt(buffer)];
+			for (int i = 0; i < this.typeDescs.length; i++) {
+				this.typeDescs[i] = TypeDescriptor.parse(this.strings[readVarInt(buffer)]);
+			}
+
+			this.methodDescs = new MethodDescriptor[readVarInt(buffer)];
+			for (int i = 0; i < this.methodDescs.length; i++) {
+				this.methodDescs[i] = MethodDescriptor.parse(this.strings[readVarInt(buffer)]);
+			}
+
+			this.classCount = readVarInt(buffer);
+		}
+
+		void readNode(ByteBuffer buffer, @Nullable Entry<?> parent, EntryTree<EntryMapping> mappings) {
+			byte kind = buffer.get();
+			String name = this.strings[readVarInt(buffer)];
+
+			Entry<?> entry = switch (kind) {
+				case BinaryFormat.CLASS -> new ClassEntry((ClassEntry) parent, name);
+				case BinaryFormat.FIELD -> new FieldEntry((ClassEntry) parent, name, this.typeDescs[readVarInt(buffer)]);
+				case BinaryFormat.METHOD -> new MethodEntry((ClassEntry) parent, name, this.methodDescs[readVarInt(buffer)]);
+				case BinaryFormat.PARAMETER, BinaryFormat.LOCAL_VARIABLE -> new LocalVariableEntry((MethodEntry) parent, readVarInt(buffer), name, kind == BinaryFormat.PARAMETER, null);
+				default -> throw new IllegalArgumentException("Unknown entry kind " + kind);
+			};
+
+			int flags = buffer.get() & 0xFF;
+			if ((flags & BinaryFormat.FLAG_MAPPED) != 0) {
+				String targetName = (flags & BinaryFormat.FLAG_TARGET_NAME) != 0 ? this.strings[readVarInt(buffer)] : null;
+				String javadoc = (flags & BinaryFormat.FLAG_JAVADOC) != 0 ? this.strings[readVarInt(buffer)] : null;
+				AccessModifier access = ACCESS_MODIFIERS[flags >>> BinaryFormat.ACCESS_SHIFT];
+
+				mappings.insert(entry, new EntryMapping(targetName, access, javadoc));
+			}
+
+			int childCount = readVarInt(buffer);
+			for (int i = 0; i < childCount; i++) {
+				this.readNode(buffer, entry, mappings);
+			}
+		}
+	}
+
+	private static int readVarInt(ByteBuffer buffer) {
+		int value = 0;
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+
+		throw new IllegalArgumentException("Malformed varint");
+	}
+}
@@ -0,0 +1,284 @@
+package cuchaz.enigma.translation.mapping.serde.binary;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.MappingsWriter;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.I18n;
+import cuchaz.enigma.utils.Utils;
+import org.tinylog.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public enum BinaryMappingsWriter implements MappingsWriter {
+	INSTANCE;
+
+	private static final Comparator<EntryTreeNode<EntryMapping>> NODE_ORDER = Comparator.comparing(node -> node.getEntry().toString());
+
+	@Override
+	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+		List<EntryTreeNode<EntryMapping>> rootNodes = mappings.getRootNodes().sorted(NODE_ORDER).toList();
+
+		progress.init(rootNodes.size(), I18n.translate("progress.mappings.binary.writing"));
+		this.write(rootNodes.stream(), path, progress);
+	}
+
+	@Override
+	public void write(Stream<EntryTree<EntryMapping>> classTrees, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+		progress.init(0, I18n.translate("progress.mappings.binary.writing"));
+		this.write(classTrees.flatMap(EntryTree::getRootNodes), path, progress);
+	}
+
+	/**
+	 * Encodes mappings into the binary format in memory, the result can be read back with {@link BinaryMappingsReader#read(Path, ByteBuffer, ProgressListener)}.
+	 */
+	public byte[] encode(EntryTree<EntryMapping> mappings) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer header = ByteBuffer.allocate(BinaryFormat.HEADER_SIZE);
+		header.putInt(BinaryFormat.MAGIC).putInt(BinaryFormat.VERSION).putLong(0);
+		bytes.writeBytes(header.array());
+
+		Encoder encoder = new Encoder();
+		CountingOutputStream out = new CountingOutputStream(bytes, BinaryFormat.HEADER_SIZE);
+		List<EntryTreeNode<EntryMapping>> rootNodes = mappings.getRootNodes().filter(node -> node.getEntry() instanceof ClassEntry).sorted(NODE_ORDER).toList();
+
+		try {
+			for (EntryTreeNode<EntryMapping> node : rootNodes) {
+				encoder.writeClass(out, node);
+			}
+
+			long footerOffset = out.count;
+			encoder.writeFooter(out, rootNodes.size());
+			out.flush();
+
+			byte[] result = bytes.toByteArray();
+			ByteBuffer.wrap(result).putLong(BinaryFormat.FOOTER_OFFSET_POSITION, footerOffset);
+			return result;
+		} catch (IOException e) {
+			// not thrown by in-memory streams
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes each class as soon as it's available, only the string and descriptor tables are kept in memory until the end.
+	 * The classes are written in the encounter order of the stream, so the output doesn't depend on scheduling.
+	 */
+	private void write(Stream<EntryTreeNode<EntryMapping>> rootNodes, Path path, ProgressListener progress) {
+		Path tempPath = Utils.getTempSibling(path);
+		try {
+			Files.deleteIfExists(tempPath);
+
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+				ByteBuffer header = ByteBuffer.allocate(BinaryFormat.HEADER_SIZE);
+				header.putInt(BinaryFormat.MAGIC).putInt(BinaryFormat.VERSION).putLong(0);
+				channel.write(header.flip());
+
+				Encoder encoder = new Encoder();
+				CountingOutputStream out = new CountingOutputStream(Channels.newOutputStream(channel), BinaryFormat.HEADER_SIZE);
+				int[] steps = {0};
+
+				try {
+					rootNodes.filter(node -> node.getEntry() instanceof ClassEntry).forEachOrdered(node -> {
+						progress.step(steps[0]++, ((ClassEntry) node.getEntry()).getFullName());
+
+						try {
+							encoder.writeClass(out, node);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+
+				long footerOffset = out.count;
+				encoder.writeFooter(out, steps[0]);
+				out.flush();
+
+				ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).putLong(footerOffset);
+				channel.write(offset.flip(), BinaryFormat.FOOTER_OFFSET_POSITION);
+			}
+
+			Utils.moveAtomically(tempPath, path);
+		} catch (IOException e) {
+			Logger.error(e, "Error while writing mappings to file {}", path);
+		}
+	}
+
+	private static final class Encoder {
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final List<String> stringTable = new ArrayList<>();
+		private final Map<String, Integer> typeDescs = new HashMap<>();
+		private final List<Integer> typeDescTable = new ArrayList<>();
+		private final Map<String, Integer> methodDescs = new HashMap<>();
+		private final List<Integer> methodDescTable = new ArrayList<>();
+
+		private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+
+		void writeClass(OutputStream out, EntryTreeNode<EntryMapping> node) throws IOException {
+			this.record.reset();
+			this.writeNode(this.record, node);
+
+			writeVarInt(out, this.record.size());
+			this.record.writeTo(out);
+		}
+
+		private void writeNode(OutputStream out, EntryTreeNode<EntryMapping> node) throws IOException {
+			Entry<?> entry = node.getEntry();
+
+			if (entry instanceof ClassEntry) {
+				out.write(BinaryFormat.CLASS);
+				writeVarInt(out, this.string(entry.getName()));
+			} else if (entry instanceof FieldEntry field) {
+				out.write(BinaryFormat.FIELD);
+				writeVarInt(out, this.string(entry.getName()));
+				writeVarInt(out, this.descriptor(this.typeDescs, this.typeDescTable, field.getDesc().toString()));
+			} else if (entry instanceof MethodEntry method) {
+				out.write(BinaryFormat.METHOD);
+				writeVarInt(out, this.string(entry.getName()));
+				writeVarInt(out, this.descriptor(this.methodDescs, this.methodDescTable, method.getDesc().toString()));
+			} else if (entry instanceof LocalVariableEntry local) {
+				out.write(local.isArgument() ? BinaryFormat.PARAMETER : BinaryFormat.LOCAL_VARIABLE);
+				writeVarInt(out, this.string(entry.getName()));
+				writeVarInt(out, local.getIndex());
+			} else {
+				throw new IllegalArgumentException("Unsupported entry " + entry);
+			}
+
+			EntryMapping mapping = node.getValue();
+			if (mapping != null) {
+				int flags = BinaryFormat.FLAG_MAPPED | mapping.accessModifier().ordinal() << BinaryFormat.ACCESS_SHIFT;
+				if (mapping.targetName() != null) {
+					flags |= BinaryFormat.FLAG_TARGET_NAME;
+				}
+
+				if (mapping.javadoc() != null) {
+					flags |= BinaryFormat.FLAG_JAVADOC;
+				}
+
+				out.write(flags);
+
+				if (mapping.targetName() != null) {
+					writeVarInt(out, this.string(mapping.targetName()));
+				}
+
+				if (mapping.javadoc() != null) {
+					writeVarInt(out, this.string(mapping.javadoc()));
+				}
+			} else {
+				out.write(0);
+			}
+
+			List<? extends EntryTreeNode<EntryMapping>> children = node.getChildNodes().stream().sorted(NODE_ORDER).toList();
+			writeVarInt(out, children.size());
+			for (EntryTreeNode<EntryMapping> child : children) {
+				this.writeNode(out, child);
+			}
+		}
+
+		void writeFooter(OutputStream out, int classCount) throws IOException {
+			writeVarInt(out, this.stringTable.size());
+			for (String string : this.stringTable) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(out, bytes.length);
+				out.write(bytes);
+			}
+
+			writeVarInt(out, this.typeDescTable.size());
+			for (int index : this.typeDescTable) {
+				writeVarInt(out, index);
+			}
+
+			writeVarInt(out, this.methodDescTable.size());
+			for (int index : this.methodDescTable) {
+				writeVarInt(out, index);
+			}
+
+			writeVarInt(out, classCount);
+		}
+
+		private int string(String string) {
+			Integer index = this.strings.get(string);
+			if (index == null) {
+				index = this.stringTable.size();
+				this.strings.put(string, index);
+				this.stringTable.add(string);
+			}
+
+			return index;
+		}
+
+		private int descriptor(Map<String, Integer> descs, List<Integer> table, String desc) {
+			Integer index = descs.get(desc);
+			if (index == null) {
+				index = table.size();
+				descs.put(desc, index);
+				table.add(this.string(desc));
+			}
+
+			return index;
+		}
+	}
+
+	private static void writeVarInt(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		out.write(value);
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+		private final OutputStream delegate;
+		private long count;
+
+		private CountingOutputStream(OutputStream delegate, long count) {
+			this.delegate = new BufferedOutputStream(delegate, 1 << 16);
+			this.count = count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			this.delegate.write(b);
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			this.delegate.write(b, off, len);
+			this.count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			this.delegate.flush();
+		}
+	}
+}
@@ -1,19 +1,25 @@
 package cuchaz.enigma.translation.mapping.serde.enigma;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.AccessModifier;
 import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingOperations;
 import cuchaz.enigma.translation.mapping.MappingPair;
 import cuchaz.enigma.translation.mapping.serde.*;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
 import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
 import cuchaz.enigma.translation.representation.MethodDescriptor;
 import cuchaz.enigma.translation.representation.TypeDescriptor;
 import cuchaz.enigma.translation.representation.entry.*;
@@ -26,7 +32,7 @@ public enum EnigmaMappingsReader implements MappingsReader {
 			progress.init(1, I18n.translate("progress.mappings.enigma_file.loading"));
 
 			EntryTree<EntryMapping> mappings = new HashEntryTree<>();
-			readFile(path, mappings);
+			readFile(path, mappings, false);
 
 			progress.step(1, I18n.translate("progress.mappings.enigma_file.done"));
 
@@ -36,38 +42,152 @@ public enum EnigmaMappingsReader implements MappingsReader {
 	DIRECTORY {
 		@Override
 		public EntryTree<EntryMapping> read(Path root, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
-			if (!Files.isDirectory(root)) {
-				throw new NotDirectoryException(root.toString());
+			return readDirectory(root, null, progress);
+		}
+	},
+	ZIP {
+		@Override
+		public EntryTree<EntryMapping> read(Path zip, ProgressListener progress, MappingSaveParameters saveParameters) throws MappingParseException, IOException {
+			// a save that was interrupted can leave entries after the end of the archive, which are left for the next save to drop
+			Path copy = IncrementalZipWriter.copyIfInterrupted(zip);
+
+			try (FileSystem fs = FileSystems.newFileSystem(copy != null ? copy : zip, (ClassLoader) null)) {
+				return DIRECTORY.read(fs.getPath("/"), progress, saveParameters);
+			} finally {
+				if (copy != null) {
+					Files.delete(copy);
+				}
 			}
-			EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		}
+	};
 
-			List<Path> files = Files.walk(root)
-					.filter(f -> !Files.isDirectory(f))
-					.filter(f -> f.toString().endsWith(".mapping"))
-					.toList();
+	/**
+	 * Reads a mapping directory, only parsing the files that changed since they were cached if a cache is given.
+	 * The cache is not saved.
+	 */
+	public static EntryTree<EntryMapping> readDirectory(Path root, @Nullable MappingFileCache cache, ProgressListener progress) throws IOException, MappingParseException {
+		List<Path> files = listFiles(root);
+
+		progress.init(files.size(), I18n.translate("progress.mappings.enigma_directory.loading"));
+		AtomicInteger steps = new AtomicInteger();
+
+		// files are parsed in parallel into their own trees, which are then merged in the
+		// order of the files so that a later file still overrides an earlier one
+		try {
+			return MappingOperations.merge(files.parallelStream().map(file -> {
+				progress.step(steps.getAndIncrement(), root.relativize(file).toString());
+
+				try {
+					if (Files.isHidden(file)) {
+						return new HashEntryTree<>();
+					}
+
+					return readFile(root, file, cache).mappings();
+				} catch (IOException | MappingParseException e) {
+					throw new ReadException(e);
+				}
+			}));
+		} catch (ReadException e) {
+			if (e.getCause() instanceof MappingParseException parseException) {
+				throw parseException;
+			}
 
-			progress.init(files.size(), I18n.translate("progress.mappings.enigma_directory.loading"));
-			int step = 0;
+			throw (IOException) e.getCause();
+		}
+	}
 
-			for (Path file : files) {
-				progress.step(step++, root.relativize(file).toString());
-				if (Files.isHidden(file)) {
-					continue;
+	/**
+	 * Reads a mapping directory lazily. Only the class line and the class javadoc at the top of each file are read up front,
+	 * the rest of a file is parsed when its class is first accessed, or by {@link LazyEntryTree#loadInBackground()}.
+	 *
+	 * <p>Files are expected to hold a single top-level class, like the ones written by {@link EnigmaMappingsWriter#DIRECTORY}.
+	 * If a cache is given, unchanged files are read from it instead, both for their header and when their class is loaded.
+	 */
+	public static LazyEntryTree<EntryMapping> readDirectoryLazily(Path root, @Nullable MappingFileCache cache, ProgressListener progress) throws IOException, MappingParseException {
+		List<Path> files = listFiles(root);
+
+		progress.init(files.size(), I18n.translate("progress.mappings.enigma_directory.loading"));
+		AtomicInteger steps = new AtomicInteger();
+
+		List<Header> headers;
+		try {
+			headers = files.parallelStream().map(file -> {
+				progress.step(steps.getAndIncrement(), root.relativize(file).toString());
+
+				try {
+					if (Files.isHidden(file)) {
+						return new Header(null, null);
+					}
+
+					MappingFileCache.Result cached = cache != null ? cache.readIfUnchanged(root, file) : null;
+					if (cached != null) {
+						Entry<?> classEntry = cached.firstEntry();
+						return new Header(classEntry, classEntry != null ? cached.mappings().get(classEntry) : null);
+					}
+
+					EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+					Entry<?> classEntry = readFile(file, mappings, true);
+					return new Header(classEntry, classEntry != null ? mappings.get(classEntry) : null);
+				} catch (IOException | MappingParseException e) {
+					throw new ReadException(e);
 				}
-				readFile(file, mappings);
+			}).toList();
+		} catch (ReadException e) {
+			if (e.getCause() instanceof MappingParseException parseException) {
+				throw parseException;
 			}
 
-			return mappings;
+			throw (IOException) e.getCause();
 		}
-	},
-	ZIP {
-		@Override
-		public EntryTree<EntryMapping> read(Path zip, ProgressListener progress, MappingSaveParameters saveParameters) throws MappingParseException, IOException {
-			try (FileSystem fs = FileSystems.newFileSystem(zip, (ClassLoader) null)) {
-				return DIRECTORY.read(fs.getPath("/"), progress, saveParameters);
+
+		// later files override earlier ones, like when reading eagerly
+		Map<Entry<?>, List<Path>> filesByClass = new HashMap<>();
+		Map<Entry<?>, EntryMapping> rootValues = new HashMap<>();
+		for (int i = 0; i < files.size(); i++) {
+			Header header = headers.get(i);
+			if (header.classEntry() == null) {
+				continue;
+			}
+
+			filesByClass.computeIfAbsent(header.classEntry(), entry -> new ArrayList<>(1)).add(files.get(i));
+			if (header.mapping() != null) {
+				rootValues.put(header.classEntry(), header.mapping());
 			}
 		}
-	};
+
+		Map<Entry<?>, LazyEntryTree.Source<EntryMapping>> sources = new HashMap<>();
+		filesByClass.forEach((entry, classFiles) -> sources.put(entry, () -> {
+			if (classFiles.size() == 1) {
+				return readFile(root, classFiles.get(0), cache).mappings();
+			}
+
+			EntryTree<EntryMapping> classMappings = new HashEntryTree<>();
+			for (Path file : classFiles) {
+				for (EntryTreeNode<EntryMapping> node : readFile(root, file, cache).mappings()) {
+					if (node.hasValue()) {
+						classMappings.insert(node.getEntry(), node.getValue());
+					}
+				}
+			}
+
+			return classMappings;
+		}));
+
+		return new LazyEntryTree<>(sources, rootValues);
+	}
+
+	private static List<Path> listFiles(Path root) throws IOException {
+		if (!Files.isDirectory(root)) {
+			throw new NotDirectoryException(root.toString());
+		}
+
+		try (Stream<Path> paths = Files.walk(root)) {
+			return paths
+					.filter(f -> !Files.isDirectory(f))
+					.filter(f -> f.toString().endsWith(".mapping"))
+					.toList();
+		}
+	}
 
 	/**
 	 * Reads multiple Enigma mapping files.
@@ -91,18 +211,40 @@ public enum EnigmaMappingsReader implements MappingsReader {
 
 		for (Path file : paths) {
 			progress.step(step++, paths.toString());
-			readFile(file, mappings);
+			readFile(file, mappings, false);
 		}
 
 		return mappings;
 	}
 
-	private static void readFile(Path path, EntryTree<EntryMapping> mappings) throws IOException, MappingParseException {
-		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+	private static MappingFileCache.Result readFile(Path root, Path file, @Nullable MappingFileCache cache) throws IOException, MappingParseException {
+		if (cache != null) {
+			return cache.read(root, file, (reader, mappings) -> readFile(file, reader, mappings, false));
+		}
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		Entry<?> firstEntry = readFile(file, mappings, false);
+		return new MappingFileCache.Result(firstEntry, mappings);
+	}
+
+	/**
+	 * @param header whether to only read the first class and its javadoc
+	 * @return the first top-level entry of the file, or {@code null} if it is empty
+	 */
+	@Nullable
+	private static Entry<?> readFile(Path path, EntryTree<EntryMapping> mappings, boolean header) throws IOException, MappingParseException {
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return readFile(path, reader, mappings, header);
+		}
+	}
+
+	@Nullable
+	private static Entry<?> readFile(Path path, BufferedReader reader, EntryTree<EntryMapping> mappings, boolean header) throws IOException, MappingParseException {
 		Deque<MappingPair<?, RawEntryMapping>> mappingStack = new ArrayDeque<>();
+		Entry<?> firstEntry = null;
 
-		for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
-			String line = lines.get(lineNumber);
+		int lineNumber = 0;
+		for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNumber++) {
 			int indentation = countIndentation(line);
 
 			line = formatLine(line);
@@ -110,12 +252,20 @@ public enum EnigmaMappingsReader implements MappingsReader {
 				continue;
 			}
 
+			if (header && !mappingStack.isEmpty() && !(indentation == 1 && line.regionMatches(true, 0, EnigmaFormat.COMMENT, 0, EnigmaFormat.COMMENT.length()))) {
+				break;
+			}
+
 			cleanMappingStack(indentation, mappingStack, mappings);
 
 			try {
 				MappingPair<?, RawEntryMapping> pair = parseLine(mappingStack.peek(), line);
 				if (pair != null) {
 					mappingStack.push(pair);
+
+					if (firstEntry == null) {
+						firstEntry = pair.getEntry();
+					}
 				}
 			} catch (Exception e) {
 				throw new MappingParseException(path, lineNumber, e);
@@ -124,6 +274,8 @@ public enum EnigmaMappingsReader implements MappingsReader {
 
 		// Clean up rest
 		cleanMappingStack(0, mappingStack, mappings);
+
+		return firstEntry;
 	}
 
 	private static void cleanMappingStack(int indentation, Deque<MappingPair<?, RawEntryMapping>> mappingStack, EntryTree<EntryMapping> mappings) {
@@ -256,20 +408,20 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		TypeDescriptor descriptor;
 
 		if (tokens.length == 3) {
-			descriptor = new TypeDescriptor(tokens[2]);
+			descriptor = TypeDescriptor.parse(tokens[2]);
 		} else if (tokens.length == 4) {
 			AccessModifier parsedModifier = parseModifier(tokens[3]);
 			if (parsedModifier != null) {
-				descriptor = new TypeDescriptor(tokens[2]);
+				descriptor = TypeDescriptor.parse(tokens[2]);
 				modifier = parsedModifier;
 			} else {
 				mapping = tokens[2];
-				descriptor = new TypeDescriptor(tokens[3]);
+				descriptor = TypeDescriptor.parse(tokens[3]);
 			}
 		} else if (tokens.length == 5) {
 			mapping = tokens[2];
 			modifier = parseModifier(tokens[3]);
-			descriptor = new TypeDescriptor(tokens[4]);
+			descriptor = TypeDescriptor.parse(tokens[4]);
 		} else {
 			throw new RuntimeException("Invalid field declaration");
 		}
@@ -289,21 +441,21 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		MethodDescriptor descriptor;
 
 		if (tokens.length == 3) {
-			descriptor = new MethodDescriptor(tokens[2]);
+			descriptor = MethodDescriptor.parse(tokens[2]);
 		} else if (tokens.length == 4) {
 			AccessModifier parsedModifier = parseModifier(tokens[3]);
 			if (parsedModifier != null) {
 				modifier = parsedModifier;
 				mapping = obfuscatedName;
-				descriptor = new MethodDescriptor(tokens[2]);
+				descriptor = MethodDescriptor.parse(tokens[2]);
 			} else {
 				mapping = tokens[2];
-				descriptor = new MethodDescriptor(tokens[3]);
+				descriptor = MethodDescriptor.parse(tokens[3]);
 			}
 		} else if (tokens.length == 5) {
 			mapping = tokens[2];
 			modifier = parseModifier(tokens[4]);
-			descriptor = new MethodDescriptor(tokens[3]);
+			descriptor = MethodDescriptor.parse(tokens[3]);
 		} else {
 			throw new RuntimeException("Invalid method declaration");
 		}
@@ -331,4 +483,15 @@ public enum EnigmaMappingsReader implements MappingsReader {
 		}
 		return null;
 	}
+
+	private record Header(@Nullable Entry<?> classEntry, @Nullable EntryMapping mapping) {
+	}
+
+	private static final class ReadException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private ReadException(Exception cause) {
+			super(cause);
+		}
+	}
 }
@@ -2,8 +2,10 @@ package cuchaz.enigma.translation.mapping.serde.enigma;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -26,6 +28,7 @@ import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
 import cuchaz.enigma.translation.representation.entry.*;
 import cuchaz.enigma.utils.I18n;
+import cuchaz.enigma.utils.Utils;
 import org.tinylog.Logger;
 
 public enum EnigmaMappingsWriter implements MappingsWriter {
@@ -40,11 +43,46 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 			progress.init(classes.size(), I18n.translate("progress.mappings.enigma_file.writing"));
 
 			int steps = 0;
-			try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(path))) {
-				for (ClassEntry classEntry : classes) {
-					progress.step(steps++, classEntry.getFullName());
-					this.writeRoot(writer, mappings, classEntry);
+			Path tempPath = Utils.getTempSibling(path);
+			try {
+				try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(tempPath))) {
+					for (ClassEntry classEntry : classes) {
+						progress.step(steps++, classEntry.getFullName());
+						this.writeRoot(writer, mappings, classEntry);
+					}
+				}
+
+				Utils.moveAtomically(tempPath, path);
+			} catch (IOException e) {
+				Logger.error(e, "Error while writing mappings to file {}", path);
+			}
+		}
+
+		@Override
+		public void write(Stream<EntryTree<EntryMapping>> classTrees, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+			progress.init(0, I18n.translate("progress.mappings.enigma_file.writing"));
+
+			Path tempPath = Utils.getTempSibling(path);
+			try {
+				try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(tempPath))) {
+					// classes are rendered in parallel, but written in the order of the stream so that the file is the same on every save
+					classTrees.map(classTree -> {
+						StringWriter classWriter = new StringWriter();
+						PrintWriter classPrintWriter = new LfPrintWriter(classWriter);
+
+						classTree.getRootNodes()
+								.filter(node -> node.getEntry() instanceof ClassEntry)
+								.forEach(node -> {
+									ClassEntry classEntry = (ClassEntry) node.getEntry();
+									progress.step(-1, classEntry.getFullName());
+									this.writeRoot(classPrintWriter, classTree, classEntry);
+								});
+
+						return classWriter.toString();
+					}).forEachOrdered(writer::write);
 				}
+
+				Utils.moveAtomically(tempPath, path);
 			} catch (IOException e) {
 				Logger.error(e, "Error while writing mappings to file {}", path);
 			}
@@ -53,10 +91,7 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 	DIRECTORY {
 		@Override
 		public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
-			Collection<ClassEntry> changedClasses = delta.getChangedRoots()
-					.filter(ClassEntry.class::isInstance)
-					.map(ClassEntry.class::cast)
-					.toList();
+			Collection<ClassEntry> changedClasses = this.getChangedClasses(delta);
 
 			this.applyDeletions(path, changedClasses, mappings, delta.getBaseMappings(), saveParameters.fileNameFormat());
 
@@ -69,37 +104,47 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 			Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
 			changedClasses.parallelStream().forEach(classEntry -> {
 				progress.step(steps.getAndIncrement(), classEntry.getFullName());
+				this.writeClassFile(path, mappings, classEntry, translator, saveParameters);
+			});
+		}
 
-				try {
-					ClassEntry fileEntry = classEntry;
-					if (saveParameters.fileNameFormat() == MappingFileNameFormat.BY_DEOBF) {
-						fileEntry = translator.translate(fileEntry);
-					}
-
-					Path classPath = this.resolve(path, fileEntry);
-					Files.createDirectories(classPath.getParent());
-					Files.deleteIfExists(classPath);
-
-					try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(classPath))) {
-						this.writeRoot(writer, mappings, classEntry);
-					}
-				} catch (Exception e) {
-					Logger.error(e, "Failed to write class '{}'", classEntry.getFullName());
-				}
+		@Override
+		public void write(Stream<EntryTree<EntryMapping>> classTrees, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+			progress.init(0, I18n.translate("progress.mappings.enigma_directory.writing"));
+
+			classTrees.forEach(classTree -> {
+				Translator translator = new MappingTranslator(classTree, VoidEntryResolver.INSTANCE);
+				classTree.getRootNodes()
+						.map(EntryTreeNode::getEntry)
+						.filter(ClassEntry.class::isInstance)
+						.map(ClassEntry.class::cast)
+						.filter(classEntry -> !this.isClassEmpty(classTree, classEntry))
+						.forEach(classEntry -> {
+							progress.step(-1, classEntry.getFullName());
+							this.writeClassFile(path, classTree, classEntry, translator, saveParameters);
+						});
 			});
 		}
 
-		private void applyDeletions(Path root, Collection<ClassEntry> changedClasses, EntryTree<EntryMapping> mappings, EntryTree<EntryMapping> oldMappings, MappingFileNameFormat fileNameFormat) {
-			Translator oldMappingTranslator = new MappingTranslator(oldMappings, VoidEntryResolver.INSTANCE);
+		private void writeClassFile(Path root, EntryTree<EntryMapping> mappings, ClassEntry classEntry, Translator translator, MappingSaveParameters saveParameters) {
+			try {
+				Path classPath = this.resolve(root, this.getFileEntry(classEntry, translator, saveParameters));
+				Files.createDirectories(classPath.getParent());
 
-			Stream<ClassEntry> deletedClassStream = changedClasses.stream()
-					.filter(e -> !Objects.equals(oldMappings.get(e), mappings.get(e)));
+				// the previous version stays in place until the new one is complete
+				Path tempPath = Utils.getTempSibling(classPath);
+				try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(tempPath))) {
+					this.writeRoot(writer, mappings, classEntry);
+				}
 
-			if (fileNameFormat == MappingFileNameFormat.BY_DEOBF) {
-				deletedClassStream = deletedClassStream.map(oldMappingTranslator::translate);
+				Utils.moveAtomically(tempPath, classPath);
+			} catch (Exception e) {
+				Logger.error(e, "Failed to write class '{}'", classEntry.getFullName());
 			}
+		}
 
-			Collection<ClassEntry> deletedClasses = deletedClassStream.toList();
+		private void applyDeletions(Path root, Collection<ClassEntry> changedClasses, EntryTree<EntryMapping> mappings, EntryTree<EntryMapping> oldMappings, MappingFileNameFormat fileNameFormat) {
+			Collection<ClassEntry> deletedClasses = this.getDeletedFileEntries(changedClasses, mappings, oldMappings, fileNameFormat);
 
 			for (ClassEntry classEntry : deletedClasses) {
 				try {
@@ -141,14 +186,93 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 		}
 
 		private Path resolve(Path root, ClassEntry classEntry) {
-			return root.resolve(classEntry.getFullName() + ".mapping");
+			return root.resolve(this.getFileName(classEntry));
 		}
 	},
 	ZIP {
+		/**
+		 * Only rewrites the changed classes, the other entries of an existing zip are kept as they are, see {@link IncrementalZipWriter}.
+		 * The archive is updated in place and stays readable if the save is interrupted. A new archive, or one that has to be rewritten
+		 * through the zip file system, is written next to the target and replaces it once complete.
+		 */
 		@Override
 		public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path zip, ProgressListener progress, MappingSaveParameters saveParameters) {
+			Collection<ClassEntry> changedClasses = this.getChangedClasses(delta);
+			Path tempZip = Utils.getTempSibling(zip);
+
+			try {
+				if (Files.exists(zip)) {
+					if (this.writeIncrementally(zip, mappings, delta, changedClasses, progress, saveParameters)) {
+						return;
+					}
+
+					Files.copy(zip, tempZip, StandardCopyOption.REPLACE_EXISTING);
+				} else {
+					Files.deleteIfExists(tempZip);
+
+					if (this.writeIncrementally(tempZip, mappings, delta, changedClasses, progress, saveParameters)) {
+						Utils.moveAtomically(tempZip, zip);
+						return;
+					}
+
+					Files.deleteIfExists(tempZip);
+				}
+
+				// zip64 archives go through the zip file system, which rewrites the whole archive
+				try (FileSystem fs = FileSystems.newFileSystem(new URI("jar:file", null, tempZip.toUri().getPath(), ""), Collections.singletonMap("create", "true"))) {
+					DIRECTORY.write(mappings, delta, fs.getPath("/"), progress, saveParameters);
+				}
+
+				Utils.moveAtomically(tempZip, zip);
+			} catch (IOException e) {
+				Logger.error(e, "Failed to write mappings to zip file '{}'", zip);
+			} catch (URISyntaxException e) {
+				throw new RuntimeException("Unexpected error creating URI for " + zip, e);
+			}
+		}
+
+		private boolean writeIncrementally(Path zip, EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Collection<ClassEntry> changedClasses, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException {
+			try (IncrementalZipWriter writer = IncrementalZipWriter.open(zip)) {
+				if (writer == null || writer.size() + changedClasses.size() > IncrementalZipWriter.MAX_ENTRIES) {
+					return false;
+				}
+
+				this.writeChanges(writer, mappings, delta, changedClasses, progress, saveParameters);
+				return true;
+			}
+		}
+
+		private void writeChanges(IncrementalZipWriter writer, EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Collection<ClassEntry> changedClasses, ProgressListener progress, MappingSaveParameters saveParameters) {
+			for (ClassEntry classEntry : this.getDeletedFileEntries(changedClasses, mappings, delta.getBaseMappings(), saveParameters.fileNameFormat())) {
+				writer.delete(this.getFileName(classEntry));
+			}
+
+			changedClasses = changedClasses.stream().filter(entry -> !this.isClassEmpty(mappings, entry)).toList();
+
+			progress.init(changedClasses.size(), I18n.translate("progress.mappings.enigma_directory.writing"));
+
+			AtomicInteger steps = new AtomicInteger();
+
+			Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
+			changedClasses.parallelStream().forEach(classEntry -> {
+				progress.step(steps.getAndIncrement(), classEntry.getFullName());
+
+				try {
+					StringWriter classWriter = new StringWriter();
+					this.writeRoot(new LfPrintWriter(classWriter), mappings, classEntry);
+
+					String fileName = this.getFileName(this.getFileEntry(classEntry, translator, saveParameters));
+					writer.write(fileName, classWriter.toString().getBytes(StandardCharsets.UTF_8));
+				} catch (Exception e) {
+					Logger.error(e, "Failed to write class '{}'", classEntry.getFullName());
+				}
+			});
+		}
+
+		@Override
+		public void write(Stream<EntryTree<EntryMapping>> classTrees, Path zip, ProgressListener progress, MappingSaveParameters saveParameters) {
 			try (FileSystem fs = FileSystems.newFileSystem(new URI("jar:file", null, zip.toUri().getPath(), ""), Collections.singletonMap("create", "true"))) {
-				DIRECTORY.write(mappings, delta, fs.getPath("/"), progress, saveParameters);
+				DIRECTORY.write(classTrees, fs.getPath("/"), progress, saveParameters);
 			} catch (IOException e) {
 				Logger.error(e, "Failed to write mappings to zip file '{}'", zip);
 			} catch (URISyntaxException e) {
@@ -157,6 +281,41 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 		}
 	};
 
+	protected Collection<ClassEntry> getChangedClasses(MappingDelta<EntryMapping> delta) {
+		return delta.getChangedRoots()
+				.filter(ClassEntry.class::isInstance)
+				.map(ClassEntry.class::cast)
+				.toList();
+	}
+
+	/**
+	 * @return the classes whose file has to be deleted because it was renamed, as named in the old file names
+	 */
+	protected Collection<ClassEntry> getDeletedFileEntries(Collection<ClassEntry> changedClasses, EntryTree<EntryMapping> mappings, EntryTree<EntryMapping> oldMappings, MappingFileNameFormat fileNameFormat) {
+		Translator oldMappingTranslator = new MappingTranslator(oldMappings, VoidEntryResolver.INSTANCE);
+
+		Stream<ClassEntry> deletedClassStream = changedClasses.stream()
+				.filter(e -> !Objects.equals(oldMappings.get(e), mappings.get(e)));
+
+		if (fileNameFormat == MappingFileNameFormat.BY_DEOBF) {
+			deletedClassStream = deletedClassStream.map(oldMappingTranslator::translate);
+		}
+
+		return deletedClassStream.toList();
+	}
+
+	protected ClassEntry getFileEntry(ClassEntry classEntry, Translator translator, MappingSaveParameters saveParameters) {
+		if (saveParameters.fileNameFormat() == MappingFileNameFormat.BY_DEOBF) {
+			return translator.translate(classEntry);
+		}
+
+		return classEntry;
+	}
+
+	protected String getFileName(ClassEntry classEntry) {
+		return classEntry.getFullName() + ".mapping";
+	}
+
 	protected void writeRoot(PrintWriter writer, EntryTree<EntryMapping> mappings, ClassEntry classEntry) {
 		Collection<Entry<?>> children = this.groupChildren(mappings.getChildren(classEntry));
 
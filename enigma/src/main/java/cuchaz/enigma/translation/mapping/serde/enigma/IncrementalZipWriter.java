@@ -0,0 +1,492 @@
+package cuchaz.enigma.translation.mapping.serde.enigma;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nullable;
+
+import cuchaz.enigma.utils.Utils;
+import org.tinylog.Logger;
+
+/**
+ * Updates single entries of a zip file in place, without touching the data of the other entries.
+ *
+ * <p>New and replaced entries are appended after the end record of the archive, and a new central directory is written after them
+ * when closing. Until the new end record is written the old one stays the last complete one, so a save that is interrupted leaves
+ * the previous version readable. What it appended is skipped by {@link #copyIfInterrupted(Path)} when reading, and dropped by the
+ * next save. Entries that were replaced or deleted,
+ * as well as the old central directories, are left behind as dead space, which is reclaimed by rewriting the archive once it
+ * outgrows the live data. Saving a few changed classes then costs the size of those classes plus the central directory.
+ *
+ * <p>Only plain zip files are supported, archives that need zip64 are rejected by {@link #open(Path)}.
+ */
+final class IncrementalZipWriter implements Closeable {
+	/**
+	 * Entry count above which zip64 would be needed.
+	 */
+	static final int MAX_ENTRIES = 0xFFFF - 1;
+
+	private static final int LOC_SIGNATURE = 0x04034b50;
+	private static final int CEN_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int LOC_HEADER_SIZE = 30;
+	private static final int CEN_HEADER_SIZE = 46;
+	private static final int END_HEADER_SIZE = 22;
+	private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	private static final int FLAG_UTF8 = 1 << 11;
+	private static final int VERSION = 20;
+	private static final int DEFLATED = 8;
+	private static final long MAX_OFFSET = 0xFFFFFFFFL;
+	private static final int SCAN_CHUNK_SIZE = 1 << 16;
+
+	private final Path path;
+	private final FileChannel channel;
+	/**
+	 * Raw central directory record of every live entry, by name.
+	 */
+	private final Map<String, byte[]> entries;
+	private long appendPosition;
+	private long deadBytes;
+	private boolean modified;
+
+	private IncrementalZipWriter(Path path, FileChannel channel, Map<String, byte[]> entries, long appendPosition, long deadBytes) {
+		this.path = path;
+		this.channel = channel;
+		this.entries = entries;
+		this.appendPosition = appendPosition;
+		this.deadBytes = deadBytes;
+	}
+
+	/**
+	 * Opens a zip file for updating, creating it if needed.
+	 *
+	 * @return the writer, or {@code null} if the archive uses features that aren't supported, in which case it was left untouched
+	 */
+	@Nullable
+	static IncrementalZipWriter open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		try {
+			if (channel.size() == 0) {
+				return new IncrementalZipWriter(path, channel, new LinkedHashMap<>(), 0, 0);
+			}
+
+			IncrementalZipWriter writer = read(path, channel);
+			if (writer == null) {
+				channel.close();
+			}
+
+			return writer;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Copies the archive without what an interrupted save appended after its last complete end record, so that readers that only
+	 * look at the end of the file can open it. The archive itself is only read, the next save drops the appended bytes.
+	 *
+	 * @return a temporary copy that the caller has to delete, or {@code null} if the archive is complete or isn't supported
+	 */
+	@Nullable
+	static Path copyIfInterrupted(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			EndRecord end = size <= MAX_OFFSET ? findEnd(channel, size) : null;
+			if (end == null || end.isUnsupported() || end.archiveEnd() == size) {
+				return null;
+			}
+
+			Logger.warn("Skipping {} bytes of an interrupted save in {}", size - end.archiveEnd(), path);
+			Path copy = Files.createTempFile("mappings", ".zip");
+
+			try (FileChannel target = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+				long copied = 0;
+				while (copied < end.archiveEnd()) {
+					copied += channel.transferTo(copied, end.archiveEnd() - copied, target);
+				}
+			} catch (IOException | RuntimeException e) {
+				Files.deleteIfExists(copy);
+				throw e;
+			}
+
+			return copy;
+		}
+	}
+
+	@Nullable
+	private static IncrementalZipWriter read(Path path, FileChannel channel) throws IOException {
+		long size = channel.size();
+		if (size > MAX_OFFSET) {
+			return null;
+		}
+
+		EndRecord end = findEnd(channel, size);
+		if (end == null) {
+			throw new IOException("Not a zip file: " + path);
+		}
+
+		if (end.isUnsupported()) {
+			return null;
+		}
+
+		if (end.archiveEnd() < size) {
+			truncate(path, channel, end.archiveEnd());
+		}
+
+		ByteBuffer cen = readFully(channel, end.cenOffset(), (int) end.cenSize());
+		Map<String, byte[]> entries = new LinkedHashMap<>(end.entryCount() * 2);
+		long liveBytes = 0;
+
+		while (cen.remaining() >= CEN_HEADER_SIZE) {
+			int start = cen.position();
+			if (cen.getInt(start) != CEN_SIGNATURE) {
+				throw new IOException("Invalid central directory in " + path);
+			}
+
+			int nameLength = Short.toUnsignedInt(cen.getShort(start + 28));
+			int recordLength = CEN_HEADER_SIZE + nameLength + Short.toUnsignedInt(cen.getShort(start + 30)) + Short.toUnsignedInt(cen.getShort(start + 32));
+			if (cen.getInt(start + 20) == -1 || cen.getInt(start + 24) == -1 || cen.getInt(start + 42) == -1) {
+				return null;
+			}
+
+			byte[] record = new byte[recordLength];
+			cen.get(record);
+
+			String name = new String(record, CEN_HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+			entries.put(name, record);
+			liveBytes += estimateExtent(record);
+		}
+
+		// the old central directory becomes dead space as soon as a new one is written after it
+		return new IncrementalZipWriter(path, channel, entries, end.archiveEnd(), Math.max(0, end.archiveEnd() - liveBytes));
+	}
+
+	/**
+	 * Finds the last complete end record of the archive. This is the one at the very end of the file, unless a save was interrupted
+	 * after appending entries, in which case it's the last one that directly follows its central directory.
+	 */
+	@Nullable
+	private static EndRecord findEnd(FileChannel channel, long size) throws IOException {
+		long chunkEnd = size;
+		while (chunkEnd >= END_HEADER_SIZE) {
+			long chunkStart = Math.max(0, chunkEnd - SCAN_CHUNK_SIZE);
+			ByteBuffer chunk = readFully(channel, chunkStart, (int) (chunkEnd - chunkStart));
+
+			for (int i = chunk.limit() - 4; i >= 0; i--) {
+				if (chunk.getInt(i) == END_SIGNATURE && chunkStart + i + END_HEADER_SIZE <= size) {
+					EndRecord end = readEnd(channel, chunkStart + i, size);
+					if (end != null) {
+						return end;
+					}
+				}
+			}
+
+			if (chunkStart == 0) {
+				break;
+			}
+
+			// the chunks overlap so that a signature across their boundary is found
+			chunkEnd = chunkStart + 3;
+		}
+
+		return null;
+	}
+
+	@Nullable
+	private static EndRecord readEnd(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer record = readFully(channel, position, END_HEADER_SIZE);
+		boolean zip64 = position >= 20 && readFully(channel, position - 20, 4).getInt(0) == ZIP64_LOCATOR_SIGNATURE;
+		EndRecord end = new EndRecord(position, zip64, Short.toUnsignedInt(record.getShort(4)), Short.toUnsignedInt(record.getShort(10)),
+				Integer.toUnsignedLong(record.getInt(12)), Integer.toUnsignedLong(record.getInt(16)), Short.toUnsignedInt(record.getShort(20)));
+
+		if (end.archiveEnd() == size) {
+			// the real end of the archive, which can still be one that isn't supported
+			return end.isUnsupported() || end.cenOffset() + end.cenSize() <= position ? end : null;
+		}
+
+		// anything else has to directly follow the central directory it describes, so that bytes of the appended entries that
+		// happen to look like an end record are skipped
+		if (end.isUnsupported() || end.archiveEnd() > size || end.cenOffset() + end.cenSize() != position) {
+			return null;
+		}
+
+		return end.cenSize() == 0 || readFully(channel, end.cenOffset(), 4).getInt(0) == CEN_SIGNATURE ? end : null;
+	}
+
+	private static void truncate(Path path, FileChannel channel, long size) throws IOException {
+		Logger.warn("Dropping {} bytes of an interrupted save from {}", channel.size() - size, path);
+		channel.truncate(size);
+		channel.force(true);
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+
+	synchronized void delete(String name) {
+		byte[] record = this.entries.remove(name);
+		if (record != null) {
+			this.deadBytes += estimateExtent(record);
+			this.modified = true;
+		}
+	}
+
+	void write(String name, byte[] content) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(content);
+
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		deflater.setInput(content);
+		deflater.finish();
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 2 + 64);
+		byte[] buffer = new byte[8192];
+		while (!deflater.finished()) {
+			compressed.write(buffer, 0, deflater.deflate(buffer));
+		}
+
+		deflater.end();
+
+		this.write(name, (int) crc.getValue(), compressed.toByteArray(), content.length);
+	}
+
+	private synchronized void write(String name, int crc, byte[] compressed, int uncompressedSize) throws IOException {
+		this.delete(name);
+
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		int dosTime = dosTime(LocalDateTime.now());
+
+		ByteBuffer local = ByteBuffer.allocate(LOC_HEADER_SIZE + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		local.putInt(LOC_SIGNATURE)
+				.putShort((short) VERSION)
+				.putShort((short) FLAG_UTF8)
+				.putShort((short) DEFLATED)
+				.putInt(dosTime)
+				.putInt(crc)
+				.putInt(compressed.length)
+				.putInt(uncompressedSize)
+				.putShort((short) nameBytes.length)
+				.putShort((short) 0)
+				.put(nameBytes);
+
+		ByteBuffer record = ByteBuffer.allocate(CEN_HEADER_SIZE + nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		record.putInt(CEN_SIGNATURE)
+				.putShort((short) VERSION)
+				.putShort((short) VERSION)
+				.putShort((short) FLAG_UTF8)
+				.putShort((short) DEFLATED)
+				.putInt(dosTime)
+				.putInt(crc)
+				.putInt(compressed.length)
+				.putInt(uncompressedSize)
+				.putShort((short) nameBytes.length)
+				.putShort((short) 0) // extra length
+				.putShort((short) 0) // comment length
+				.putShort((short) 0) // disk number
+				.putShort((short) 0) // internal attributes
+				.putInt(0) // external attributes
+				.putInt((int) this.appendPosition)
+				.put(nameBytes);
+
+		long position = this.appendPosition;
+		position += writeFully(this.channel, local.flip(), position);
+		position += writeFully(this.channel, ByteBuffer.wrap(compressed), position);
+
+		this.appendPosition = position;
+		this.entries.put(name, record.array());
+		this.modified = true;
+	}
+
+	/**
+	 * Writes the central directory, then rewrites the whole archive if there's more dead space than live data.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			if (!this.modified) {
+				return;
+			}
+
+			this.removeEmptyDirectories();
+
+			// the archive only switches to the new central directory once it is durable, so compacting can't lose anything
+			this.writeCentralDirectory(this.channel, this.appendPosition);
+
+			if (this.deadBytes > this.appendPosition - this.deadBytes) {
+				this.compact();
+			}
+		} finally {
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * Drops the directory entries that don't contain anything anymore, like deleting dead packages in a mapping directory.
+	 */
+	private void removeEmptyDirectories() {
+		Set<String> usedDirectories = new HashSet<>();
+		for (String name : this.entries.keySet()) {
+			for (int i = name.lastIndexOf('/', name.length() - 2); i > 0; i = name.lastIndexOf('/', i - 1)) {
+				if (!usedDirectories.add(name.substring(0, i + 1))) {
+					break;
+				}
+			}
+		}
+
+		Iterator<Map.Entry<String, byte[]>> iterator = this.entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, byte[]> entry = iterator.next();
+			if (entry.getKey().endsWith("/") && !usedDirectories.contains(entry.getKey())) {
+				this.deadBytes += estimateExtent(entry.getValue());
+				iterator.remove();
+			}
+		}
+	}
+
+	private long writeCentralDirectory(FileChannel channel, long position) throws IOException {
+		long cenOffset = position;
+		if (this.entries.size() > MAX_ENTRIES || cenOffset > MAX_OFFSET) {
+			throw new IOException("Mappings zip needs zip64, which is not supported: " + this.path);
+		}
+
+		ByteBuffer cen = ByteBuffer.allocate(this.entries.values().stream().mapToInt(record -> record.length).sum());
+		this.entries.values().forEach(cen::put);
+		position += writeFully(channel, cen.flip(), position);
+
+		// the entries and the central directory must be on disk before the end record that refers to them
+		channel.force(false);
+
+		ByteBuffer end = ByteBuffer.allocate(END_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		end.putInt(END_SIGNATURE)
+				.putShort((short) 0)
+				.putShort((short) 0)
+				.putShort((short) this.entries.size())
+				.putShort((short) this.entries.size())
+				.putInt((int) (position - cenOffset))
+				.putInt((int) cenOffset)
+				.putShort((short) 0);
+		position += writeFully(channel, end.flip(), position);
+		channel.force(false);
+
+		return position;
+	}
+
+	private void compact() throws IOException {
+		Path tempPath = Utils.getTempSibling(this.path);
+
+		try (FileChannel target = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			long position = 0;
+			for (Map.Entry<String, byte[]> entry : this.entries.entrySet()) {
+				ByteBuffer record = ByteBuffer.wrap(entry.getValue()).order(ByteOrder.LITTLE_ENDIAN);
+				long offset = Integer.toUnsignedLong(record.getInt(42));
+				long extent = this.readExtent(record, offset);
+
+				// copied as is, the entry data is never decompressed
+				long copied = 0;
+				while (copied < extent) {
+					copied += this.channel.transferTo(offset + copied, extent - copied, target);
+				}
+
+				record.putInt(42, (int) position);
+				position += extent;
+			}
+
+			this.writeCentralDirectory(target, position);
+		}
+
+		this.channel.close();
+		Utils.moveAtomically(tempPath, this.path);
+	}
+
+	/**
+	 * @return the exact size of the entry at the given offset, including its local header and data descriptor
+	 */
+	private long readExtent(ByteBuffer record, long offset) throws IOException {
+		ByteBuffer local = readFully(this.channel, offset, LOC_HEADER_SIZE);
+		if (local.getInt(0) != LOC_SIGNATURE) {
+			throw new IOException("Invalid local header at " + offset + " in " + this.path);
+		}
+
+		long compressedSize = Integer.toUnsignedLong(record.getInt(20));
+		long extent = LOC_HEADER_SIZE + Short.toUnsignedInt(local.getShort(26)) + Short.toUnsignedInt(local.getShort(28)) + compressedSize;
+
+		if ((Short.toUnsignedInt(local.getShort(6)) & FLAG_DATA_DESCRIPTOR) != 0) {
+			// the signature of the data descriptor is optional
+			ByteBuffer descriptor = readFully(this.channel, offset + extent, 4);
+			extent += descriptor.getInt(0) == DATA_DESCRIPTOR_SIGNATURE ? 16 : 12;
+		}
+
+		return extent;
+	}
+
+	/**
+	 * Estimates the size of an entry from its central directory record, assuming its local header has the same extra field.
+	 */
+	private static long estimateExtent(byte[] record) {
+		ByteBuffer buffer = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+		int flags = Short.toUnsignedInt(buffer.getShort(8));
+		long compressedSize = Integer.toUnsignedLong(buffer.getInt(20));
+
+		return LOC_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(28)) + Short.toUnsignedInt(buffer.getShort(30)) + compressedSize
+				+ ((flags & FLAG_DATA_DESCRIPTOR) != 0 ? 16 : 0);
+	}
+
+	private record EndRecord(long position, boolean zip64, int diskNumber, int entryCount, long cenSize, long cenOffset, int commentLength) {
+		long archiveEnd() {
+			return this.position + END_HEADER_SIZE + this.commentLength;
+		}
+
+		boolean isUnsupported() {
+			return this.zip64 || this.diskNumber != 0 || this.entryCount == 0xFFFF || this.cenOffset == MAX_OFFSET;
+		}
+	}
+
+	private static int dosTime(LocalDateTime time) {
+		return (time.getYear() - 1980) << 25
+				| time.getMonthValue() << 21
+				| time.getDayOfMonth() << 16
+				| time.getHour() << 11
+				| time.getMinute() << 5
+				| time.getSecond() >> 1;
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of zip file");
+			}
+		}
+
+		return buffer.flip();
+	}
+
+	private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		int length = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + length - buffer.remaining());
+		}
+
+		return length;
+	}
+}
@@ -0,0 +1,239 @@
+package cuchaz.enigma.translation.mapping.serde.enigma;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.config.ConfigPaths;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryFormat;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryMappingsReader;
+import cuchaz.enigma.translation.mapping.serde.binary.BinaryMappingsWriter;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.utils.Utils;
+import org.tinylog.Logger;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk cache of parsed mapping files, so that reopening a mapping directory only parses the files that changed since.
+ *
+ * <p>Files are identified by their path relative to the mapping directory. A cached file is used if its size and modification
+ * time are unchanged, or if they changed but the SHA-1 of its content didn't, like after a checkout. The parsed mappings of each
+ * file are stored in the {@link BinaryFormat binary format}.
+ *
+ * <p>The cache can be used from multiple threads while reading, but must be saved once reading is done.
+ */
+public final class MappingFileCache {
+	private static final int MAGIC = 0x454D4643; // "EMFC"
+	private static final int VERSION = 1;
+	private static final int HASH_LENGTH = 20;
+	/**
+	 * Files modified this recently could still change without changing their modification time, they are always hashed.
+	 */
+	private static final long RACY_MILLIS = 2000;
+	private static final long ALWAYS_HASH = -1;
+
+	private final Path path;
+	private final Map<String, CachedFile> files = new ConcurrentHashMap<>();
+	private final Set<String> used = ConcurrentHashMap.newKeySet();
+	private volatile boolean modified;
+
+	private MappingFileCache(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * @return the default location of the cache of a mapping directory, in the user cache directory
+	 */
+	public static Path getDefaultPath(Path mappingRoot) {
+		byte[] name = mappingRoot.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8);
+		return ConfigPaths.getCachePathRoot().resolve("enigma").resolve("mappings").resolve(HexFormat.of().formatHex(sha1(name)) + ".cache");
+	}
+
+	/**
+	 * Loads a cache, or starts an empty one if it doesn't exist or can't be read.
+	 */
+	public static MappingFileCache load(Path path) {
+		MappingFileCache cache = new MappingFileCache(path);
+		if (!Files.exists(path)) {
+			return cache;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				Logger.info("Ignoring mapping cache {} written by another version", path);
+				return cache;
+			}
+
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				long size = in.readLong();
+				long modified = in.readLong();
+				byte[] hash = new byte[HASH_LENGTH];
+				in.readFully(hash);
+				String firstClass = in.readUTF();
+				byte[] mappings = new byte[in.readInt()];
+				in.readFully(mappings);
+
+				cache.files.put(name, new CachedFile(size, modified, hash, firstClass.isEmpty() ? null : firstClass, mappings));
+			}
+		} catch (IOException e) {
+			Logger.warn(e, "Failed to read mapping cache {}, ignoring it", path);
+			cache.files.clear();
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Reads a file from the cache if it's unchanged, otherwise parses it and caches the result.
+	 */
+	Result read(Path root, Path file, Parser parser) throws IOException, MappingParseException {
+		String name = root.relativize(file).toString();
+		this.used.add(name);
+
+		BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+		CachedFile cached = this.files.get(name);
+		if (cached != null && cached.matches(attributes)) {
+			return cached.decode(file);
+		}
+
+		byte[] content = Files.readAllBytes(file);
+		byte[] hash = sha1(content);
+		long modified = getModifiedTime(attributes);
+
+		if (cached != null && Arrays.equals(hash, cached.hash())) {
+			this.files.put(name, new CachedFile(content.length, modified, hash, cached.firstClass(), cached.mappings()));
+			this.modified = true;
+			return cached.decode(file);
+		}
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		Entry<?> firstEntry;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+			firstEntry = parser.parse(reader, mappings);
+		}
+
+		String firstClass = firstEntry instanceof ClassEntry classEntry ? classEntry.getFullName() : null;
+		this.files.put(name, new CachedFile(content.length, modified, hash, firstClass, BinaryMappingsWriter.INSTANCE.encode(mappings)));
+		this.modified = true;
+
+		return new Result(firstEntry, mappings);
+	}
+
+	/**
+	 * Reads a file from the cache if its size and modification time didn't change, without reading the file itself.
+	 *
+	 * @return the cached file, or {@code null} if it has to be read again
+	 */
+	@Nullable
+	Result readIfUnchanged(Path root, Path file) throws IOException, MappingParseException {
+		String name = root.relativize(file).toString();
+		this.used.add(name);
+
+		CachedFile cached = this.files.get(name);
+		if (cached != null && cached.matches(Files.readAttributes(file, BasicFileAttributes.class))) {
+			return cached.decode(file);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Writes the cache if it changed. Files that weren't read since it was loaded are dropped.
+	 */
+	public void save() throws IOException {
+		if (this.files.keySet().retainAll(this.used)) {
+			this.modified = true;
+		}
+
+		if (!this.modified) {
+			return;
+		}
+
+		Files.createDirectories(this.path.toAbsolutePath().getParent());
+		Path tempPath = Utils.getTempSibling(this.path);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+
+			Map<String, CachedFile> files = Map.copyOf(this.files);
+			out.writeInt(files.size());
+			for (Map.Entry<String, CachedFile> entry : files.entrySet()) {
+				CachedFile file = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeLong(file.size());
+				out.writeLong(file.modified());
+				out.write(file.hash());
+				out.writeUTF(file.firstClass() != null ? file.firstClass() : "");
+				out.writeInt(file.mappings().length);
+				out.write(file.mappings());
+			}
+		}
+
+		Utils.moveAtomically(tempPath, this.path);
+
+		this.modified = false;
+	}
+
+	private static long getModifiedTime(BasicFileAttributes attributes) {
+		long modified = attributes.lastModifiedTime().toMillis();
+		return System.currentTimeMillis() - modified < RACY_MILLIS ? ALWAYS_HASH : modified;
+	}
+
+	private static byte[] sha1(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-1").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			// Algorithm guaranteed to be supported
+			throw new RuntimeException(e);
+		}
+	}
+
+	@FunctionalInterface
+	interface Parser {
+		/**
+		 * @return the first top-level entry of the file, or {@code null} if it is empty
+		 */
+		@Nullable
+		Entry<?> parse(BufferedReader reader, EntryTree<EntryMapping> mappings) throws IOException, MappingParseException;
+	}
+
+	record Result(@Nullable Entry<?> firstEntry, EntryTree<EntryMapping> mappings) {
+	}
+
+	private record CachedFile(long size, long modified, byte[] hash, @Nullable String firstClass, byte[] mappings) {
+		boolean matches(BasicFileAttributes attributes) {
+			return this.modified != ALWAYS_HASH && this.size == attributes.size() && this.modified == attributes.lastModifiedTime().toMillis();
+		}
+
+		Result decode(Path file) throws MappingParseException {
+			EntryTree<EntryMapping> mappings = BinaryMappingsReader.INSTANCE.read(file, ByteBuffer.wrap(this.mappings), ProgressListener.none());
+			return new Result(this.firstClass != null ? new ClassEntry(this.firstClass) : null, mappings);
+		}
+	}
+}
@@ -12,6 +12,7 @@ import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
 import org.tinylog.Logger;
 
 import java.io.BufferedWriter;
@@ -25,18 +26,16 @@ public class RecafMappingsWriter implements MappingsWriter {
 
 	@Override
 	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+		Path tempPath = Utils.getTempSibling(path);
 		try {
-			Files.deleteIfExists(path);
-			Files.createFile(path);
-		} catch (IOException e) {
-			Logger.error(e, "Failed to create file {}", path);
-		}
+			try (BufferedWriter writer = Files.newBufferedWriter(tempPath)) {
+				Lists.newArrayList(mappings)
+						.stream()
+						.map(EntryTreeNode::getEntry)
+						.forEach(entry -> this.writeEntry(writer, mappings, entry));
+			}
 
-		try (BufferedWriter writer = Files.newBufferedWriter(path)) {
-			Lists.newArrayList(mappings)
-					.stream()
-					.map(EntryTreeNode::getEntry)
-					.forEach(entry -> this.writeEntry(writer, mappings, entry));
+			Utils.moveAtomically(tempPath, path);
 		} catch (IOException e) {
 			Logger.error(e, "Failed to write to file {}", path);
 		}
@@ -17,6 +17,7 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import cuchaz.enigma.utils.I18n;
+import cuchaz.enigma.utils.Utils;
 import org.tinylog.Logger;
 
 import java.io.IOException;
@@ -33,13 +34,6 @@ public enum SrgMappingsWriter implements MappingsWriter {
 
 	@Override
 	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
-		try {
-			Files.deleteIfExists(path);
-			Files.createFile(path);
-		} catch (IOException e) {
-			Logger.error(e, "Failed to create file {}", path);
-		}
-
 		List<String> classLines = new ArrayList<>();
 		List<String> fieldLines = new ArrayList<>();
 		List<String> methodLines = new ArrayList<>();
@@ -56,13 +50,18 @@ public enum SrgMappingsWriter implements MappingsWriter {
 		}
 
 		progress.init(3, I18n.translate("progress.mappings.srg_file.writing"));
-		try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(path))) {
-			progress.step(0, I18n.translate("type.classes"));
-			classLines.forEach(writer::println);
-			progress.step(1, I18n.translate("type.fields"));
-			fieldLines.forEach(writer::println);
-			progress.step(2, I18n.translate("type.methods"));
-			methodLines.forEach(writer::println);
+		Path tempPath = Utils.getTempSibling(path);
+		try {
+			try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(tempPath))) {
+				progress.step(0, I18n.translate("type.classes"));
+				classLines.forEach(writer::println);
+				progress.step(1, I18n.translate("type.fields"));
+				fieldLines.forEach(writer::println);
+				progress.step(2, I18n.translate("type.methods"));
+				methodLines.forEach(writer::println);
+			}
+
+			Utils.moveAtomically(tempPath, path);
 		} catch (IOException e) {
 			Logger.error(e, "Failed to write to file {}", path);
 		}
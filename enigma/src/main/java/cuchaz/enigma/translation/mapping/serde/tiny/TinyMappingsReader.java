@@ -81,7 +81,7 @@ public enum TinyMappingsReader implements MappingsReader {
 
 	private MappingPair<FieldEntry, EntryMapping> parseField(String[] tokens) {
 		ClassEntry ownerClass = new ClassEntry(tokens[1]);
-		TypeDescriptor descriptor = new TypeDescriptor(tokens[2]);
+		TypeDescriptor descriptor = TypeDescriptor.parse(tokens[2]);
 
 		FieldEntry obfuscatedEntry = new FieldEntry(ownerClass, tokens[3], descriptor);
 		String mapping = tokens[4];
@@ -90,7 +90,7 @@ public enum TinyMappingsReader implements MappingsReader {
 
 	private MappingPair<MethodEntry, EntryMapping> parseMethod(String[] tokens) {
 		ClassEntry ownerClass = new ClassEntry(tokens[1]);
-		MethodDescriptor descriptor = new MethodDescriptor(tokens[2]);
+		MethodDescriptor descriptor = MethodDescriptor.parse(tokens[2]);
 
 		MethodEntry obfuscatedEntry = new MethodEntry(ownerClass, tokens[3], descriptor);
 		String mapping = tokens[4];
@@ -99,7 +99,7 @@ public enum TinyMappingsReader implements MappingsReader {
 
 	private MappingPair<LocalVariableEntry, EntryMapping> parseArgument(String[] tokens) {
 		ClassEntry ownerClass = new ClassEntry(tokens[1]);
-		MethodDescriptor ownerDescriptor = new MethodDescriptor(tokens[2]);
+		MethodDescriptor ownerDescriptor = MethodDescriptor.parse(tokens[2]);
 		MethodEntry ownerMethod = new MethodEntry(ownerClass, tokens[3], ownerDescriptor);
 		int variableIndex = Integer.parseInt(tokens[4]);
 
@@ -1,7 +1,6 @@
 package cuchaz.enigma.translation.mapping.serde.tiny;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.MappingTranslator;
 import cuchaz.enigma.translation.Translator;
@@ -16,6 +15,7 @@ import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
 import org.tinylog.Logger;
 
 import java.io.BufferedWriter;
@@ -24,8 +24,10 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 public class TinyMappingsWriter implements MappingsWriter {
@@ -36,8 +38,6 @@ public class TinyMappingsWriter implements MappingsWriter {
 	//Possibly add a gui or a way to select the namespaces when exporting from the gui
 	public static final TinyMappingsWriter INSTANCE = new TinyMappingsWriter("intermediary", "named");
 
-	// HACK: as of enigma 0.13.1, some fields seem to appear duplicated?
-	private final Set<String> writtenLines = new HashSet<>();
 	private final String nameObf;
 	private final String nameDeobf;
 
@@ -48,76 +48,86 @@ public class TinyMappingsWriter implements MappingsWriter {
 
 	@Override
 	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
-		try {
-			Files.deleteIfExists(path);
-			Files.createFile(path);
-		} catch (IOException e) {
-			Logger.error(e, "Failed to create file: {}", path);
-		}
+		List<EntryTreeNode<EntryMapping>> roots = mappings.getRootNodes().sorted(Comparator.comparing(node -> node.getEntry().toString())).toList();
+		Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
 
-		try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-			this.writeLine(writer, new String[]{VERSION_CONSTANT, this.nameObf, this.nameDeobf});
+		// HACK: as of enigma 0.13.1, some fields seem to appear duplicated?
+		Set<String> writtenLines = new HashSet<>();
 
-			Lists.newArrayList(mappings).stream()
-					.map(EntryTreeNode::getEntry).sorted(Comparator.comparing(Object::toString))
-					.forEach(entry -> this.writeEntry(writer, mappings, entry));
+		Path tempPath = Utils.getTempSibling(path);
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+				this.writeLine(writer, writtenLines, TAB_JOINER.join(VERSION_CONSTANT, this.nameObf, this.nameDeobf));
+
+				// the name of every entry starts with the name of its top-level class, so writing each top-level class
+				// with all of its children gives the same order as sorting every entry by name
+				roots.parallelStream().map(root -> {
+					List<String> lines = new ArrayList<>();
+					this.writeEntry(lines, mappings, translator, root.getEntry());
+					return lines;
+				}).forEachOrdered(lines -> {
+					for (String line : lines) {
+						this.writeLine(writer, writtenLines, line);
+					}
+				});
+			}
+
+			Utils.moveAtomically(tempPath, path);
 		} catch (IOException e) {
 			Logger.error(e, "Failed to write mappings to file: {}", path);
 		}
 	}
 
-	private void writeEntry(Writer writer, EntryTree<EntryMapping> mappings, Entry<?> entry) {
+	private void writeEntry(List<String> lines, EntryTree<EntryMapping> mappings, Translator translator, Entry<?> entry) {
 		EntryTreeNode<EntryMapping> node = mappings.findNode(entry);
 		if (node == null) {
 			return;
 		}
 
-		Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
-
 		EntryMapping mapping = mappings.get(entry);
 
 		// Do not write mappings without deobfuscated name since tiny v1 doesn't
 		// support comments anyway
 		if (mapping != null && mapping.targetName() != null) {
 			if (entry instanceof ClassEntry classEntry) {
-				this.writeClass(writer, classEntry, translator);
+				this.writeClass(lines, classEntry, translator);
 			} else if (entry instanceof FieldEntry) {
-				this.writeLine(writer, this.serializeEntry(entry, mapping.targetName()));
+				lines.add(TAB_JOINER.join(this.serializeEntry(entry, mapping.targetName())));
 			} else if (entry instanceof MethodEntry) {
-				this.writeLine(writer, this.serializeEntry(entry, mapping.targetName()));
+				lines.add(TAB_JOINER.join(this.serializeEntry(entry, mapping.targetName())));
 			}
 		}
 
-		this.writeChildren(writer, mappings, node);
+		this.writeChildren(lines, mappings, translator, node);
 	}
 
-	private void writeChildren(Writer writer, EntryTree<EntryMapping> mappings, EntryTreeNode<EntryMapping> node) {
+	private void writeChildren(List<String> lines, EntryTree<EntryMapping> mappings, Translator translator, EntryTreeNode<EntryMapping> node) {
 		node.getChildren().stream()
 				.filter(FieldEntry.class::isInstance).sorted()
-				.forEach(child -> this.writeEntry(writer, mappings, child));
+				.forEach(child -> this.writeEntry(lines, mappings, translator, child));
 
 		node.getChildren().stream()
 				.filter(MethodEntry.class::isInstance).sorted()
-				.forEach(child -> this.writeEntry(writer, mappings, child));
+				.forEach(child -> this.writeEntry(lines, mappings, translator, child));
 
 		node.getChildren().stream()
 				.filter(ClassEntry.class::isInstance).sorted()
-				.forEach(child -> this.writeEntry(writer, mappings, child));
+				.forEach(child -> this.writeEntry(lines, mappings, translator, child));
 	}
 
-	private void writeClass(Writer writer, ClassEntry entry, Translator translator) {
+	private void writeClass(List<String> lines, ClassEntry entry, Translator translator) {
 		ClassEntry translatedEntry = translator.translate(entry);
 
 		String obfClassName = entry.getFullName();
 		String deobfClassName = translatedEntry.getFullName();
-		this.writeLine(writer, new String[]{"CLASS", obfClassName, deobfClassName});
+		lines.add(TAB_JOINER.join("CLASS", obfClassName, deobfClassName));
 	}
 
-	private void writeLine(Writer writer, String[] data) {
+	private void writeLine(Writer writer, Set<String> writtenLines, String line) {
 		try {
-			String line = TAB_JOINER.join(data) + "\n";
-			if (this.writtenLines.add(line)) {
+			if (writtenLines.add(line)) {
 				writer.write(line);
+				writer.write('\n');
 			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
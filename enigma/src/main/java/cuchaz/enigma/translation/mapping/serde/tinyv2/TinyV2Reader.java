@@ -22,8 +22,12 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public final class TinyV2Reader implements MappingsReader {
 	private static final String MINOR_VERSION = "0";
@@ -38,172 +42,121 @@ public final class TinyV2Reader implements MappingsReader {
 	// general properties
 	private static final int STATE_SIZE = IN_PARAMETER + 1;
 	private static final int[] INDENT_CLEAR_START = {IN_HEADER, IN_METHOD, IN_PARAMETER, STATE_SIZE};
+	private static final int MIN_BLOCK_SIZE = 1 << 16;
 
 	@Override
 	public EntryTree<EntryMapping> read(Path path, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
-		return this.read(path, Files.readAllLines(path, StandardCharsets.UTF_8), progress);
+		return this.read(path, Files.readAllBytes(path), progress);
 	}
 
-	private EntryTree<EntryMapping> read(Path path, List<String> lines, ProgressListener progress) throws MappingParseException {
-		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
-
-		progress.init(lines.size(), "progress.mappings.tiny_v2.loading");
-
-		BitSet state = new BitSet(STATE_SIZE);
-		@SuppressWarnings("unchecked")
-		MappingPair<? extends Entry<?>, RawEntryMapping>[] holds = new MappingPair[STATE_SIZE];
-		boolean escapeNames = false;
-
-		for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
-			try {
-				progress.step(lineNumber, "");
-				String line = lines.get(lineNumber);
-
-				int indent = 0;
-				while (line.charAt(indent) == '\t')
-					indent++;
-
-				String[] parts = line.substring(indent).split("\t", -1);
-				if (parts.length == 0 || indent >= INDENT_CLEAR_START.length)
-					throw new IllegalArgumentException("Invalid format");
-
-				// clean and register stuff in stack
-				for (int i = INDENT_CLEAR_START[indent]; i < STATE_SIZE; i++) {
-					state.clear(i);
-					if (holds[i] != null) {
-						bakeHeld(mappings, holds[i]);
-						holds[i] = null;
-					}
-				}
-
-				switch (indent) {
-					case 0:
-						switch (parts[0]) {
-							case "tiny" -> { // header
-								if (lineNumber != 0) {
-									throw new IllegalArgumentException("Header can only be on the first line");
-								}
-								if (parts.length < 5) {
-									throw new IllegalArgumentException("Not enough header columns, needs at least 5");
-								}
-								if (!"2".equals(parts[1]) || !MINOR_VERSION.equals(parts[2])) {
-									throw new IllegalArgumentException("Unsupported TinyV2 version, requires major " + "2" + " and minor " + MINOR_VERSION + "");
-								}
-								state.set(IN_HEADER);
-							}
-							case "c" -> { // class
-								state.set(IN_CLASS);
-								holds[IN_CLASS] = this.parseClass(parts, escapeNames);
-							}
-							default -> this.unsupportKey(parts);
+	/**
+	 * Reads the header serially, then splits the rest of the file into blocks of top-level class lines
+	 * that are tokenized and parsed in parallel, and merged in file order.
+	 */
+	private EntryTree<EntryMapping> read(Path path, byte[] content, ProgressListener progress) throws MappingParseException {
+		List<Block> blocks = splitBlocks(content);
+
+		progress.init(blocks.size(), "progress.mappings.tiny_v2.loading");
+
+		BlockReader headerReader = new BlockReader(path, false);
+		headerReader.read(blocks.get(0));
+		boolean escapeNames = headerReader.escapeNames;
+
+		AtomicInteger steps = new AtomicInteger(1);
+		List<List<MappingPair<? extends Entry<?>, EntryMapping>>> blockMappings;
+		try {
+			blockMappings = Stream.concat(
+					Stream.of(headerReader.finish()),
+					blocks.subList(1, blocks.size()).parallelStream().map(block -> {
+						progress.step(steps.getAndIncrement(), "");
+
+						BlockReader reader = new BlockReader(path, escapeNames);
+						try {
+							reader.read(block);
+						} catch (MappingParseException e) {
+							throw new ReadException(e);
 						}
 
-						break;
-					case 1:
-						if (state.get(IN_HEADER)) {
-							if (parts[0].equals("esacpe-names")) {
-								escapeNames = true;
-							}
-
-							break;
-						}
-
-						if (state.get(IN_CLASS)) {
-							switch (parts[0]) {
-								case "m" -> { // method
-									state.set(IN_METHOD);
-									holds[IN_METHOD] = this.parseMethod(holds[IN_CLASS], parts, escapeNames);
-								}
-								case "f" -> { // field
-									state.set(IN_FIELD);
-									holds[IN_FIELD] = this.parseField(holds[IN_CLASS], parts, escapeNames);
-								}
-								case "c" -> // class javadoc
-										this.addJavadoc(holds[IN_CLASS], parts);
-								default -> this.unsupportKey(parts);
-							}
-							break;
-						}
+						return reader.finish();
+					})
+			).toList();
+		} catch (ReadException e) {
+			throw e.getCause();
+		}
 
-						this.unsupportKey(parts);
-					case 2:
-						if (state.get(IN_METHOD)) {
-							switch (parts[0]) {
-								case "p": // parameter
-									state.set(IN_PARAMETER);
-									holds[IN_PARAMETER] = this.parseArgument(holds[IN_METHOD], parts, escapeNames);
-									break;
-								case "v": // local variable
-									// TODO add local var mapping
-									break;
-								case "c": // method javadoc
-									this.addJavadoc(holds[IN_METHOD], parts);
-									break;
-								default:
-									this.unsupportKey(parts);
-							}
-							break;
-						}
+		// inserting into the tree is cheap next to parsing, and is done in file order
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		for (List<MappingPair<? extends Entry<?>, EntryMapping>> pairs : blockMappings) {
+			for (MappingPair<? extends Entry<?>, EntryMapping> pair : pairs) {
+				mappings.insert(pair.getEntry(), pair.getMapping());
+			}
+		}
 
-						if (state.get(IN_FIELD)) {
-							if (parts[0].equals("c")) { // field javadoc
-								this.addJavadoc(holds[IN_FIELD], parts);
-							} else {
-								this.unsupportKey(parts);
-							}
-							break;
-						}
-						this.unsupportKey(parts);
-					case 3:
-						if (state.get(IN_PARAMETER)) {
-							if (parts[0].equals("c")) {
-								this.addJavadoc(holds[IN_PARAMETER], parts);
-							} else {
-								this.unsupportKey(parts);
-							}
-							break;
-						}
-						this.unsupportKey(parts);
-					default:
-						this.unsupportKey(parts);
-				}
+		return mappings;
+	}
 
-			} catch (Exception e) {
-				throw new MappingParseException(path, lineNumber + 1, e);
+	/**
+	 * Splits the content at the start of lines that declare a top-level class. The first block holds the header,
+	 * and is empty if there is no header.
+	 */
+	private static List<Block> splitBlocks(byte[] content) {
+		int targetSize = Math.max(MIN_BLOCK_SIZE, content.length / (ForkJoinPool.getCommonPoolParallelism() * 4));
+
+		List<Block> blocks = new ArrayList<>();
+		int blockStart = 0;
+		int blockLine = 0;
+		boolean inHeader = true;
+
+		int line = 0;
+		for (int pos = 0; pos < content.length; line++) {
+			boolean classLine = content[pos] == 'c' && pos + 1 < content.length && content[pos + 1] == '\t';
+			if (classLine && (inHeader || pos - blockStart >= targetSize)) {
+				blocks.add(new Block(content, blockStart, pos, blockLine));
+				blockStart = pos;
+				blockLine = line;
+				inHeader = false;
 			}
+
+			int lineEnd = indexOf(content, (byte) '\n', pos);
+			pos = lineEnd < 0 ? content.length : lineEnd + 1;
 		}
 
-		//bake any remainders
-		for (MappingPair<? extends Entry<?>, RawEntryMapping> hold : holds) {
-			if (hold != null) {
-				bakeHeld(mappings, hold);
+		blocks.add(new Block(content, blockStart, content.length, blockLine));
+
+		return blocks;
+	}
+
+	private static int indexOf(byte[] content, byte b, int from) {
+		for (int i = from; i < content.length; i++) {
+			if (content[i] == b) {
+				return i;
 			}
 		}
 
-		return mappings;
+		return -1;
 	}
 
-	private static void bakeHeld(EntryTree<EntryMapping> mappings, MappingPair<? extends Entry<?>, RawEntryMapping> hold2) {
+	private static void bakeHeld(List<MappingPair<? extends Entry<?>, EntryMapping>> mappings, MappingPair<? extends Entry<?>, RawEntryMapping> hold2) {
 		RawEntryMapping mapping = hold2.getMapping();
 		if (mapping != null) {
 			EntryMapping baked = mapping.bake();
-			mappings.insert(hold2.getEntry(), baked);
+			mappings.add(new MappingPair<>(hold2.getEntry(), baked));
 		}
 	}
 
-	private void unsupportKey(String[] parts) {
+	private static void unsupportKey(String[] parts) {
 		throw new IllegalArgumentException("Unsupported key " + parts[0]);
 	}
 
-	private void addJavadoc(MappingPair<? extends Entry<?>, RawEntryMapping> pair, String[] parts) {
+	private static void addJavadoc(MappingPair<? extends Entry<?>, RawEntryMapping> pair, String[] parts) {
 		if (parts.length != 2) {
 			throw new IllegalArgumentException("Invalid javadoc declaration");
 		}
 
-		this.addJavadoc(pair, parts[1]);
+		addJavadoc(pair, parts[1]);
 	}
 
-	private MappingPair<ClassEntry, RawEntryMapping> parseClass(String[] tokens, boolean escapeNames) {
+	private static MappingPair<ClassEntry, RawEntryMapping> parseClass(String[] tokens, boolean escapeNames) {
 		ClassEntry obfuscatedEntry = new ClassEntry(unescapeOpt(tokens[1], escapeNames));
 		if (tokens.length <= 2)
 			return new MappingPair<>(obfuscatedEntry);
@@ -212,9 +165,9 @@ public final class TinyV2Reader implements MappingsReader {
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
-	private MappingPair<FieldEntry, RawEntryMapping> parseField(MappingPair<? extends Entry<?>, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
+	private static MappingPair<FieldEntry, RawEntryMapping> parseField(MappingPair<? extends Entry<?>, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
 		ClassEntry ownerClass = (ClassEntry) parent.getEntry();
-		TypeDescriptor descriptor = new TypeDescriptor(unescapeOpt(tokens[1], escapeNames));
+		TypeDescriptor descriptor = TypeDescriptor.parse(unescapeOpt(tokens[1], escapeNames));
 
 		FieldEntry obfuscatedEntry = new FieldEntry(ownerClass, unescapeOpt(tokens[2], escapeNames), descriptor);
 		if (tokens.length <= 3)
@@ -223,9 +176,9 @@ public final class TinyV2Reader implements MappingsReader {
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
-	private MappingPair<MethodEntry, RawEntryMapping> parseMethod(MappingPair<? extends Entry<?>, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
+	private static MappingPair<MethodEntry, RawEntryMapping> parseMethod(MappingPair<? extends Entry<?>, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
 		ClassEntry ownerClass = (ClassEntry) parent.getEntry();
-		MethodDescriptor descriptor = new MethodDescriptor(unescapeOpt(tokens[1], escapeNames));
+		MethodDescriptor descriptor = MethodDescriptor.parse(unescapeOpt(tokens[1], escapeNames));
 
 		MethodEntry obfuscatedEntry = new MethodEntry(ownerClass, unescapeOpt(tokens[2], escapeNames), descriptor);
 		if (tokens.length <= 3)
@@ -234,7 +187,7 @@ public final class TinyV2Reader implements MappingsReader {
 		return new MappingPair<>(obfuscatedEntry, new RawEntryMapping(mapping));
 	}
 
-	private void addJavadoc(MappingPair<? extends Entry<?>, RawEntryMapping> pair, String javadoc) {
+	private static void addJavadoc(MappingPair<? extends Entry<?>, RawEntryMapping> pair, String javadoc) {
 		RawEntryMapping mapping = pair.getMapping();
 		if (mapping == null) {
 			throw new IllegalArgumentException("Javadoc requires a mapping in enigma!");
@@ -243,7 +196,7 @@ public final class TinyV2Reader implements MappingsReader {
 	}
 
 
-	private MappingPair<LocalVariableEntry, RawEntryMapping> parseArgument(MappingPair<? extends Entry<?>, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
+	private static MappingPair<LocalVariableEntry, RawEntryMapping> parseArgument(MappingPair<? extends Entry<?>, RawEntryMapping> parent, String[] tokens, boolean escapeNames) {
 		MethodEntry ownerMethod = (MethodEntry) parent.getEntry();
 		int variableIndex = Integer.parseInt(tokens[1]);
 
@@ -259,4 +212,241 @@ public final class TinyV2Reader implements MappingsReader {
 	private static String unescapeOpt(String raw, boolean escapedStrings) {
 		return escapedStrings ? MappingHelper.unescape(raw) : raw;
 	}
+
+	private static final class BlockReader {
+		private final Path path;
+		private final List<MappingPair<? extends Entry<?>, EntryMapping>> mappings = new ArrayList<>();
+		private final BitSet state = new BitSet(STATE_SIZE);
+		@SuppressWarnings("unchecked")
+		private final MappingPair<? extends Entry<?>, RawEntryMapping>[] holds = new MappingPair[STATE_SIZE];
+		private boolean escapeNames;
+
+		private BlockReader(Path path, boolean escapeNames) {
+			this.path = path;
+			this.escapeNames = escapeNames;
+		}
+
+		private void read(Block block) throws MappingParseException {
+			BitSet state = this.state;
+			MappingPair<? extends Entry<?>, RawEntryMapping>[] holds = this.holds;
+			List<MappingPair<? extends Entry<?>, EntryMapping>> mappings = this.mappings;
+			LineTokenizer tokenizer = new LineTokenizer(block);
+
+			while (tokenizer.next()) {
+				int lineNumber = tokenizer.lineNumber;
+				boolean escapeNames = this.escapeNames;
+
+				try {
+					int indent = tokenizer.indent;
+					String[] parts = tokenizer.parts;
+					if (parts.length == 0 || indent >= INDENT_CLEAR_START.length)
+						throw new IllegalArgumentException("Invalid format");
+
+					// clean and register stuff in stack
+					for (int i = INDENT_CLEAR_START[indent]; i < STATE_SIZE; i++) {
+						state.clear(i);
+						if (holds[i] != null) {
+							bakeHeld(mappings, holds[i]);
+							holds[i] = null;
+						}
+					}
+
+					switch (indent) {
+						case 0:
+							switch (parts[0]) {
+								case "tiny" -> { // header
+									if (lineNumber != 0) {
+										throw new IllegalArgumentException("Header can only be on the first line");
+									}
+									if (parts.length < 5) {
+										throw new IllegalArgumentException("Not enough header columns, needs at least 5");
+									}
+									if (!"2".equals(parts[1]) || !MINOR_VERSION.equals(parts[2])) {
+										throw new IllegalArgumentException("Unsupported TinyV2 version, requires major " + "2" + " and minor " + MINOR_VERSION + "");
+									}
+									state.set(IN_HEADER);
+								}
+								case "c" -> { // class
+									state.set(IN_CLASS);
+									holds[IN_CLASS] = parseClass(parts, escapeNames);
+								}
+								default -> unsupportKey(parts);
+							}
+
+							break;
+						case 1:
+							if (state.get(IN_HEADER)) {
+								if (parts[0].equals("esacpe-names")) {
+									this.escapeNames = true;
+								}
+
+								break;
+							}
+
+							if (state.get(IN_CLASS)) {
+								switch (parts[0]) {
+									case "m" -> { // method
+										state.set(IN_METHOD);
+										holds[IN_METHOD] = parseMethod(holds[IN_CLASS], parts, escapeNames);
+									}
+									case "f" -> { // field
+										state.set(IN_FIELD);
+										holds[IN_FIELD] = parseField(holds[IN_CLASS], parts, escapeNames);
+									}
+									case "c" -> // class javadoc
+											addJavadoc(holds[IN_CLASS], parts);
+									default -> unsupportKey(parts);
+								}
+								break;
+							}
+
+							unsupportKey(parts);
+						case 2:
+							if (state.get(IN_METHOD)) {
+								switch (parts[0]) {
+									case "p": // parameter
+										state.set(IN_PARAMETER);
+										holds[IN_PARAMETER] = parseArgument(holds[IN_METHOD], parts, escapeNames);
+										break;
+									case "v": // local variable
+										// TODO add local var mapping
+										break;
+									case "c": // method javadoc
+										addJavadoc(holds[IN_METHOD], parts);
+										break;
+									default:
+										unsupportKey(parts);
+								}
+								break;
+							}
+
+							if (state.get(IN_FIELD)) {
+								if (parts[0].equals("c")) { // field javadoc
+									addJavadoc(holds[IN_FIELD], parts);
+								} else {
+									unsupportKey(parts);
+								}
+								break;
+							}
+							unsupportKey(parts);
+						case 3:
+							if (state.get(IN_PARAMETER)) {
+								if (parts[0].equals("c")) {
+									addJavadoc(holds[IN_PARAMETER], parts);
+								} else {
+									unsupportKey(parts);
+								}
+								break;
+							}
+							unsupportKey(parts);
+						default:
+							unsupportKey(parts);
+					}
+
+				} catch (Exception e) {
+					throw new MappingParseException(this.path, lineNumber + 1, e);
+				}
+			}
+		}
+
+		private List<MappingPair<? extends Entry<?>, EntryMapping>> finish() {
+			//bake any remainders
+			for (MappingPair<? extends Entry<?>, RawEntryMapping> hold : this.holds) {
+				if (hold != null) {
+					bakeHeld(this.mappings, hold);
+				}
+			}
+
+			return this.mappings;
+		}
+	}
+
+	private record Block(byte[] content, int start, int end, int firstLine) {
+	}
+
+	/**
+	 * Splits the lines of a block at tabs, without decoding the line as a whole.
+	 * Tabs and line breaks are ASCII, so they never occur inside a multibyte UTF-8 sequence.
+	 */
+	private static final class LineTokenizer {
+		private final byte[] content;
+		private final int end;
+		private int pos;
+		private int lineNumber;
+		private int indent;
+		private String[] parts;
+
+		private LineTokenizer(Block block) {
+			this.content = block.content();
+			this.end = block.end();
+			this.pos = block.start();
+			this.lineNumber = block.firstLine() - 1;
+		}
+
+		private boolean next() {
+			if (this.pos >= this.end) {
+				return false;
+			}
+
+			this.lineNumber++;
+
+			int lineEnd = this.pos;
+			while (lineEnd < this.end && this.content[lineEnd] != '\n') {
+				lineEnd++;
+			}
+
+			int nextPos = lineEnd + 1;
+			if (lineEnd > this.pos && this.content[lineEnd - 1] == '\r') {
+				lineEnd--;
+			}
+
+			int start = this.pos;
+			while (start < lineEnd && this.content[start] == '\t') {
+				start++;
+			}
+
+			this.indent = start - this.pos;
+			this.pos = nextPos;
+
+			if (start == lineEnd) {
+				// blank lines are invalid
+				this.parts = new String[0];
+				return true;
+			}
+
+			int count = 1;
+			for (int i = start; i < lineEnd; i++) {
+				if (this.content[i] == '\t') {
+					count++;
+				}
+			}
+
+			String[] parts = new String[count];
+			int part = 0;
+			int partStart = start;
+			for (int i = start; i < lineEnd; i++) {
+				if (this.content[i] == '\t') {
+					parts[part++] = new String(this.content, partStart, i - partStart, StandardCharsets.UTF_8);
+					partStart = i + 1;
+				}
+			}
+			parts[part] = new String(this.content, partStart, lineEnd - partStart, StandardCharsets.UTF_8);
+
+			this.parts = parts;
+			return true;
+		}
+	}
+
+	private static final class ReadException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private ReadException(MappingParseException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized MappingParseException getCause() {
+			return (MappingParseException) super.getCause();
+		}
+	}
 }
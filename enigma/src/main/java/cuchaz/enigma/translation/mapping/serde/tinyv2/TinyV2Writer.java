@@ -6,7 +6,6 @@ import cuchaz.enigma.translation.mapping.EntryMap;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
-import cuchaz.enigma.translation.mapping.serde.LfPrintWriter;
 import cuchaz.enigma.translation.mapping.serde.MappingHelper;
 import cuchaz.enigma.translation.mapping.serde.MappingsWriter;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
@@ -16,10 +15,14 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
 import org.tinylog.Logger;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Deque;
@@ -37,28 +40,48 @@ public final class TinyV2Writer implements MappingsWriter {
 		this.deobfHeader = deobfHeader;
 	}
 
+	/**
+	 * Classes are rendered in parallel and written in the iteration order of the tree, so the output doesn't depend on scheduling.
+	 */
 	@Override
 	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters parameters) {
 		List<EntryTreeNode<EntryMapping>> classes = StreamSupport.stream(mappings.spliterator(), false).filter(node -> node.getEntry() instanceof ClassEntry).toList();
 
-		try (PrintWriter writer = new LfPrintWriter(Files.newBufferedWriter(path))) {
-			writer.println("tiny\t2\t" + MINOR_VERSION + "\t" + this.obfHeader + "\t" + this.deobfHeader);
-
-			// no escape names
-
-			for (EntryTreeNode<EntryMapping> node : classes) {
-				this.writeClass(writer, node, mappings);
+		Path tempPath = Utils.getTempSibling(path);
+		try {
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+				out.write(("tiny\t2\t" + MINOR_VERSION + "\t" + this.obfHeader + "\t" + this.deobfHeader + "\n").getBytes(StandardCharsets.UTF_8));
+
+				// no escape names
+
+				try {
+					classes.parallelStream().map(node -> {
+						StringBuilder builder = new StringBuilder();
+						this.writeClass(builder, node, mappings);
+						return builder.toString().getBytes(StandardCharsets.UTF_8);
+					}).forEachOrdered(bytes -> {
+						try {
+							out.write(bytes);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
 			}
+
+			Utils.moveAtomically(tempPath, path);
 		} catch (IOException ex) {
 			Logger.error(ex, "Failed to write mappings to {}", path);
 		}
 	}
 
-	private void writeClass(PrintWriter writer, EntryTreeNode<EntryMapping> node, EntryMap<EntryMapping> tree) {
-		writer.print("c\t");
+	private void writeClass(StringBuilder writer, EntryTreeNode<EntryMapping> node, EntryMap<EntryMapping> tree) {
+		writer.append("c\t");
 		ClassEntry classEntry = (ClassEntry) node.getEntry();
 		String fullName = classEntry.getFullName();
-		writer.print(fullName);
+		writer.append(fullName);
 		Deque<String> parts = new LinkedList<>();
 		do {
 			EntryMapping mapping = tree.get(classEntry);
@@ -72,11 +95,11 @@ public final class TinyV2Writer implements MappingsWriter {
 
 		String mappedName = String.join("$", parts);
 
-		writer.print("\t");
+		writer.append("\t");
 
-		writer.print(mappedName); // todo escaping when we have v2 fixed later
+		writer.append(mappedName); // todo escaping when we have v2 fixed later
 
-		writer.println();
+		writer.append('\n');
 
 		this.writeComment(writer, node.getValue(), 1);
 
@@ -90,13 +113,13 @@ public final class TinyV2Writer implements MappingsWriter {
 		}
 	}
 
-	private void writeMethod(PrintWriter writer, EntryTreeNode<EntryMapping> node) {
-		writer.print(this.indent(1));
-		writer.print("m\t");
-		writer.print(((MethodEntry) node.getEntry()).getDesc().toString());
-		writer.print("\t");
-		writer.print(node.getEntry().getName());
-		writer.print("\t");
+	private void writeMethod(StringBuilder writer, EntryTreeNode<EntryMapping> node) {
+		writer.append(this.indent(1));
+		writer.append("m\t");
+		writer.append(((MethodEntry) node.getEntry()).getDesc().toString());
+		writer.append("\t");
+		writer.append(node.getEntry().getName());
+		writer.append("\t");
 		EntryMapping mapping = node.getValue();
 
 		if (mapping == null) {
@@ -104,9 +127,9 @@ public final class TinyV2Writer implements MappingsWriter {
 		}
 
 		if (mapping.targetName() != null) {
-			writer.println(mapping.targetName());
+			writer.append(mapping.targetName()).append('\n');
 		} else {
-			writer.println(node.getEntry().getName()); // todo fix v2 name inference
+			writer.append(node.getEntry().getName()).append('\n'); // todo fix v2 name inference
 		}
 
 		this.writeComment(writer, mapping, 2);
@@ -120,16 +143,16 @@ public final class TinyV2Writer implements MappingsWriter {
 		}
 	}
 
-	private void writeField(PrintWriter writer, EntryTreeNode<EntryMapping> node) {
+	private void writeField(StringBuilder writer, EntryTreeNode<EntryMapping> node) {
 		if (node.getValue() == null || node.getValue().equals(EntryMapping.DEFAULT))
 			return; // Shortcut
 
-		writer.print(this.indent(1));
-		writer.print("f\t");
-		writer.print(((FieldEntry) node.getEntry()).getDesc().toString());
-		writer.print("\t");
-		writer.print(node.getEntry().getName());
-		writer.print("\t");
+		writer.append(this.indent(1));
+		writer.append("f\t");
+		writer.append(((FieldEntry) node.getEntry()).getDesc().toString());
+		writer.append("\t");
+		writer.append(node.getEntry().getName());
+		writer.append("\t");
 		EntryMapping mapping = node.getValue();
 
 		if (mapping == null) {
@@ -137,40 +160,40 @@ public final class TinyV2Writer implements MappingsWriter {
 		}
 
 		if (mapping.targetName() != null) {
-			writer.println(mapping.targetName());
+			writer.append(mapping.targetName()).append('\n');
 		} else {
-			writer.println(node.getEntry().getName()); // todo fix v2 name inference
+			writer.append(node.getEntry().getName()).append('\n'); // todo fix v2 name inference
 		}
 
 		this.writeComment(writer, mapping, 2);
 	}
 
-	private void writeParameter(PrintWriter writer, EntryTreeNode<EntryMapping> node) {
+	private void writeParameter(StringBuilder writer, EntryTreeNode<EntryMapping> node) {
 		if (node.getValue() == null || node.getValue().equals(EntryMapping.DEFAULT))
 			return; // Shortcut
 
-		writer.print(this.indent(2));
-		writer.print("p\t");
-		writer.print(((LocalVariableEntry) node.getEntry()).getIndex());
-		writer.print("\t");
-//		writer.print(node.getEntry().getName());
-		writer.print("\t");
+		writer.append(this.indent(2));
+		writer.append("p\t");
+		writer.append(((LocalVariableEntry) node.getEntry()).getIndex());
+		writer.append("\t");
+//		writer.append(node.getEntry().getName());
+		writer.append("\t");
 		EntryMapping mapping = node.getValue();
 		if (mapping == null || mapping.targetName() == null) {
-			writer.println(); // todo ???
+			writer.append('\n'); // todo ???
 		} else {
-			writer.println(mapping.targetName());
+			writer.append(mapping.targetName()).append('\n');
 
 			this.writeComment(writer, mapping, 3);
 		}
 	}
 
-	private void writeComment(PrintWriter writer, EntryMapping mapping, int indent) {
+	private void writeComment(StringBuilder writer, EntryMapping mapping, int indent) {
 		if (mapping != null && mapping.javadoc() != null) {
-			writer.print(this.indent(indent));
-			writer.print("c\t");
-			writer.print(MappingHelper.escape(mapping.javadoc()));
-			writer.println();
+			writer.append(this.indent(indent));
+			writer.append("c\t");
+			writer.append(MappingHelper.escape(mapping.javadoc()));
+			writer.append('\n');
 		}
 	}
 
@@ -10,6 +10,8 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Stream;
 
 public class DeltaTrackingTree<T> implements EntryTree<T> {
@@ -18,9 +20,26 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	private EntryTree<T> deltaReference;
 	private EntryTree<Object> changes = new HashEntryTree<>();
 
+	private final List<ChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+
 	public DeltaTrackingTree(EntryTree<T> delegate) {
 		this.delegate = delegate;
-		this.deltaReference = new HashEntryTree<>(delegate);
+
+		if (delegate instanceof LazyEntryTree<T> lazyDelegate) {
+			// classes that aren't loaded yet can't have changed, they are added to the reference as they are loaded
+			synchronized (lazyDelegate) {
+				this.deltaReference = new HashEntryTree<>(lazyDelegate.getLoaded());
+				lazyDelegate.addLoadListener((root, classTree) -> {
+					for (EntryTreeNode<T> node : classTree) {
+						if (node.hasValue()) {
+							this.deltaReference.insert(node.getEntry(), node.getValue());
+						}
+					}
+				});
+			}
+		} else {
+			this.deltaReference = new HashEntryTree<>(delegate);
+		}
 	}
 
 	public DeltaTrackingTree() {
@@ -30,14 +49,48 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	@Override
 	public void insert(Entry<?> entry, T value) {
 		this.trackChange(entry);
-		this.delegate.insert(entry, value);
+
+		if (this.listeners.isEmpty()) {
+			this.delegate.insert(entry, value);
+		} else {
+			T oldValue = this.delegate.get(entry);
+			this.delegate.insert(entry, value);
+			this.fireChange(entry, oldValue, value);
+		}
 	}
 
 	@Nullable
 	@Override
 	public T remove(Entry<?> entry) {
 		this.trackChange(entry);
-		return this.delegate.remove(entry);
+
+		T oldValue = this.delegate.remove(entry);
+		if (oldValue != null) {
+			this.fireChange(entry, oldValue, null);
+		}
+
+		return oldValue;
+	}
+
+	private void fireChange(Entry<?> entry, @Nullable T oldValue, @Nullable T newValue) {
+		for (ChangeListener<T> listener : this.listeners) {
+			listener.onChange(entry, oldValue, newValue);
+		}
+	}
+
+	/**
+	 * Adds a listener that is notified of every value inserted into or removed from this tree.
+	 */
+	public void addListener(ChangeListener<T> listener) {
+		this.listeners.add(listener);
+	}
+
+	public void removeListener(ChangeListener<T> listener) {
+		this.listeners.remove(listener);
+	}
+
+	public EntryTree<T> getDelegate() {
+		return this.delegate;
 	}
 
 	public void trackChange(Entry<?> entry) {
@@ -99,12 +152,37 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 		return delta;
 	}
 
+	/**
+	 * Takes the delta like {@link #takeDelta()}, along with a copy of the current mappings that isn't affected by later changes.
+	 * Lazily loaded mappings are copied without loading them.
+	 */
+	public Snapshot<T> takeSnapshot() {
+		EntryTree<T> mappings = this.delegate instanceof LazyEntryTree<T> lazyDelegate ? lazyDelegate.copy() : new HashEntryTree<>(this.delegate);
+		return new Snapshot<>(mappings, this.takeDelta());
+	}
+
 	private void resetDelta() {
-		this.deltaReference = new HashEntryTree<>(this.delegate);
+		if (this.delegate instanceof LazyEntryTree<T> lazyDelegate) {
+			// like in the constructor, the classes that aren't loaded yet are added by the load listener, which only sees the new
+			// reference from now on so that the previous one isn't modified anymore once it's handed out in a delta
+			synchronized (lazyDelegate) {
+				this.deltaReference = new HashEntryTree<>(lazyDelegate.getLoaded());
+			}
+		} else {
+			this.deltaReference = new HashEntryTree<>(this.delegate);
+		}
+
 		this.changes = new HashEntryTree<>();
 	}
 
 	public boolean isDirty() {
 		return !this.changes.isEmpty();
 	}
+
+	public record Snapshot<T>(EntryTree<T> mappings, MappingDelta<T> delta) {
+	}
+
+	public interface ChangeListener<T> {
+		void onChange(Entry<?> entry, @Nullable T oldValue, @Nullable T newValue);
+	}
 }
@@ -0,0 +1,318 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Entry tree whose top-level classes are loaded on first access.
+ *
+ * <p>Every top-level class has a {@link Source} that loads its subtree, usually by parsing a mapping file. Accessing an entry loads
+ * the top-level class it belongs to, while operations on the whole tree (iterating it, listing its roots...) load everything first.
+ * The value of a top-level class itself can be provided up front, so that looking up class names doesn't load anything.
+ *
+ * <p>If a class fails to load, it stays unloaded and every access to it throws a {@link LoadException}, so that saving
+ * the tree fails rather than writing the class without its mappings.
+ *
+ * <p>The remaining classes can be loaded by a background thread with {@link #loadInBackground()}. Loading is thread safe, but like
+ * other trees, modifying it is not.
+ */
+public class LazyEntryTree<T> implements EntryTree<T> {
+	private final EntryTree<T> loaded = new HashEntryTree<>();
+	private final Map<Entry<?>, Source<T>> pending;
+	private final Map<Entry<?>, T> pendingRootValues;
+	private final Map<Entry<?>, Exception> failures = new HashMap<>();
+
+	private final List<LoadListener<T>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * @param sources the source of every top-level class
+	 * @param rootValues the values of the top-level classes, as loading them would produce
+	 */
+	public LazyEntryTree(Map<Entry<?>, Source<T>> sources, Map<Entry<?>, T> rootValues) {
+		this.pending = new HashMap<>(sources);
+		this.pendingRootValues = new HashMap<>(rootValues);
+	}
+
+	/**
+	 * Adds a listener that is notified with the subtree of every class when it is loaded.
+	 * Listeners are called while holding the lock of this tree, and must not wait on other threads.
+	 */
+	public void addLoadListener(LoadListener<T> listener) {
+		this.listeners.add(listener);
+	}
+
+	public void removeLoadListener(LoadListener<T> listener) {
+		this.listeners.remove(listener);
+	}
+
+	/**
+	 * Loads the classes that haven't been loaded yet on a background thread. Classes that fail to load don't stop the
+	 * others from loading, the future completes with the first failure afterwards.
+	 */
+	public CompletableFuture<Void> loadInBackground() {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+
+		Thread thread = new Thread(() -> {
+			try {
+				LoadException failure = null;
+				for (Entry<?> root : this.getPendingRoots()) {
+					try {
+						this.load(root);
+					} catch (LoadException e) {
+						if (failure == null) {
+							failure = e;
+						}
+					}
+				}
+
+				if (failure != null) {
+					future.completeExceptionally(failure);
+				} else {
+					future.complete(null);
+				}
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		}, "Mappings loader");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+
+		return future;
+	}
+
+	/**
+	 * Loads every class that hasn't been loaded yet, in parallel.
+	 */
+	public void loadAll() {
+		this.getPendingRoots().parallelStream().forEach(this::load);
+	}
+
+	public synchronized boolean isFullyLoaded() {
+		return this.pending.isEmpty();
+	}
+
+	/**
+	 * Loads the top-level class of the given entry, if it's not loaded yet.
+	 *
+	 * @throws LoadException if the class failed to load, now or before
+	 */
+	public void load(Entry<?> entry) {
+		Entry<?> root = entry.getAncestry().get(0);
+
+		Source<T> source;
+		synchronized (this) {
+			source = this.pending.get(root);
+
+			Exception failure = this.failures.get(root);
+			if (failure != null) {
+				throw new LoadException(root, failure);
+			}
+		}
+
+		if (source == null) {
+			return;
+		}
+
+		// parsed outside the lock, if two threads load the same class the first one wins
+		EntryTree<T> classTree;
+		try {
+			classTree = source.load();
+		} catch (Exception e) {
+			synchronized (this) {
+				this.failures.putIfAbsent(root, e);
+			}
+
+			throw new LoadException(root, e);
+		}
+
+		synchronized (this) {
+			if (this.pending.remove(root) == null) {
+				return;
+			}
+
+			this.pendingRootValues.remove(root);
+
+			for (EntryTreeNode<T> node : classTree) {
+				if (node.hasValue()) {
+					this.loaded.insert(node.getEntry(), node.getValue());
+				}
+			}
+
+			for (LoadListener<T> listener : this.listeners) {
+				listener.onLoaded(root, classTree);
+			}
+		}
+	}
+
+	private synchronized List<Entry<?>> getPendingRoots() {
+		return new ArrayList<>(this.pending.keySet());
+	}
+
+	/**
+	 * Copies this tree without loading anything. The classes that aren't loaded yet keep their source, so the copy loads them
+	 * again if it needs them.
+	 */
+	public synchronized LazyEntryTree<T> copy() {
+		LazyEntryTree<T> copy = new LazyEntryTree<>(this.pending, this.pendingRootValues);
+		copy.failures.putAll(this.failures);
+
+		for (EntryTreeNode<T> node : this.loaded) {
+			if (node.hasValue()) {
+				copy.loaded.insert(node.getEntry(), node.getValue());
+			}
+		}
+
+		return copy;
+	}
+
+	/**
+	 * @return the loaded part of the tree, which must only be accessed while holding the lock of this tree
+	 */
+	public EntryTree<T> getLoaded() {
+		return this.loaded;
+	}
+
+	@Override
+	public void insert(Entry<?> entry, T value) {
+		this.load(entry);
+
+		synchronized (this) {
+			this.loaded.insert(entry, value);
+		}
+	}
+
+	@Nullable
+	@Override
+	public T remove(Entry<?> entry) {
+		this.load(entry);
+
+		synchronized (this) {
+			return this.loaded.remove(entry);
+		}
+	}
+
+	@Nullable
+	@Override
+	public T get(Entry<?> entry) {
+		if (entry.getParent() == null) {
+			synchronized (this) {
+				if (this.pending.containsKey(entry)) {
+					return this.pendingRootValues.get(entry);
+				}
+			}
+		}
+
+		this.load(entry);
+
+		synchronized (this) {
+			return this.loaded.get(entry);
+		}
+	}
+
+	@Override
+	public boolean contains(Entry<?> entry) {
+		return this.get(entry) != null;
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren(Entry<?> entry) {
+		this.load(entry);
+
+		synchronized (this) {
+			return this.loaded.getChildren(entry);
+		}
+	}
+
+	@Override
+	public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+		if (entry.getParent() == null) {
+			this.loadAll();
+		} else {
+			this.load(entry);
+		}
+
+		synchronized (this) {
+			return this.loaded.getSiblings(entry);
+		}
+	}
+
+	@Nullable
+	@Override
+	public EntryTreeNode<T> findNode(Entry<?> entry) {
+		this.load(entry);
+
+		synchronized (this) {
+			return this.loaded.findNode(entry);
+		}
+	}
+
+	@Override
+	public Stream<EntryTreeNode<T>> getRootNodes() {
+		this.loadAll();
+		return this.loaded.getRootNodes();
+	}
+
+	@Override
+	public EntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		this.loadAll();
+		return this.loaded.extendedTranslate(translator, resolver, mappings).getValue();
+	}
+
+	@Override
+	public Stream<Entry<?>> getAllEntries() {
+		this.loadAll();
+		return this.loaded.getAllEntries();
+	}
+
+	@Override
+	public synchronized boolean isEmpty() {
+		return this.pending.isEmpty() && this.loaded.isEmpty();
+	}
+
+	@Override
+	public Iterator<EntryTreeNode<T>> iterator() {
+		this.loadAll();
+		return this.loaded.iterator();
+	}
+
+	/**
+	 * Thrown when accessing a class whose mappings failed to load, the cause is the original failure.
+	 */
+	public static class LoadException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private final Entry<?> root;
+
+		public LoadException(Entry<?> root, Throwable cause) {
+			super("Failed to load mappings of " + root + ": " + cause.getMessage(), cause);
+			this.root = root;
+		}
+
+		public Entry<?> getRoot() {
+			return this.root;
+		}
+	}
+
+	public interface Source<T> {
+		EntryTree<T> load() throws Exception;
+	}
+
+	public interface LoadListener<T> {
+		void onLoaded(Entry<?> root, EntryTree<T> classTree);
+	}
+}
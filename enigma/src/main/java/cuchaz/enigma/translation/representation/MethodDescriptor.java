@@ -1,10 +1,14 @@
 package cuchaz.enigma.translation.representation;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.UnaryOperator;
 
+import com.google.common.cache.CacheBuilder;
+
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.TranslateResult;
 import cuchaz.enigma.translation.Translator;
@@ -14,34 +18,58 @@ import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 
 public class MethodDescriptor implements Translatable {
+	private static final ConcurrentMap<String, MethodDescriptor> INTERNED = CacheBuilder.newBuilder()
+			.weakValues()
+			.<String, MethodDescriptor>build()
+			.asMap();
+
 	private final List<TypeDescriptor> argumentDescs;
-	private TypeDescriptor returnDesc;
+	private final TypeDescriptor returnDesc;
+	private int hash;
 
 	public MethodDescriptor(String desc) {
 		try {
-			this.argumentDescs = new ArrayList<>();
+			List<TypeDescriptor> argumentDescs = new ArrayList<>();
 			int i = 0;
 			while (i < desc.length()) {
 				char c = desc.charAt(i);
 				if (c == '(') {
-					assert (this.argumentDescs.isEmpty());
-					assert (this.returnDesc == null);
+					assert (argumentDescs.isEmpty());
 					i++;
 				} else if (c == ')') {
 					i++;
 					break;
 				} else {
-					String searchType = TypeDescriptor.parseFirst(desc.substring(i));
-					this.argumentDescs.add(new TypeDescriptor(searchType));
-					i += searchType.length();
+					int end = TypeDescriptor.parseFirstEnd(desc, i);
+					argumentDescs.add(TypeDescriptor.create(desc, i, end));
+					i = end;
 				}
 			}
-			this.returnDesc = new TypeDescriptor(TypeDescriptor.parseFirst(desc.substring(i)));
+			this.returnDesc = TypeDescriptor.create(desc, i, TypeDescriptor.parseFirstEnd(desc, i));
+			// parsed descriptors are shared, so they must not be modified
+			this.argumentDescs = Collections.unmodifiableList(argumentDescs);
 		} catch (Exception ex) {
 			throw new IllegalArgumentException("Unable to parse method descriptor: " + desc, ex);
 		}
 	}
 
+	/**
+	 * Parses a descriptor, sharing the instance with every other descriptor parsed from an equal string.
+	 * Repeated descriptors are not parsed again.
+	 */
+	public static MethodDescriptor parse(String desc) {
+		MethodDescriptor interned = INTERNED.get(desc);
+		if (interned == null) {
+			MethodDescriptor parsed = new MethodDescriptor(desc);
+			interned = INTERNED.putIfAbsent(desc, parsed);
+			if (interned == null) {
+				interned = parsed;
+			}
+		}
+
+		return interned;
+	}
+
 	public MethodDescriptor(List<TypeDescriptor> argumentDescs, TypeDescriptor returnDesc) {
 		this.argumentDescs = argumentDescs;
 		this.returnDesc = returnDesc;
@@ -84,7 +112,14 @@ public class MethodDescriptor implements Translatable {
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(this.argumentDescs.hashCode(), this.returnDesc.hashCode());
+		// descriptors are immutable and hashed a lot as part of method entries
+		int hash = this.hash;
+		if (hash == 0) {
+			hash = Objects.hash(this.argumentDescs.hashCode(), this.returnDesc.hashCode());
+			this.hash = hash;
+		}
+
+		return hash;
 	}
 
 	public boolean hasClass(ClassEntry classEntry) {
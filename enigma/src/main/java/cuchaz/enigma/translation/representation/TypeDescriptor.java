@@ -1,10 +1,10 @@
 package cuchaz.enigma.translation.representation;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.UnaryOperator;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Maps;
+import com.google.common.cache.CacheBuilder;
 
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.TranslateResult;
@@ -15,85 +15,135 @@ import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 
 public class TypeDescriptor implements Translatable {
+	private static final TypeDescriptor[] PRIMITIVE_DESCS = new TypeDescriptor[128];
+	private static final ConcurrentMap<String, TypeDescriptor> INTERNED = CacheBuilder.newBuilder()
+			.weakValues()
+			.<String, TypeDescriptor>build()
+			.asMap();
+
+	static {
+		PRIMITIVE_DESCS['V'] = new TypeDescriptor("V");
+		for (Primitive primitive : Primitive.values()) {
+			PRIMITIVE_DESCS[primitive.getCode()] = new TypeDescriptor(String.valueOf(primitive.getCode()));
+		}
+	}
+
 	protected final String desc;
+	private TypeDescriptor arrayType;
+	private ClassEntry typeEntry;
 
 	public TypeDescriptor(String desc) {
 		Preconditions.checkNotNull(desc, "Desc cannot be null");
 
 		// don't deal with generics
 		// this is just for raw jvm types
-		if ((desc.charAt(0) == 'T' && readClass(desc) != null) || desc.indexOf('<') >= 0 || desc.indexOf('>') >= 0) {
+		if ((desc.charAt(0) == 'T' && readClassEnd(desc, 0) >= 0) || desc.indexOf('<') >= 0 || desc.indexOf('>') >= 0) {
 			throw new IllegalArgumentException("don't use with generic types or templates: " + desc);
 		}
 
 		this.desc = desc;
 	}
 
+	/**
+	 * Parses a descriptor, sharing the instance with every other descriptor parsed from an equal string.
+	 */
+	public static TypeDescriptor parse(String desc) {
+		TypeDescriptor primitive = getPrimitiveDesc(desc, 0, desc.length());
+		if (primitive != null) {
+			return primitive;
+		}
+
+		TypeDescriptor interned = INTERNED.get(desc);
+		if (interned == null) {
+			TypeDescriptor parsed = new TypeDescriptor(desc);
+			interned = INTERNED.putIfAbsent(desc, parsed);
+			if (interned == null) {
+				interned = parsed;
+			}
+		}
+
+		return interned;
+	}
+
+	static TypeDescriptor create(String in, int start, int end) {
+		TypeDescriptor primitive = getPrimitiveDesc(in, start, end);
+		return primitive != null ? primitive : new TypeDescriptor(in.substring(start, end));
+	}
+
+	private static TypeDescriptor getPrimitiveDesc(String in, int start, int end) {
+		if (end - start == 1) {
+			char c = in.charAt(start);
+			if (c < PRIMITIVE_DESCS.length) {
+				return PRIMITIVE_DESCS[c];
+			}
+		}
+
+		return null;
+	}
+
 	public static String parseFirst(String in) {
 		if (in == null || in.length() <= 0) {
 			throw new IllegalArgumentException("No desc to parse, input is empty!");
 		}
 
-		// read one desc from the input
-
-		char c = in.charAt(0);
+		int end = parseFirstEnd(in, 0);
+		return end >= 0 ? in.substring(0, end) : null;
+	}
 
-		// first check for void
-		if (c == 'V') {
-			return "V";
+	/**
+	 * Reads one desc from the input, starting at {@code start}, without copying it.
+	 *
+	 * @return the index after the end of the desc, or -1 if a class desc isn't terminated
+	 */
+	public static int parseFirstEnd(String in, int start) {
+		if (start >= in.length()) {
+			throw new IllegalArgumentException("No desc to parse, input is empty!");
 		}
 
-		// then check for primitives
-		Primitive primitive = Primitive.get(c);
-		if (primitive != null) {
-			return in.substring(0, 1);
-		}
+		char c = in.charAt(start);
 
-		// then check for classes
-		if (c == 'L') {
-			return readClass(in);
+		// first check for void and primitives
+		if (c == 'V' || Primitive.get(c) != null) {
+			return start + 1;
 		}
 
-		// then check for templates
-		if (c == 'T') {
-			return readClass(in);
+		// then check for classes and templates
+		if (c == 'L' || c == 'T') {
+			return readClassEnd(in, start);
 		}
 
 		// then check for arrays
-		int dim = countArrayDimension(in);
+		int dim = countArrayDimension(in, start);
 		if (dim > 0) {
-			String arrayType = TypeDescriptor.parseFirst(in.substring(dim));
-			return in.substring(0, dim + arrayType.length());
+			return parseFirstEnd(in, start + dim);
 		}
 
-		throw new IllegalArgumentException("don't know how to parse: " + in);
+		throw new IllegalArgumentException("don't know how to parse: " + in.substring(start));
 	}
 
-	private static int countArrayDimension(String in) {
-		int i = 0;
+	private static int countArrayDimension(String in, int start) {
+		int i = start;
 		while (i < in.length() && in.charAt(i) == '[')
 			i++;
-		return i;
+		return i - start;
 	}
 
-	private static String readClass(String in) {
+	private static int readClassEnd(String in, int start) {
 		// read all the characters in the buffer until we hit a ';'
 		// include the parameters too
-		StringBuilder buf = new StringBuilder();
 		int depth = 0;
-		for (int i = 0; i < in.length(); i++) {
+		for (int i = start; i < in.length(); i++) {
 			char c = in.charAt(i);
-			buf.append(c);
 
 			if (c == '<') {
 				depth++;
 			} else if (c == '>') {
 				depth--;
 			} else if (depth == 0 && c == ';') {
-				return buf.toString();
+				return i + 1;
 			}
 		}
-		return null;
+		return -1;
 	}
 
 	public static TypeDescriptor of(String name) {
@@ -125,6 +175,13 @@ public class TypeDescriptor implements Translatable {
 	}
 
 	public ClassEntry getTypeEntry() {
+		if (this.typeEntry == null) {
+			this.typeEntry = this.createTypeEntry();
+		}
+		return this.typeEntry;
+	}
+
+	private ClassEntry createTypeEntry() {
 		if (this.isType()) {
 			String name = this.desc.substring(1, this.desc.length() - 1);
 
@@ -151,14 +208,17 @@ public class TypeDescriptor implements Translatable {
 		if (!this.isArray()) {
 			throw new IllegalStateException("not an array");
 		}
-		return countArrayDimension(this.desc);
+		return countArrayDimension(this.desc, 0);
 	}
 
 	public TypeDescriptor getArrayType() {
 		if (!this.isArray()) {
 			throw new IllegalStateException("not an array");
 		}
-		return new TypeDescriptor(this.desc.substring(this.getArrayDimension()));
+		if (this.arrayType == null) {
+			this.arrayType = create(this.desc, this.getArrayDimension(), this.desc.length());
+		}
+		return this.arrayType;
 	}
 
 	public boolean containsType() {
@@ -228,12 +288,11 @@ public class TypeDescriptor implements Translatable {
 		DOUBLE('D', "double"),
 		BOOLEAN('Z', "boolean");
 
-		private static final Map<Character, Primitive> lookup;
+		private static final Primitive[] lookup = new Primitive[128];
 
 		static {
-			lookup = Maps.newTreeMap();
 			for (Primitive val : values()) {
-				lookup.put(val.getCode(), val);
+				lookup[val.getCode()] = val;
 			}
 		}
 
@@ -246,7 +305,7 @@ public class TypeDescriptor implements Translatable {
 		}
 
 		public static Primitive get(char code) {
-			return lookup.get(code);
+			return code < lookup.length ? lookup[code] : null;
 		}
 
 		public char getCode() {
@@ -29,7 +29,7 @@ public class MethodDefEntry extends MethodEntry implements DefEntry<ClassEntry>
 	}
 
 	public static MethodDefEntry parse(ClassEntry owner, int access, String name, String desc, String signature) {
-		return new MethodDefEntry(owner, name, new MethodDescriptor(desc), Signature.createSignature(signature), new AccessFlags(access), null);
+		return new MethodDefEntry(owner, name, MethodDescriptor.parse(desc), Signature.createSignature(signature), new AccessFlags(access), null);
 	}
 
 	@Override
@@ -0,0 +1,46 @@
+package cuchaz.enigma.utils;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Cooperative cancellation of the task running on the current thread.
+ *
+ * <p>Code that runs for a long time, like the class providers used while decompiling, calls {@link #check()} so that a task
+ * whose result isn't needed anymore stops early. Code that must not run for a cancelled task, like storing its result, checks
+ * {@link #isCancelled()}.
+ */
+public final class Cancellation {
+	private static final ThreadLocal<BooleanSupplier> CURRENT = new ThreadLocal<>();
+
+	private Cancellation() {
+	}
+
+	/**
+	 * Runs a task on the current thread, which is cancelled once the given condition is true.
+	 */
+	public static void run(BooleanSupplier cancelled, Runnable task) {
+		BooleanSupplier previous = CURRENT.get();
+		CURRENT.set(cancelled);
+
+		try {
+			task.run();
+		} finally {
+			CURRENT.set(previous);
+		}
+	}
+
+	public static boolean isCancelled() {
+		BooleanSupplier cancelled = CURRENT.get();
+		return cancelled != null && cancelled.getAsBoolean();
+	}
+
+	/**
+	 * @throws CancellationException if the task running on the current thread was cancelled
+	 */
+	public static void check() {
+		if (isCancelled()) {
+			throw new CancellationException();
+		}
+	}
+}
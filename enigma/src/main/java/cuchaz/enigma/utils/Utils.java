@@ -6,8 +6,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
@@ -52,6 +54,25 @@ public class Utils {
 		}
 	}
 
+	/**
+	 * @return the path of a temporary file next to the given one, to write to before moving it into place
+	 */
+	public static Path getTempSibling(Path path) {
+		return path.resolveSibling(path.getFileName() + ".tmp");
+	}
+
+	/**
+	 * Replaces a file with another one, atomically if the file system supports it, so that the target is never seen
+	 * partially written, even if the process dies during the move.
+	 */
+	public static void moveAtomically(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 	public static byte[] zipSha1(Path path) throws IOException {
 		MessageDigest digest;
 		try {
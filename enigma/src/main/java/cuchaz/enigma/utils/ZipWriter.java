@@ -0,0 +1,205 @@
+package cuchaz.enigma.utils;
+
+import com.google.common.io.CountingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a zip file from entries that were already compressed, so that compressing them can be done on any thread
+ * while the file is written sequentially. {@link java.util.zip.ZipOutputStream} always compresses entries itself.
+ */
+public class ZipWriter implements Closeable {
+	private static final int LOCAL_HEADER = 0x04034b50;
+	private static final int CENTRAL_HEADER = 0x02014b50;
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+	private static final int ZIP64_LOCATOR = 0x07064b50;
+	private static final int UTF8_FLAG = 0x800;
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	/**
+	 * A constant entry time for files that should be reproducible, the same one Gradle uses.
+	 */
+	public static final LocalDateTime FIXED_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+
+	private final CountingOutputStream counter;
+	private final DataOutputStream out;
+	private final int dosTime;
+	private final List<WrittenEntry> entries = new ArrayList<>();
+
+	public ZipWriter(OutputStream out) {
+		this(out, LocalDateTime.now());
+	}
+
+	/**
+	 * @param time the modification time of every entry
+	 */
+	public ZipWriter(OutputStream out, LocalDateTime time) {
+		this.counter = new CountingOutputStream(new BufferedOutputStream(out, 1 << 16));
+		this.out = new DataOutputStream(this.counter);
+		this.dosTime = toDosTime(time);
+	}
+
+	/**
+	 * Compresses the data of an entry, which is thread safe.
+	 *
+	 * @param store whether to store the data without compressing it
+	 */
+	public static CompressedEntry compress(String name, byte[] data, boolean store) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		if (store) {
+			return new CompressedEntry(name, ZipEntry.STORED, data, data.length, crc.getValue());
+		}
+
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			byte[] buffer = new byte[Math.max(64, data.length + data.length / 16)];
+			int length = 0;
+			while (!deflater.finished()) {
+				if (length == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+
+			return new CompressedEntry(name, ZipEntry.DEFLATED, Arrays.copyOf(buffer, length), data.length, crc.getValue());
+		} finally {
+			deflater.end();
+		}
+	}
+
+	public void write(CompressedEntry entry) throws IOException {
+		byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+		// only what the central directory needs is kept
+		this.entries.add(new WrittenEntry(name, entry.method(), entry.crc(), entry.data().length, entry.size(), this.counter.getCount()));
+
+		this.writeInt(LOCAL_HEADER);
+		this.writeShort(20);
+		this.writeShort(UTF8_FLAG);
+		this.writeShort(entry.method());
+		this.writeInt(this.dosTime);
+		this.writeInt((int) entry.crc());
+		this.writeInt(entry.data().length);
+		this.writeInt(entry.size());
+		this.writeShort(name.length);
+		this.writeShort(0);
+		this.out.write(name);
+		this.out.write(entry.data());
+	}
+
+	@Override
+	public void close() throws IOException {
+		long centralDirectoryOffset = this.counter.getCount();
+
+		for (WrittenEntry written : this.entries) {
+			boolean zip64 = written.offset() >= ZIP64_MAGIC;
+
+			this.writeInt(CENTRAL_HEADER);
+			this.writeShort(zip64 ? 45 : 20);
+			this.writeShort(zip64 ? 45 : 20);
+			this.writeShort(UTF8_FLAG);
+			this.writeShort(written.method());
+			this.writeInt(this.dosTime);
+			this.writeInt((int) written.crc());
+			this.writeInt(written.compressedSize());
+			this.writeInt(written.size());
+			this.writeShort(written.name().length);
+			this.writeShort(zip64 ? 12 : 0);
+			this.writeShort(0);
+			this.writeShort(0);
+			this.writeShort(0);
+			this.writeInt(0);
+			this.writeInt((int) (zip64 ? ZIP64_MAGIC : written.offset()));
+			this.out.write(written.name());
+
+			if (zip64) {
+				this.writeShort(0x0001);
+				this.writeShort(8);
+				this.writeLong(written.offset());
+			}
+		}
+
+		long centralDirectoryEnd = this.counter.getCount();
+		long centralDirectorySize = centralDirectoryEnd - centralDirectoryOffset;
+		int count = this.entries.size();
+		boolean zip64 = count >= 0xFFFF || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC;
+
+		if (zip64) {
+			this.writeInt(ZIP64_END_OF_CENTRAL_DIRECTORY);
+			this.writeLong(44);
+			this.writeShort(45);
+			this.writeShort(45);
+			this.writeInt(0);
+			this.writeInt(0);
+			this.writeLong(count);
+			this.writeLong(count);
+			this.writeLong(centralDirectorySize);
+			this.writeLong(centralDirectoryOffset);
+
+			this.writeInt(ZIP64_LOCATOR);
+			this.writeInt(0);
+			this.writeLong(centralDirectoryEnd);
+			this.writeInt(1);
+		}
+
+		this.writeInt(END_OF_CENTRAL_DIRECTORY);
+		this.writeShort(0);
+		this.writeShort(0);
+		this.writeShort(zip64 ? 0xFFFF : count);
+		this.writeShort(zip64 ? 0xFFFF : count);
+		this.writeInt((int) (zip64 ? ZIP64_MAGIC : centralDirectorySize));
+		this.writeInt((int) (zip64 ? ZIP64_MAGIC : centralDirectoryOffset));
+		this.writeShort(0);
+		this.out.close();
+	}
+
+	// zip files are little endian
+
+	private void writeShort(int value) throws IOException {
+		this.out.writeShort(Short.reverseBytes((short) value));
+	}
+
+	private void writeInt(int value) throws IOException {
+		this.out.writeInt(Integer.reverseBytes(value));
+	}
+
+	private void writeLong(long value) throws IOException {
+		this.out.writeLong(Long.reverseBytes(value));
+	}
+
+	private static int toDosTime(LocalDateTime time) {
+		if (time.getYear() < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+
+		return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+				| time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+	}
+
+	/**
+	 * An entry compressed by {@link #compress(String, byte[], boolean)}.
+	 */
+	public record CompressedEntry(String name, int method, byte[] data, int size, long crc) {
+	}
+
+	private record WrittenEntry(byte[] name, int method, long crc, int compressedSize, int size, long offset) {
+	}
+}
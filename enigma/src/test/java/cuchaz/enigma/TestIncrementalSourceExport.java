@@ -0,0 +1,118 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.DecompilerService;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.Utils;
+import cuchaz.enigma.utils.validation.ParameterizedMessage;
+import cuchaz.enigma.utils.validation.ValidationContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestIncrementalSourceExport {
+	private static final Path JAR = TestUtil.obfJar("constructors");
+
+	private final Set<String> decompiled = ConcurrentHashMap.newKeySet();
+	private final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+	private final DecompilerService decompilerService = new DecompilerService() {
+		@Override
+		public Decompiler create(ClassProvider classProvider, SourceSettings settings) {
+			return (className, remapper) -> {
+				decompiled.add(className);
+				if (failing.contains(className)) {
+					throw new IllegalStateException("Failed to decompile " + className);
+				}
+
+				return new TestSource("class " + className + " {\n}\n");
+			};
+		}
+
+		@Override
+		public String getCacheKey() {
+			return "test";
+		}
+	};
+
+	@Test
+	public void testIncrementalExport() throws Exception {
+		EnigmaProject project = Enigma.create().openJar(JAR, new ClasspathClassProvider(), ProgressListener.none());
+		Path directory = Files.createTempDirectory("incrementalSourceExport");
+
+		// sources that the export didn't write are never deleted
+		Path foreign = directory.resolve("other/Foreign.java");
+		Files.createDirectories(foreign.getParent());
+		Files.writeString(foreign, "class Foreign {\n}\n");
+
+		this.failing.add("a");
+		this.export(project, directory);
+		Assertions.assertEquals(Set.of("a", "b", "c", "d", "e", "cuchaz/enigma/inputs/Keep"), this.decompiled);
+		Assertions.assertTrue(Files.exists(foreign));
+
+		// unchanged classes are kept, the one that failed is tried again
+		this.failing.clear();
+		this.export(project, directory);
+		Assertions.assertEquals(Set.of("a"), this.decompiled);
+
+		// renaming a class changes the classes that reference it
+		project.getMapper().putMapping(new ValidationContext(notifier()), new ClassEntry("c"), new EntryMapping("Renamed"));
+		this.export(project, directory);
+		Assertions.assertEquals(Set.of("b", "Renamed"), this.decompiled);
+		Assertions.assertTrue(Files.exists(directory.resolve("Renamed.java")));
+		Assertions.assertFalse(Files.exists(directory.resolve("c.java")));
+
+		this.export(project, directory);
+		Assertions.assertTrue(this.decompiled.isEmpty());
+		Assertions.assertTrue(Files.exists(foreign));
+
+		Utils.delete(directory);
+	}
+
+	private void export(EnigmaProject project, Path directory) throws Exception {
+		this.decompiled.clear();
+		project.exportRemappedJar(ProgressListener.none())
+				.decompileTo(directory, ProgressListener.none(), this.decompilerService, EnigmaProject.DecompileErrorStrategy.TRACE_AS_SOURCE, true);
+	}
+
+	private static ValidationContext.Notifier notifier() {
+		return new ValidationContext.Notifier() {
+			@Override
+			public void notify(ParameterizedMessage message) {
+			}
+
+			@Override
+			public boolean verifyWarning(ParameterizedMessage message) {
+				return true;
+			}
+		};
+	}
+
+	private record TestSource(String source) implements Source {
+		@Override
+		public String asString() {
+			return this.source;
+		}
+
+		@Override
+		public Source withJavadocs(EntryRemapper remapper) {
+			return this;
+		}
+
+		@Override
+		public SourceIndex index() {
+			return new SourceIndex(this.source);
+		}
+	}
+}
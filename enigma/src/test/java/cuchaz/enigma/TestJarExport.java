@@ -0,0 +1,108 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.api.service.NameProposalService;
+import cuchaz.enigma.bytecode.translators.TranslationClassVisitor;
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.classprovider.ObfuscationFixClassProvider;
+import cuchaz.enigma.translation.ProposingTranslator;
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+
+public class TestJarExport {
+	private static final Path JAR = TestUtil.obfJar("inheritanceTree");
+
+	@Test
+	public void testWrite() throws Exception {
+		EnigmaProject project = Enigma.create().openJar(JAR, new ClasspathClassProvider(), ProgressListener.none());
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(newClass("a"), new EntryMapping("named/BaseClass"));
+		mappings.insert(newField("a", "a", "Ljava/lang/String;"), new EntryMapping("name"));
+		mappings.insert(newMethod("a", "a", "()Ljava/lang/String;"), new EntryMapping("getName"));
+		mappings.insert(newClass("c"), new EntryMapping("named/SubclassB"));
+		project.setMappings(mappings);
+
+		Path directory = Files.createTempDirectory("jarExport");
+		Path jar = directory.resolve("deobf.jar");
+
+		List<Integer> inits = new ArrayList<>();
+		List<Integer> steps = new ArrayList<>();
+		ProgressListener progress = new ProgressListener() {
+			@Override
+			public void init(int totalWork, String title) {
+				inits.add(totalWork);
+			}
+
+			@Override
+			public void step(int numDone, String message) {
+				steps.add(numDone);
+			}
+		};
+
+		project.exportRemappedJar(progress).write(jar, progress);
+
+		// the classes are streamed, but the jar has the same classes as when they were all translated up front
+		Map<String, byte[]> expected = translateEagerly(project);
+		Map<String, byte[]> actual = new HashMap<>();
+		try (ZipFile zip = new ZipFile(jar.toFile())) {
+			for (ZipEntry entry : Collections.list(zip.entries())) {
+				actual.put(entry.getName(), zip.getInputStream(entry).readAllBytes());
+			}
+		}
+
+		Assertions.assertEquals(expected.keySet(), actual.keySet());
+		Assertions.assertTrue(actual.containsKey("named/BaseClass.class"));
+		for (String name : expected.keySet()) {
+			Assertions.assertArrayEquals(expected.get(name), actual.get(name), name);
+		}
+
+		// only writing reports progress
+		Assertions.assertEquals(List.of(expected.size()), inits);
+		Assertions.assertEquals(List.of(0, 1, 2, 3, 4), steps);
+
+		Utils.delete(directory);
+	}
+
+	/**
+	 * Translates every class at once, the way exports did before classes were translated as they're written.
+	 */
+	private static Map<String, byte[]> translateEagerly(EnigmaProject project) {
+		ClassProvider fixingClassProvider = new ObfuscationFixClassProvider(project.getClassProvider(), project.getJarIndex());
+		NameProposalService[] nameProposalServices = project.getEnigma().getServices().get(NameProposalService.TYPE).toArray(new NameProposalService[0]);
+		Translator deobfuscator = nameProposalServices.length == 0 ? project.getMapper().getDeobfuscator() : new ProposingTranslator(project.getMapper(), nameProposalServices);
+
+		Map<String, byte[]> classes = new HashMap<>();
+		for (ClassEntry entry : project.getJarIndex().getEntryIndex().getClasses()) {
+			ClassNode node = fixingClassProvider.get(entry.getFullName());
+			ClassNode translatedNode = new ClassNode();
+			node.accept(new TranslationClassVisitor(deobfuscator, Enigma.ASM_VERSION, translatedNode));
+
+			ClassWriter writer = new ClassWriter(0);
+			translatedNode.accept(writer);
+			classes.put(translatedNode.name + ".class", writer.toByteArray());
+		}
+
+		return classes;
+	}
+}
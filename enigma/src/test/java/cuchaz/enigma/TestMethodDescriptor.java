@@ -6,6 +6,8 @@ import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class TestMethodDescriptor {
 	@Test
@@ -185,6 +187,21 @@ public class TestMethodDescriptor {
 		}
 	}
 
+	@Test
+	public void parseInterned() {
+		final MethodDescriptor desc = MethodDescriptor.parse("(ILFoo;[J)LBar;");
+		assertSame(desc, MethodDescriptor.parse(new String("(ILFoo;[J)LBar;")));
+		assertThat(desc, is(new MethodDescriptor("(ILFoo;[J)LBar;")));
+		assertThat(desc.getArgumentDescs(), contains(new TypeDescriptor("I"), new TypeDescriptor("LFoo;"), new TypeDescriptor("[J")));
+		assertThat(desc.getReturnDesc(), is(new TypeDescriptor("LBar;")));
+
+		// primitive arguments are shared, and the shared arguments can't be changed
+		assertSame(TypeDescriptor.parse("I"), desc.getArgumentDescs().get(0));
+		assertThrows(UnsupportedOperationException.class, () -> desc.getArgumentDescs().add(new TypeDescriptor("Z")));
+
+		assertThrows(IllegalArgumentException.class, () -> MethodDescriptor.parse("(LFoo)V"));
+	}
+
 	@Test
 	public void equals() {
 		// base
@@ -0,0 +1,77 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.DecompilerService;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class TestSourceZipExport {
+	private static final Path JAR = TestUtil.obfJar("constructors");
+
+	private static final DecompilerService DECOMPILER_SERVICE = new DecompilerService() {
+		@Override
+		public Decompiler create(ClassProvider classProvider, SourceSettings settings) {
+			return (className, remapper) -> new Source() {
+				@Override
+				public String asString() {
+					return "class " + className + " {\n}\n";
+				}
+
+				@Override
+				public Source withJavadocs(EntryRemapper remapper) {
+					return this;
+				}
+
+				@Override
+				public SourceIndex index() {
+					return new SourceIndex(this.asString());
+				}
+			};
+		}
+	};
+
+	@Test
+	public void testReproducible() throws Exception {
+		EnigmaProject project = Enigma.create().openJar(JAR, new ClasspathClassProvider(), ProgressListener.none());
+		Path directory = Files.createTempDirectory("sourceZipExport");
+		Path first = directory.resolve("first.zip");
+		Path second = directory.resolve("second.zip");
+
+		project.exportRemappedJar(ProgressListener.none()).decompileTo(first, ProgressListener.none(), DECOMPILER_SERVICE, EnigmaProject.DecompileErrorStrategy.PROPAGATE);
+		Thread.sleep(2000);
+		project.exportRemappedJar(ProgressListener.none()).decompileTo(second, ProgressListener.none(), DECOMPILER_SERVICE, EnigmaProject.DecompileErrorStrategy.PROPAGATE);
+
+		Assertions.assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+		Assertions.assertEquals(List.of("a.java", "b.java", "c.java", "cuchaz/enigma/inputs/Keep.java", "d.java", "e.java"), readEntryNames(first));
+
+		Utils.delete(directory);
+	}
+
+	private static List<String> readEntryNames(Path zip) throws IOException {
+		List<String> names = new ArrayList<>();
+
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				names.add(entry.getName());
+			}
+		}
+
+		return names;
+	}
+}
@@ -7,6 +7,8 @@ import static cuchaz.enigma.TestEntryFactory.newClass;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
@@ -190,6 +192,34 @@ public class TestTypeDescriptor {
 		}
 	}
 
+	@Test
+	public void parseFirstEnd() {
+		final String desc = "(ILFoo;[[J[LBar;)V";
+		assertThat(TypeDescriptor.parseFirstEnd(desc, 1), is(2));
+		assertThat(TypeDescriptor.parseFirstEnd(desc, 2), is(7));
+		assertThat(TypeDescriptor.parseFirstEnd(desc, 7), is(10));
+		assertThat(TypeDescriptor.parseFirstEnd(desc, 10), is(16));
+		assertThat(TypeDescriptor.parseFirstEnd(desc, 17), is(18));
+
+		assertThat(TypeDescriptor.parseFirstEnd("LFoo", 0), is(-1));
+		assertThat(TypeDescriptor.parseFirstEnd("I[LFoo", 1), is(-1));
+		assertThrows(IllegalArgumentException.class, () -> TypeDescriptor.parseFirstEnd("I", 1));
+		assertThrows(IllegalArgumentException.class, () -> TypeDescriptor.parseFirstEnd("IX", 1));
+	}
+
+	@Test
+	public void parseInterned() {
+		assertSame(TypeDescriptor.parse("I"), TypeDescriptor.parse("I"));
+		assertSame(TypeDescriptor.parse("V"), TypeDescriptor.parse("V"));
+		assertSame(TypeDescriptor.parse("LFoo;"), TypeDescriptor.parse(new String("LFoo;")));
+		assertSame(TypeDescriptor.parse("[[I"), TypeDescriptor.parse(new String("[[I")));
+
+		assertThat(TypeDescriptor.parse("LFoo;"), is(new TypeDescriptor("LFoo;")));
+		assertThat(TypeDescriptor.parse("[[I"), is(new TypeDescriptor("[[I")));
+		assertTrue(TypeDescriptor.parse("J").isPrimitive());
+		assertTrue(TypeDescriptor.parse("V").isVoid());
+	}
+
 	@Test
 	public void equals() {
 		assertThat(new TypeDescriptor("V"), is(new TypeDescriptor("V")));
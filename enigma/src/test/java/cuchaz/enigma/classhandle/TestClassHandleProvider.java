@@ -0,0 +1,133 @@
+package cuchaz.enigma.classhandle;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.TestUtil;
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.events.ClassHandleListener;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.DecompilerService;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.source.Token;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.validation.ParameterizedMessage;
+import cuchaz.enigma.utils.validation.ValidationContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+
+public class TestClassHandleProvider {
+	private static final Path JAR = TestUtil.obfJar("inheritanceTree");
+	private static final long TIMEOUT = 10;
+	private static final String SOURCE = "a();";
+
+	private static final ClassEntry BASE_CLASS = newClass("a");
+	private static final ClassEntry SUB_CLASS_A = newClass("b");
+	private static final ClassEntry SUB_CLASS_B = newClass("c");
+	private static final ClassEntry SUB_CLASS_AA = newClass("d");
+
+	// c doesn't declare it, it inherits it from a
+	private static final MethodEntry INHERITED_GET_NAME = newMethod(SUB_CLASS_B, "a", "()Ljava/lang/String;");
+
+	@Test
+	public void testInvalidateMappedReferences() throws Exception {
+		EnigmaProject project = Enigma.create().openJar(JAR, new ClasspathClassProvider(), ProgressListener.none());
+		ClassHandleProvider provider = new ClassHandleProvider(project, decompilerService(Map.of(
+				SUB_CLASS_A, newField(BASE_CLASS, "a", "Ljava/lang/String;"),
+				SUB_CLASS_B, INHERITED_GET_NAME,
+				SUB_CLASS_AA, newMethod(SUB_CLASS_AA, "a", "()Ljava/lang/String;")
+		)));
+
+		Set<ClassEntry> invalidated = ConcurrentHashMap.newKeySet();
+		open(provider, invalidated, SUB_CLASS_A, SUB_CLASS_B, SUB_CLASS_AA);
+
+		// the method is named through c, but it's the method of a, which d overrides
+		project.getMapper().putMapping(new ValidationContext(notifier()), INHERITED_GET_NAME, new EntryMapping("getName"));
+		provider.invalidateMappedReferences(INHERITED_GET_NAME);
+
+		// b only reads a field of a, so it's left untouched
+		Assertions.assertEquals(Set.of(SUB_CLASS_B, SUB_CLASS_AA), invalidated);
+
+		provider.destroy();
+	}
+
+	/**
+	 * Opens classes once their sources are indexed, so that the entries they reference are known.
+	 */
+	private static void open(ClassHandleProvider provider, Set<ClassEntry> invalidated, ClassEntry... entries) throws Exception {
+		for (ClassEntry entry : entries) {
+			ClassHandle handle = provider.openClass(entry);
+			Assertions.assertTrue(handle.getSource().get(TIMEOUT, TimeUnit.SECONDS).isOk());
+
+			handle.addListener(new ClassHandleListener() {
+				@Override
+				public void onInvalidate(ClassHandle h, InvalidationType t) {
+					invalidated.add(entry);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Decompiles each class to a single reference to an entry named {@code a}. The other classes only reference
+	 * themselves.
+	 */
+	private static DecompilerService decompilerService(Map<ClassEntry, Entry<?>> references) {
+		return new DecompilerService() {
+			@Override
+			public Decompiler create(ClassProvider classProvider, SourceSettings settings) {
+				return (className, remapper) -> {
+					ClassEntry entry = new ClassEntry(className);
+					return new TestSource(references.getOrDefault(entry, entry));
+				};
+			}
+		};
+	}
+
+	private static ValidationContext.Notifier notifier() {
+		return new ValidationContext.Notifier() {
+			@Override
+			public void notify(ParameterizedMessage message) {
+			}
+
+			@Override
+			public boolean verifyWarning(ParameterizedMessage message) {
+				return true;
+			}
+		};
+	}
+
+	private record TestSource(Entry<?> reference) implements Source {
+		@Override
+		public String asString() {
+			return SOURCE;
+		}
+
+		@Override
+		public Source withJavadocs(EntryRemapper remapper) {
+			return this;
+		}
+
+		@Override
+		public SourceIndex index() {
+			SourceIndex index = new SourceIndex(this.asString());
+			index.addReference(new Token(0, 1, "a"), this.reference, null);
+			return index;
+		}
+	}
+}
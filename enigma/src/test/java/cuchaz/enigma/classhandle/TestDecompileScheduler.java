@@ -0,0 +1,195 @@
+package cuchaz.enigma.classhandle;
+
+import cuchaz.enigma.utils.Cancellation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestDecompileScheduler {
+	private static final long TIMEOUT = 10;
+
+	private static Executor executor(DecompileScheduler scheduler, DecompileScheduler.Priority priority) {
+		return scheduler.executor(() -> priority, () -> false);
+	}
+
+	/**
+	 * Keeps the only thread of the scheduler busy until the returned latch is released, so that the tasks submitted meanwhile
+	 * are queued.
+	 */
+	private static CountDownLatch block(DecompileScheduler scheduler) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		executor(scheduler, DecompileScheduler.Priority.ACTIVE).execute(() -> {
+			started.countDown();
+
+			try {
+				release.await(TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		Assertions.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+		return release;
+	}
+
+	private static void await(DecompileScheduler scheduler) throws InterruptedException {
+		scheduler.shutdown();
+		Assertions.assertTrue(scheduler.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testPriorityOrder() throws InterruptedException {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch release = block(scheduler);
+
+		executor(scheduler, DecompileScheduler.Priority.PREFETCH).execute(() -> order.add("prefetch"));
+		executor(scheduler, DecompileScheduler.Priority.OPEN).execute(() -> order.add("open 1"));
+		executor(scheduler, DecompileScheduler.Priority.ACTIVE).execute(() -> order.add("active"));
+		executor(scheduler, DecompileScheduler.Priority.OPEN).execute(() -> order.add("open 2"));
+
+		release.countDown();
+		await(scheduler);
+
+		Assertions.assertEquals(List.of("active", "open 1", "open 2", "prefetch"), order);
+	}
+
+	@Test
+	public void testReprioritize() throws InterruptedException {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch release = block(scheduler);
+
+		// the priority is read when a task is picked, not when it is submitted
+		AtomicReference<DecompileScheduler.Priority> priority = new AtomicReference<>(DecompileScheduler.Priority.PREFETCH);
+		scheduler.executor(priority::get, () -> false).execute(() -> order.add("switched to"));
+		executor(scheduler, DecompileScheduler.Priority.OPEN).execute(() -> order.add("open"));
+		priority.set(DecompileScheduler.Priority.ACTIVE);
+
+		release.countDown();
+		await(scheduler);
+
+		Assertions.assertEquals(List.of("switched to", "open"), order);
+	}
+
+	@Test
+	public void testPreemptPrefetch() throws InterruptedException {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		CountDownLatch started = new CountDownLatch(1);
+		AtomicBoolean preempted = new AtomicBoolean();
+		AtomicBoolean openRan = new AtomicBoolean();
+
+		executor(scheduler, DecompileScheduler.Priority.PREFETCH).execute(() -> {
+			started.countDown();
+			preempted.set(waitForCancellation());
+		});
+		Assertions.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+		// a more important task with every thread busy cancels the running prefetch
+		executor(scheduler, DecompileScheduler.Priority.OPEN).execute(() -> openRan.set(true));
+		await(scheduler);
+
+		Assertions.assertTrue(preempted.get());
+		Assertions.assertTrue(openRan.get());
+	}
+
+	@Test
+	public void testPreemptedPrefetchTaken() throws InterruptedException {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		AtomicReference<DecompileScheduler.Priority> priority = new AtomicReference<>(DecompileScheduler.Priority.PREFETCH);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicBoolean cancelled = new AtomicBoolean();
+
+		scheduler.executor(priority::get, () -> false).execute(() -> {
+			started.countDown();
+
+			try {
+				release.await(TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			cancelled.set(Cancellation.isCancelled());
+		});
+		Assertions.assertTrue(started.await(TIMEOUT, TimeUnit.SECONDS));
+
+		// preempted, but then a handle takes the prefetched source, so it isn't cancelled anymore
+		executor(scheduler, DecompileScheduler.Priority.OPEN).execute(() -> {
+		});
+		priority.set(DecompileScheduler.Priority.ACTIVE);
+		release.countDown();
+		await(scheduler);
+
+		Assertions.assertFalse(cancelled.get());
+	}
+
+	@Test
+	public void testCancelledTasksComplete() throws Exception {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		AtomicBoolean cancelled = new AtomicBoolean();
+		CountDownLatch release = block(scheduler);
+
+		Executor executor = scheduler.executor(() -> DecompileScheduler.Priority.OPEN, cancelled::get);
+		CompletableFuture<String> source = CompletableFuture.supplyAsync(() -> {
+			Cancellation.check();
+			return "source";
+		}, executor);
+		CompletableFuture<String> dependent = source.thenApply(String::toUpperCase);
+
+		cancelled.set(true);
+		release.countDown();
+
+		// the task still runs, so the futures waiting on it complete instead of hanging
+		Throwable failure = dependent.handle((result, t) -> t).get(TIMEOUT, TimeUnit.SECONDS);
+		Assertions.assertTrue(failure instanceof CompletionException && failure.getCause() instanceof CancellationException, String.valueOf(failure));
+		Assertions.assertTrue(source.isCompletedExceptionally());
+
+		await(scheduler);
+	}
+
+	@Test
+	public void testShutdown() throws InterruptedException {
+		DecompileScheduler scheduler = new DecompileScheduler(1);
+		CountDownLatch release = block(scheduler);
+		AtomicBoolean queuedRan = new AtomicBoolean();
+
+		executor(scheduler, DecompileScheduler.Priority.PREFETCH).execute(() -> queuedRan.set(true));
+		scheduler.shutdown();
+
+		// queued tasks still run, new ones are rejected
+		Assertions.assertThrows(RejectedExecutionException.class, () -> executor(scheduler, DecompileScheduler.Priority.ACTIVE).execute(() -> {
+		}));
+		release.countDown();
+
+		Assertions.assertTrue(scheduler.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+		Assertions.assertTrue(queuedRan.get());
+	}
+
+	private static boolean waitForCancellation() {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+		while (System.nanoTime() < deadline) {
+			if (Cancellation.isCancelled()) {
+				return true;
+			}
+
+			Thread.onSpinWait();
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,195 @@
+package cuchaz.enigma.classhandle;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.TestUtil;
+import cuchaz.enigma.classprovider.ClassProvider;
+import cuchaz.enigma.classprovider.ClasspathClassProvider;
+import cuchaz.enigma.source.Decompiler;
+import cuchaz.enigma.source.DecompilerService;
+import cuchaz.enigma.source.Source;
+import cuchaz.enigma.source.SourceIndex;
+import cuchaz.enigma.source.SourceSettings;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+public class TestSourcePrefetcher {
+	private static final Path JAR = TestUtil.obfJar("inheritanceTree");
+	private static final long TIMEOUT = 10;
+	private static final int SOURCE_LENGTH = 100;
+
+	private static final ClassEntry BASE_CLASS = new ClassEntry("a");
+	private static final ClassEntry SUB_CLASS_A = new ClassEntry("b");
+	private static final ClassEntry SUB_CLASS_B = new ClassEntry("c");
+	private static final ClassEntry SUB_CLASS_AA = new ClassEntry("d");
+	private static final ClassEntry KEEP = new ClassEntry("cuchaz/enigma/inputs/Keep");
+
+	private final List<String> decompiled = Collections.synchronizedList(new ArrayList<>());
+
+	private EnigmaProject project;
+	private ClassHandleProvider provider;
+	private DecompileScheduler scheduler;
+
+	private SourcePrefetcher create(long maxSourceLength) throws Exception {
+		this.project = Enigma.create().openJar(JAR, new ClasspathClassProvider(), ProgressListener.none());
+		this.provider = new ClassHandleProvider(this.project, new TestDecompilerService("first"));
+		// a single thread prefetches the candidates in order
+		this.scheduler = new DecompileScheduler(1);
+		return new SourcePrefetcher(this.provider, this.project, this.scheduler, maxSourceLength);
+	}
+
+	@AfterEach
+	public void destroy() throws InterruptedException {
+		this.scheduler.shutdown();
+		Assertions.assertTrue(this.scheduler.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+		this.provider.destroy();
+	}
+
+	/**
+	 * Waits until the candidates of the last prefetch were decompiled. The
+	 * first task runs once they were chosen and queued, the second one once
+	 * they ran.
+	 */
+	private void awaitPrefetches() throws InterruptedException {
+		for (int i = 0; i < 2; i++) {
+			CountDownLatch done = new CountDownLatch(1);
+			this.scheduler.executor(() -> DecompileScheduler.Priority.PREFETCH, () -> false).execute(done::countDown);
+			Assertions.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+		}
+	}
+
+	private List<String> prefetchAround(SourcePrefetcher prefetcher, ClassEntry entry) throws InterruptedException {
+		this.decompiled.clear();
+		prefetcher.prefetchAround(entry);
+		this.awaitPrefetches();
+		return List.copyOf(this.decompiled);
+	}
+
+	@Nullable
+	private CompletableFuture<SourcePrefetcher.PrefetchedSource> take(SourcePrefetcher prefetcher, ClassEntry entry) {
+		return prefetcher.take(entry, this.provider.getActiveDecompiler(), () -> DecompileScheduler.Priority.OPEN);
+	}
+
+	@Test
+	public void testCandidates() throws Exception {
+		SourcePrefetcher prefetcher = this.create(Long.MAX_VALUE);
+
+		// supertypes first, then referenced classes and subtypes
+		Assertions.assertEquals(List.of("first:a", "first:d"), this.prefetchAround(prefetcher, SUB_CLASS_A));
+		Assertions.assertEquals(List.of("first:b", "first:c"), this.prefetchAround(prefetcher, BASE_CLASS));
+
+		// the only other class of its package is the class itself
+		Assertions.assertEquals(List.of(), this.prefetchAround(prefetcher, KEEP));
+
+		// classes of recently browsed packages, skipping the ones prefetched already
+		Assertions.assertEquals(List.of("first:cuchaz/enigma/inputs/Keep"), this.prefetchAround(prefetcher, SUB_CLASS_B));
+	}
+
+	@Test
+	public void testTakeAndInvalidate() throws Exception {
+		SourcePrefetcher prefetcher = this.create(Long.MAX_VALUE);
+		this.prefetchAround(prefetcher, SUB_CLASS_A);
+		Assertions.assertEquals(2 * SOURCE_LENGTH, prefetcher.getSourceLength());
+
+		CompletableFuture<SourcePrefetcher.PrefetchedSource> source = this.take(prefetcher, BASE_CLASS);
+		Assertions.assertNotNull(source);
+		Assertions.assertEquals(source("first", "a"), source.get(TIMEOUT, TimeUnit.SECONDS).commented().asString());
+		Assertions.assertEquals(SOURCE_LENGTH, prefetcher.getSourceLength());
+
+		// a source is only taken once
+		Assertions.assertNull(this.take(prefetcher, BASE_CLASS));
+
+		prefetcher.invalidate(SUB_CLASS_AA);
+		Assertions.assertEquals(0, prefetcher.getSourceLength());
+		Assertions.assertNull(this.take(prefetcher, SUB_CLASS_AA));
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		SourcePrefetcher prefetcher = this.create(2 * SOURCE_LENGTH + SOURCE_LENGTH / 2);
+		this.prefetchAround(prefetcher, BASE_CLASS);
+		Assertions.assertEquals(2 * SOURCE_LENGTH, prefetcher.getSourceLength());
+
+		// each new source evicts the oldest one
+		this.prefetchAround(prefetcher, SUB_CLASS_A);
+		Assertions.assertEquals(2 * SOURCE_LENGTH, prefetcher.getSourceLength());
+		Assertions.assertNull(this.take(prefetcher, SUB_CLASS_A));
+		Assertions.assertNull(this.take(prefetcher, SUB_CLASS_B));
+		Assertions.assertEquals(2 * SOURCE_LENGTH, prefetcher.getSourceLength());
+
+		Assertions.assertNotNull(this.take(prefetcher, BASE_CLASS));
+		Assertions.assertNotNull(this.take(prefetcher, SUB_CLASS_AA));
+		Assertions.assertEquals(0, prefetcher.getSourceLength());
+	}
+
+	@Test
+	public void testReplacedDecompiler() throws Exception {
+		SourcePrefetcher prefetcher = this.create(Long.MAX_VALUE);
+		this.prefetchAround(prefetcher, SUB_CLASS_A);
+		ClassHandleProvider.ActiveDecompiler first = this.provider.getActiveDecompiler();
+
+		this.provider.setDecompilerService(new TestDecompilerService("second"));
+
+		// sources of the previous decompiler are dropped when a handle asks for them
+		Assertions.assertNull(this.take(prefetcher, BASE_CLASS));
+		Assertions.assertEquals(SOURCE_LENGTH, prefetcher.getSourceLength());
+		Assertions.assertNotNull(prefetcher.take(SUB_CLASS_AA, first, () -> DecompileScheduler.Priority.OPEN));
+
+		Assertions.assertEquals(List.of("second:a", "second:d"), this.prefetchAround(prefetcher, SUB_CLASS_A));
+		CompletableFuture<SourcePrefetcher.PrefetchedSource> source = this.take(prefetcher, BASE_CLASS);
+		Assertions.assertNotNull(source);
+		Assertions.assertEquals(source("second", "a"), source.get(TIMEOUT, TimeUnit.SECONDS).commented().asString());
+	}
+
+	private static String source(String decompiler, String className) {
+		String source = "// " + decompiler + "\nclass " + className + " {\n}\n";
+		return source + " ".repeat(SOURCE_LENGTH - source.length());
+	}
+
+	private final class TestDecompilerService implements DecompilerService {
+		private final String name;
+
+		private TestDecompilerService(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Decompiler create(ClassProvider classProvider, SourceSettings settings) {
+			return (className, remapper) -> {
+				TestSourcePrefetcher.this.decompiled.add(this.name + ":" + className);
+				return new TestSource(source(this.name, className));
+			};
+		}
+	}
+
+	private record TestSource(String source) implements Source {
+		@Override
+		public String asString() {
+			return this.source;
+		}
+
+		@Override
+		public Source withJavadocs(EntryRemapper remapper) {
+			return this;
+		}
+
+		@Override
+		public SourceIndex index() {
+			return new SourceIndex(this.source);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package cuchaz.enigma.source;
+
+import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class TestSourceCache {
+	private static final String SOURCE = "class a {\n\tint b;\n\tvoid c(int d) {\n\t\tthis.b = d;\n\t}\n}\n";
+	private static final ClassEntry CLASS = new ClassEntry("a");
+	private static final FieldEntry FIELD = FieldEntry.parse("a", "b", "I");
+	private static final MethodEntry METHOD = MethodEntry.parse("a", "c", "(I)V");
+	private static final LocalVariableEntry PARAMETER = new LocalVariableEntry(METHOD, 1, "d", true, null);
+
+	private static SourceIndex createIndex() {
+		SourceIndex index = new SourceIndex(SOURCE);
+		index.addDeclaration(token("a", 0), CLASS);
+		index.addDeclaration(token("b", 0), FIELD);
+		index.addDeclaration(token("c", 0), METHOD);
+		index.addDeclaration(token("d", 0), PARAMETER);
+		index.addReference(token("b", 1), FIELD, METHOD);
+		index.addReference(token("d", 1), PARAMETER, METHOD);
+		return index;
+	}
+
+	private static Token token(String name, int occurrence) {
+		int start = -1;
+		for (int i = 0; i <= occurrence; i++) {
+			start = SOURCE.indexOf(" " + name, start + 1);
+		}
+
+		return new Token(start + 1, start + 1 + name.length(), name);
+	}
+
+	private static Source wrap(SourceCache cache, String key, AtomicInteger decompiled) {
+		return cache.wrap(key, "a", () -> {
+			decompiled.incrementAndGet();
+			return new Source() {
+				@Override
+				public String asString() {
+					return SOURCE;
+				}
+
+				@Override
+				public Source withJavadocs(EntryRemapper remapper) {
+					return this;
+				}
+
+				@Override
+				public SourceIndex index() {
+					return createIndex();
+				}
+			};
+		});
+	}
+
+	private static List<Path> listFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile).toList();
+		}
+	}
+
+	@Test
+	public void testReadBack() throws IOException {
+		Path directory = Files.createTempDirectory("sourceCache");
+		SourceCache cache = new SourceCache(directory);
+		String key = "0123456789abcdef";
+		AtomicInteger decompiled = new AtomicInteger();
+
+		SourceIndex expected = wrap(cache, key, decompiled).index();
+		Assertions.assertEquals(1, decompiled.get());
+
+		SourceIndex cached = wrap(cache, key, decompiled).index();
+		Assertions.assertEquals(1, decompiled.get());
+
+		Assertions.assertEquals(expected.getSource(), cached.getSource());
+		Assertions.assertEquals(toList(expected.referenceTokens()), toList(cached.referenceTokens()));
+		for (Token token : expected.referenceTokens()) {
+			EntryReference<Entry<?>, Entry<?>> reference = expected.getReference(token);
+			Assertions.assertEquals(reference, cached.getReference(token));
+			Assertions.assertEquals(reference.isNamed(), cached.getReference(token).isNamed());
+			Assertions.assertEquals(expected.getReferenceTokens(reference), cached.getReferenceTokens(reference));
+		}
+
+		for (Entry<?> entry : List.of(CLASS, FIELD, METHOD, PARAMETER)) {
+			Assertions.assertEquals(expected.getDeclarationToken(entry), cached.getDeclarationToken(entry));
+			Assertions.assertEquals(expected.getReferenceTokens(EntryReference.declaration(entry, null)), cached.getReferenceTokens(EntryReference.declaration(entry, null)));
+		}
+
+		Utils.delete(directory);
+	}
+
+	@Test
+	public void testJavadocKey() {
+		HashEntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(CLASS, new EntryMapping("Alpha"));
+		mappings.insert(FIELD, new EntryMapping("bravo"));
+		EntryRemapper remapper = EntryRemapper.mapped(JarIndex.empty(), mappings);
+
+		// without javadocs, sources with and without them are the same
+		String key = "0123456789abcdef";
+		Assertions.assertEquals(key, SourceCache.getJavadocKey(key, "a", remapper));
+
+		remapper.getObfToDeobf().insert(FIELD, new EntryMapping("bravo", "Some field"));
+		String javadocKey = SourceCache.getJavadocKey(key, "a", remapper);
+		Assertions.assertNotEquals(key, javadocKey);
+
+		// renaming a parameter without javadocs doesn't change the source
+		remapper.getObfToDeobf().insert(PARAMETER, new EntryMapping("delta"));
+		Assertions.assertEquals(javadocKey, SourceCache.getJavadocKey(key, "a", remapper));
+
+		remapper.getObfToDeobf().insert(FIELD, new EntryMapping("bravo", "Another field"));
+		Assertions.assertNotEquals(javadocKey, SourceCache.getJavadocKey(key, "a", remapper));
+	}
+
+	@Test
+	public void testPrune() throws IOException {
+		Path directory = Files.createTempDirectory("sourceCache");
+		SourceCache cache = new SourceCache(directory);
+		AtomicInteger decompiled = new AtomicInteger();
+
+		for (int i = 0; i < 4; i++) {
+			wrap(cache, "0" + i + "23456789abcdef", decompiled).index();
+		}
+
+		List<Path> files = listFiles(directory);
+		Assertions.assertEquals(4, files.size());
+		long size = Files.size(files.get(0));
+
+		cache.prune(size * 4);
+		Assertions.assertEquals(4, listFiles(directory).size());
+
+		cache.prune(size * 2);
+		Assertions.assertEquals(2, listFiles(directory).size());
+
+		Utils.delete(directory);
+	}
+
+	private static <T> List<T> toList(Iterable<T> iterable) {
+		List<T> list = new ArrayList<>();
+		iterable.forEach(list::add);
+		return list;
+	}
+}
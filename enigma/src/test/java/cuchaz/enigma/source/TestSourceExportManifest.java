@@ -0,0 +1,43 @@
+package cuchaz.enigma.source;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+public class TestSourceExportManifest {
+	@Test
+	public void testRoundTrip() throws Exception {
+		Path directory = Files.createTempDirectory("sourceExportManifest");
+
+		SourceExportManifest manifest = new SourceExportManifest();
+		manifest.putHash("a/b", "0123");
+		manifest.putHash("a/c$d", "4567");
+		manifest.putClass("a/e");
+		manifest.write(directory);
+
+		SourceExportManifest read = SourceExportManifest.read(directory);
+		Assertions.assertEquals(Set.of("a/b", "a/c$d", "a/e"), read.getClassNames());
+		Assertions.assertEquals("0123", read.getHash("a/b"));
+		Assertions.assertEquals("4567", read.getHash("a/c$d"));
+		Assertions.assertNull(read.getHash("a/e"));
+
+		Files.delete(directory.resolve(SourceExportManifest.FILE_NAME));
+		Files.delete(directory);
+	}
+
+	@Test
+	public void testMissingOrInvalid() throws Exception {
+		Path directory = Files.createTempDirectory("sourceExportManifest");
+		Assertions.assertTrue(SourceExportManifest.read(directory).getClassNames().isEmpty());
+
+		// without the header, the manifest is from something else
+		Files.writeString(directory.resolve(SourceExportManifest.FILE_NAME), "0123 a/b\n");
+		Assertions.assertTrue(SourceExportManifest.read(directory).getClassNames().isEmpty());
+
+		Files.delete(directory.resolve(SourceExportManifest.FILE_NAME));
+		Files.delete(directory);
+	}
+}
@@ -0,0 +1,27 @@
+package cuchaz.enigma.source;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSourceIndex {
+	@Test
+	public void testLinePositions() {
+		String source = "class a {\n\n\tint b;\n}";
+		SourceIndex index = new SourceIndex(source);
+
+		for (int position = 0; position <= source.length(); position++) {
+			int line = 1;
+			int lineStart = 0;
+			for (int i = 0; i < position; i++) {
+				if (source.charAt(i) == '\n') {
+					line++;
+					lineStart = i + 1;
+				}
+			}
+
+			Assertions.assertEquals(line, index.getLineNumber(position));
+			Assertions.assertEquals(position - lineStart + 1, index.getColumnNumber(position));
+			Assertions.assertEquals(position, index.getPosition(line, position - lineStart + 1));
+		}
+	}
+}
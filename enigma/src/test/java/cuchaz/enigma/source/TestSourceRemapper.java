@@ -0,0 +1,64 @@
+package cuchaz.enigma.source;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TestSourceRemapper {
+	private static final String SOURCE = "class a { b c; void d(b e) { this.c = e; } }";
+
+	private static List<Token> tokens() {
+		return List.of(token("a", 0), token("b", 0), token("c", 0), token("d", 0), token("b", 1), token("e", 0), token("c", 1), token("e", 1));
+	}
+
+	private static Token token(String name, int occurrence) {
+		Matcher matcher = Pattern.compile("\\b" + name + "\\b").matcher(SOURCE);
+		for (int i = 0; i <= occurrence; i++) {
+			matcher.find();
+		}
+
+		return new Token(matcher.start(), matcher.end(), name);
+	}
+
+	private static SourceRemapper.Result remap(String source, List<Token> tokens, Map<String, String> names) {
+		return new SourceRemapper(source, tokens).remap((token, movedToken) -> names.get(token.text));
+	}
+
+	@Test
+	public void testRemap() {
+		SourceRemapper.Result result = remap(SOURCE, tokens(), Map.of("a", "Alpha", "c", "charlie", "e", "echo"));
+		Assertions.assertEquals("class Alpha { b charlie; void d(b echo) { this.charlie = echo; } }", result.getSource());
+		Assertions.assertFalse(result.isEmpty());
+
+		for (Token token : tokens()) {
+			Token remapped = result.getRemappedToken(token);
+			Assertions.assertEquals(remapped.text, result.getSource().substring(remapped.start, remapped.end));
+		}
+
+		Assertions.assertTrue(remap(SOURCE, tokens(), Map.of()).isEmpty());
+	}
+
+	@Test
+	public void testPatch() {
+		SourceRemapper.Result full = remap(SOURCE, tokens(), Map.of("a", "Alpha", "c", "charlie"));
+
+		// rename e in the remapped source only, the other tokens just move
+		List<Token> patched = tokens().stream().filter(t -> t.text.equals("e")).map(full::getRemappedToken).toList();
+		SourceRemapper.Result patch = remap(full.getSource(), patched, Map.of("e", "echo"));
+
+		SourceRemapper.Result expected = remap(SOURCE, tokens(), Map.of("a", "Alpha", "c", "charlie", "e", "echo"));
+		Assertions.assertEquals(expected.getSource(), patch.getSource());
+
+		for (Token token : tokens()) {
+			Token remapped = patch.getRemappedToken(full.getRemappedToken(token));
+			Token expectedToken = expected.getRemappedToken(token);
+			Assertions.assertEquals(expectedToken.start, remapped.start);
+			Assertions.assertEquals(expectedToken.end, remapped.end);
+			Assertions.assertEquals(expectedToken.text, remapped.text);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package cuchaz.enigma.translation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.ForwardingCache;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.VoidEntryResolver;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestTranslationCache {
+	@Test
+	public void testInvalidation() {
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>(new HashEntryTree<>());
+		TranslationCache cache = new TranslationCache(1024);
+		mappings.addListener(cache);
+		Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE, cache);
+
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Alpha"));
+		Assertions.assertEquals(new MethodDescriptor("(Lpkg/Alpha$b;Lc;)Lpkg/Alpha;"), translator.translate(new MethodDescriptor("(La$b;Lc;)La;")));
+		Assertions.assertEquals(new TypeDescriptor("Lpkg/Alpha;"), translator.translate(new TypeDescriptor("La;")));
+		Assertions.assertEquals(new TypeDescriptor("Lc;"), translator.translate(new TypeDescriptor("Lc;")));
+		long size = cache.size();
+
+		// member and javadoc changes do not evict anything
+		mappings.insert(FieldEntry.parse("a", "f", "I"), new EntryMapping("field"));
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Alpha", "docs"));
+		Assertions.assertEquals(size, cache.size());
+
+		mappings.insert(new ClassEntry("a$b"), new EntryMapping("Beta"));
+		Assertions.assertEquals(new TypeDescriptor("Lc;"), translator.translate(new TypeDescriptor("Lc;")));
+		Assertions.assertEquals(new MethodDescriptor("(Lpkg/Alpha$Beta;Lc;)Lpkg/Alpha;"), translator.translate(new MethodDescriptor("(La$b;Lc;)La;")));
+
+		mappings.remove(new ClassEntry("a"));
+		Assertions.assertEquals(new TypeDescriptor("La;"), translator.translate(new TypeDescriptor("La;")));
+	}
+
+	@Test
+	public void testRenameBeforePut() {
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>(new HashEntryTree<>());
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Alpha"));
+
+		// the rename happens after the translation was computed, right before it's cached
+		Cache<Translatable, TranslateResult<?>> backingCache = CacheBuilder.newBuilder().build();
+		AtomicBoolean renamed = new AtomicBoolean();
+		TranslationCache cache = new TranslationCache(new ForwardingCache.SimpleForwardingCache<>(backingCache) {
+			@Override
+			public void put(Translatable key, TranslateResult<?> value) {
+				if (renamed.compareAndSet(false, true)) {
+					mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Renamed"));
+				}
+
+				super.put(key, value);
+			}
+		});
+		mappings.addListener(cache);
+		Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE, cache);
+
+		Assertions.assertEquals(new TypeDescriptor("Lpkg/Alpha;"), translator.translate(new TypeDescriptor("La;")));
+		Assertions.assertTrue(renamed.get());
+		Assertions.assertEquals(0, cache.size());
+		Assertions.assertEquals(new TypeDescriptor("Lpkg/Renamed;"), translator.translate(new TypeDescriptor("La;")));
+	}
+}
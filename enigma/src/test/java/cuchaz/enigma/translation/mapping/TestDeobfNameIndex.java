@@ -0,0 +1,54 @@
+package cuchaz.enigma.translation.mapping;
+
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+public class TestDeobfNameIndex {
+	@Test
+	public void testClassLookup() {
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>(new HashEntryTree<>());
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Alpha"));
+		DeobfNameIndex index = DeobfNameIndex.create(mappings);
+
+		mappings.insert(new ClassEntry("a$b"), new EntryMapping("Beta"));
+		mappings.insert(new ClassEntry("c$d"), new EntryMapping("Delta"));
+
+		Assertions.assertEquals(new ClassEntry("a"), index.getObfClass(new ClassEntry("pkg/Alpha")));
+		Assertions.assertEquals(new ClassEntry("a$b"), index.getObfClass(new ClassEntry("pkg/Alpha$Beta")));
+		Assertions.assertEquals(new ClassEntry("c$d"), index.getObfClass(new ClassEntry("c$Delta")));
+		Assertions.assertNull(index.getObfClass(new ClassEntry("a")));
+
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Renamed"));
+		Assertions.assertNull(index.getObfClass(new ClassEntry("pkg/Alpha")));
+		Assertions.assertEquals(new ClassEntry("a$b"), index.getObfClass(new ClassEntry("pkg/Renamed$Beta")));
+
+		mappings.remove(new ClassEntry("a$b"));
+		Assertions.assertNull(index.getObfClass(new ClassEntry("pkg/Renamed$Beta")));
+	}
+
+	@Test
+	public void testObfNameLookup() {
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>(new HashEntryTree<>());
+		DeobfNameIndex index = DeobfNameIndex.create(mappings);
+
+		MethodEntry first = MethodEntry.parse("a", "m", "()V");
+		MethodEntry second = MethodEntry.parse("b", "m", "(I)V");
+		mappings.insert(first, new EntryMapping("run"));
+		mappings.insert(second, new EntryMapping("walk"));
+		mappings.insert(MethodEntry.parse("c", "m", "()V"), new EntryMapping(null));
+
+		Assertions.assertEquals(Set.of(first, second), Set.copyOf(index.getMappedEntriesByObfName("m", DeobfNameIndex.Kind.METHOD)));
+		Assertions.assertTrue(index.hasDeobfName(new ClassEntry("a"), "run", DeobfNameIndex.Kind.METHOD));
+		Assertions.assertFalse(index.hasDeobfName(new ClassEntry("a"), "run", DeobfNameIndex.Kind.FIELD));
+
+		mappings.insert(first, new EntryMapping(null));
+		Assertions.assertEquals(Set.of(second), Set.copyOf(index.getMappedEntriesByObfName("m", DeobfNameIndex.Kind.METHOD)));
+		Assertions.assertFalse(index.hasDeobfName(new ClassEntry("a"), "run", DeobfNameIndex.Kind.METHOD));
+	}
+}
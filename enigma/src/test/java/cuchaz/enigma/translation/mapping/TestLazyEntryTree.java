@@ -0,0 +1,155 @@
+package cuchaz.enigma.translation.mapping;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsReader;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+public class TestLazyEntryTree {
+	private final MappingSaveParameters parameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+	private static EntryTree<EntryMapping> createMappings() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Alpha", "alpha class"));
+		mappings.insert(new ClassEntry("a$b"), new EntryMapping("Beta"));
+		mappings.insert(FieldEntry.parse("a", "f", "I"), new EntryMapping("field", "a field"));
+		mappings.insert(MethodEntry.parse("c", "m", "()V"), new EntryMapping("method"));
+		mappings.insert(new ClassEntry("d"), new EntryMapping("Delta"));
+		return mappings;
+	}
+
+	private static Set<String> dump(EntryTree<EntryMapping> mappings) {
+		Set<String> result = new HashSet<>();
+		for (EntryTreeNode<EntryMapping> node : mappings) {
+			if (node.hasValue()) {
+				result.add(node.getEntry() + " -> " + node.getValue());
+			}
+		}
+
+		return result;
+	}
+
+	private Path writeDirectory() throws IOException {
+		Path directory = Files.createTempDirectory("lazyMappings");
+		MappingFormat.ENIGMA_DIRECTORY.write(createMappings(), directory, ProgressListener.none(), this.parameters);
+		return directory;
+	}
+
+	@Test
+	public void testLoadOnAccess() throws IOException, MappingParseException {
+		Path directory = this.writeDirectory();
+		EntryTree<EntryMapping> eager = MappingFormat.ENIGMA_DIRECTORY.read(directory, ProgressListener.none(), this.parameters);
+		LazyEntryTree<EntryMapping> mappings = EnigmaMappingsReader.readDirectoryLazily(directory, null, ProgressListener.none());
+
+		// top-level classes are known without loading them
+		Assertions.assertEquals(new EntryMapping("pkg/Alpha", "alpha class"), mappings.get(new ClassEntry("a")));
+		Assertions.assertEquals(eager.get(new ClassEntry("c")), mappings.get(new ClassEntry("c")));
+		Assertions.assertFalse(mappings.isFullyLoaded());
+
+		Assertions.assertEquals(new EntryMapping("field", "a field"), mappings.get(FieldEntry.parse("a", "f", "I")));
+		Assertions.assertEquals(new EntryMapping("Beta"), mappings.get(new ClassEntry("a$b")));
+		Assertions.assertFalse(mappings.isFullyLoaded());
+
+		Assertions.assertEquals(dump(eager), dump(mappings));
+		Assertions.assertTrue(mappings.isFullyLoaded());
+
+		Utils.delete(directory);
+	}
+
+	@Test
+	public void testBackgroundLoading() throws Exception {
+		Path directory = this.writeDirectory();
+		LazyEntryTree<EntryMapping> mappings = EnigmaMappingsReader.readDirectoryLazily(directory, null, ProgressListener.none());
+
+		DeltaTrackingTree<EntryMapping> tracked = new DeltaTrackingTree<>(mappings);
+		DeobfNameIndex index = DeobfNameIndex.create(tracked);
+
+		// looking up a member name loads its class
+		Assertions.assertTrue(index.hasDeobfName(new ClassEntry("c"), "method", DeobfNameIndex.Kind.METHOD));
+
+		tracked.insert(new ClassEntry("d"), new EntryMapping("Echo"));
+		mappings.loadInBackground().get();
+
+		Assertions.assertTrue(mappings.isFullyLoaded());
+		Assertions.assertEquals(new ClassEntry("a"), index.getObfClass(new ClassEntry("pkg/Alpha")));
+		Assertions.assertEquals(new ClassEntry("d"), index.getObfClass(new ClassEntry("Echo")));
+
+		MappingDelta<EntryMapping> delta = tracked.takeDelta();
+		Assertions.assertEquals(new EntryMapping("Delta"), delta.getBaseMappings().get(new ClassEntry("d")));
+		Assertions.assertEquals(new EntryMapping("Beta"), delta.getBaseMappings().get(new ClassEntry("a$b")));
+
+		Utils.delete(directory);
+	}
+
+	@Test
+	public void testSnapshotWithoutLoading() throws Exception {
+		Path directory = this.writeDirectory();
+		EntryTree<EntryMapping> eager = MappingFormat.ENIGMA_DIRECTORY.read(directory, ProgressListener.none(), this.parameters);
+		LazyEntryTree<EntryMapping> mappings = EnigmaMappingsReader.readDirectoryLazily(directory, null, ProgressListener.none());
+		DeltaTrackingTree<EntryMapping> tracked = new DeltaTrackingTree<>(mappings);
+
+		tracked.insert(new ClassEntry("d"), new EntryMapping("Echo"));
+		DeltaTrackingTree.Snapshot<EntryMapping> snapshot = tracked.takeSnapshot();
+		Assertions.assertFalse(mappings.isFullyLoaded());
+
+		// neither loading nor changing the tree affects what was handed out
+		Set<String> baseMappings = dump(snapshot.delta().getBaseMappings());
+		mappings.loadAll();
+		tracked.insert(new ClassEntry("a"), new EntryMapping("Other"));
+		Assertions.assertEquals(baseMappings, dump(snapshot.delta().getBaseMappings()));
+
+		eager.insert(new ClassEntry("d"), new EntryMapping("Echo"));
+		Assertions.assertEquals(dump(eager), dump(snapshot.mappings()));
+
+		Utils.delete(directory);
+	}
+
+	@Test
+	public void testLoadFailure() throws Exception {
+		Path directory = this.writeDirectory();
+		Path file = directory.resolve("c.mapping");
+		Files.writeString(file, Files.readString(file) + "\tUNKNOWN a b\n");
+		String contents = Files.readString(file);
+
+		LazyEntryTree<EntryMapping> mappings = EnigmaMappingsReader.readDirectoryLazily(directory, null, ProgressListener.none());
+		MethodEntry method = MethodEntry.parse("c", "m", "()V");
+
+		LazyEntryTree.LoadException failure = Assertions.assertThrows(LazyEntryTree.LoadException.class, () -> mappings.get(method));
+		Assertions.assertInstanceOf(MappingParseException.class, failure.getCause());
+		Assertions.assertThrows(LazyEntryTree.LoadException.class, () -> mappings.get(method));
+
+		// the other classes still load
+		ExecutionException backgroundFailure = Assertions.assertThrows(ExecutionException.class, () -> mappings.loadInBackground().get());
+		Assertions.assertInstanceOf(LazyEntryTree.LoadException.class, backgroundFailure.getCause());
+		Assertions.assertEquals(new EntryMapping("field", "a field"), mappings.get(FieldEntry.parse("a", "f", "I")));
+		Assertions.assertFalse(mappings.isFullyLoaded());
+
+		// saving fails instead of writing the class without its mappings
+		DeltaTrackingTree<EntryMapping> tracked = new DeltaTrackingTree<>(mappings);
+		Assertions.assertThrows(LazyEntryTree.LoadException.class, () -> MappingFormat.ENIGMA_DIRECTORY.write(tracked, directory, ProgressListener.none(), this.parameters));
+		Assertions.assertThrows(LazyEntryTree.LoadException.class, () -> MappingFormat.ENIGMA_DIRECTORY.write(tracked.takeSnapshot().mappings(), directory, ProgressListener.none(), this.parameters));
+		Assertions.assertEquals(contents, Files.readString(file));
+
+		Utils.delete(directory);
+	}
+}
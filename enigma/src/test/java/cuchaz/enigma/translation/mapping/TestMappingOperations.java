@@ -0,0 +1,89 @@
+package cuchaz.enigma.translation.mapping;
+
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TestMappingOperations {
+	private static EntryTree<EntryMapping> createLeft() {
+		EntryTree<EntryMapping> left = new HashEntryTree<>();
+		left.insert(new ClassEntry("a"), new EntryMapping("pkg/Alpha"));
+		left.insert(new ClassEntry("a$b"), new EntryMapping("Beta"));
+		left.insert(MethodEntry.parse("a", "m", "(La$b;)V"), new EntryMapping("run"));
+		left.insert(FieldEntry.parse("c", "f", "La;"), new EntryMapping("field"));
+		return left;
+	}
+
+	@Test
+	public void testInvert() {
+		EntryTree<EntryMapping> inverted = MappingOperations.invert(createLeft());
+
+		Assertions.assertEquals(new EntryMapping("a"), inverted.get(new ClassEntry("pkg/Alpha")));
+		Assertions.assertEquals(new EntryMapping("b"), inverted.get(new ClassEntry("pkg/Alpha$Beta")));
+		Assertions.assertEquals(new EntryMapping("m"), inverted.get(MethodEntry.parse("pkg/Alpha", "run", "(Lpkg/Alpha$Beta;)V")));
+		Assertions.assertEquals(new EntryMapping("f"), inverted.get(FieldEntry.parse("c", "field", "Lpkg/Alpha;")));
+	}
+
+	@Test
+	public void testInvertByClass() {
+		List<EntryTree<EntryMapping>> classTrees = MappingOperations.invertByClass(createLeft()).toList();
+
+		// one tree per top-level class
+		Assertions.assertEquals(2, classTrees.size());
+		for (EntryTree<EntryMapping> classTree : classTrees) {
+			Assertions.assertEquals(1L, classTree.getRootNodes().count());
+		}
+	}
+
+	@Test
+	public void testCompose() {
+		EntryTree<EntryMapping> right = new HashEntryTree<>();
+		right.insert(new ClassEntry("pkg/Alpha"), new EntryMapping("pkg/Final"));
+		right.insert(new ClassEntry("d"), new EntryMapping("D"));
+
+		EntryTree<EntryMapping> both = MappingOperations.compose(createLeft(), right, true, true);
+		Assertions.assertEquals(new EntryMapping("pkg/Final"), both.get(new ClassEntry("a")));
+		Assertions.assertEquals(new EntryMapping("Beta"), both.get(new ClassEntry("a$b")));
+		Assertions.assertEquals(new EntryMapping("D"), both.get(new ClassEntry("d")));
+
+		EntryTree<EntryMapping> leftOnly = MappingOperations.compose(createLeft(), right, true, false);
+		Assertions.assertEquals(new EntryMapping("Beta"), leftOnly.get(new ClassEntry("a$b")));
+		Assertions.assertNull(leftOnly.get(new ClassEntry("d")));
+
+		EntryTree<EntryMapping> neither = MappingOperations.compose(createLeft(), right, false, false);
+		Assertions.assertEquals(new EntryMapping("pkg/Final"), neither.get(new ClassEntry("a")));
+		Assertions.assertNull(neither.get(new ClassEntry("a$b")));
+	}
+
+	@Test
+	public void testDiff() {
+		EntryTree<EntryMapping> right = createLeft();
+		right.insert(new ClassEntry("a$b"), new EntryMapping("Bravo"));
+		right.insert(MethodEntry.parse("a", "m", "(La$b;)V"), new EntryMapping("run", "runs it"));
+		right.remove(FieldEntry.parse("c", "f", "La;"));
+		right.insert(new LocalVariableEntry(MethodEntry.parse("a", "m", "(La$b;)V"), 1, "", true, null), new EntryMapping("beta"));
+		right.insert(new ClassEntry("d"), new EntryMapping("Delta"));
+		// same as no mapping
+		right.insert(new ClassEntry("e"), EntryMapping.DEFAULT);
+
+		List<MappingDiff> diffs = MappingOperations.diff(createLeft(), right);
+
+		Assertions.assertEquals(List.of(
+				new MappingDiff(new ClassEntry("a$b"), new EntryMapping("Beta"), new EntryMapping("Bravo")),
+				new MappingDiff(MethodEntry.parse("a", "m", "(La$b;)V"), new EntryMapping("run"), new EntryMapping("run", "runs it")),
+				new MappingDiff(new LocalVariableEntry(MethodEntry.parse("a", "m", "(La$b;)V"), 1, "", true, null), null, new EntryMapping("beta")),
+				new MappingDiff(FieldEntry.parse("c", "f", "La;"), new EntryMapping("field"), null),
+				new MappingDiff(new ClassEntry("d"), null, new EntryMapping("Delta"))
+		), diffs);
+		Assertions.assertEquals(List.of(MappingDiff.Kind.RENAMED, MappingDiff.Kind.CHANGED, MappingDiff.Kind.ADDED, MappingDiff.Kind.REMOVED, MappingDiff.Kind.ADDED), diffs.stream().map(MappingDiff::kind).toList());
+
+		Assertions.assertTrue(MappingOperations.diff(right, right).isEmpty());
+	}
+}
@@ -142,6 +142,25 @@ public class TestMappingValidator {
 		assertErrorMessages(vc, Message.NONUNIQUE_NAME_CLASS);
 	}
 
+	@Test
+	public void nonUniqueObfNames() {
+		// the field keeps its obfuscated name, only its javadoc is mapped
+		remapper.putMapping(newVC(), newField("a", "a", "I"), new EntryMapping(null, "A field"));
+
+		ValidationContext vc = new ValidationContext(notifier());
+		remapper.validatePutMapping(vc, newField("a", "b", "I"), new EntryMapping("a"));
+
+		assertErrorMessages(vc, Message.NONUNIQUE_NAME_CLASS);
+
+		// the obfuscated name of a named method is taken as well
+		remapper.putMapping(newVC(), newMethod("a", "b", "()V"), new EntryMapping("method01"));
+
+		vc = new ValidationContext(notifier());
+		remapper.validatePutMapping(vc, newMethod("a", "d", "()V"), new EntryMapping("b"));
+
+		assertErrorMessages(vc, Message.NONUNIQUE_NAME_CLASS);
+	}
+
 	private static void assertValid(ValidationContext vc) {
 		assertThat(vc.getMessages().size(), is(0));
 		assertThat(vc.canProceed(), is(true));
@@ -0,0 +1,104 @@
+package cuchaz.enigma.translation.mapping;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.TestUtil;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.classprovider.CachingClassProvider;
+import cuchaz.enigma.classprovider.JarClassProvider;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+
+public class TestMappingsChecker {
+	public static final Path JAR = TestUtil.obfJar("inheritanceTree");
+
+	private static final ClassEntry BASE_CLASS = newClass("a");
+	private static final ClassEntry SUB_CLASS_B = newClass("c");
+	private static final ClassEntry SUB_CLASS_AA = newClass("d");
+	private static final ClassEntry MISSING_CLASS = newClass("z");
+
+	private static final FieldEntry NAME_FIELD = newField(BASE_CLASS, "a", "Ljava/lang/String;");
+	private static final FieldEntry MISSING_FIELD = newField(BASE_CLASS, "z", "I");
+	private static final FieldEntry NUM_THINGS_FIELD = newField(SUB_CLASS_B, "a", "I");
+	private static final FieldEntry MISSING_CLASS_FIELD = newField(MISSING_CLASS, "a", "I");
+	// overrides a.a()Ljava/lang/String;, so it's named by its root
+	private static final MethodEntry OVERRIDE_GET_NAME = newMethod(SUB_CLASS_AA, "a", "()Ljava/lang/String;");
+
+	private final JarIndex index;
+
+	public TestMappingsChecker() throws Exception {
+		JarClassProvider jcp = new JarClassProvider(JAR);
+		this.index = JarIndex.empty();
+		this.index.indexJar(jcp.getClassNames(), new CachingClassProvider(jcp), ProgressListener.none());
+	}
+
+	@Test
+	public void testDropBrokenAndEmpty() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(BASE_CLASS, new EntryMapping("Base"));
+		mappings.insert(NAME_FIELD, new EntryMapping("name"));
+		mappings.insert(MISSING_FIELD, new EntryMapping("missing"));
+		mappings.insert(MISSING_CLASS, new EntryMapping("Missing"));
+		mappings.insert(MISSING_CLASS_FIELD, new EntryMapping("missingClassField"));
+		// kept, its field is still mapped
+		mappings.insert(SUB_CLASS_B, EntryMapping.DEFAULT);
+		mappings.insert(NUM_THINGS_FIELD, new EntryMapping("numThings"));
+		// empty once its only child is dropped as broken
+		mappings.insert(SUB_CLASS_AA, EntryMapping.DEFAULT);
+		mappings.insert(OVERRIDE_GET_NAME, new EntryMapping("getName"));
+
+		Set<Thread> progressThreads = new HashSet<>();
+		ProgressListener progress = new ProgressListener() {
+			@Override
+			public void init(int totalWork, String title) {
+				Assertions.assertEquals(4, totalWork);
+			}
+
+			@Override
+			public void step(int numDone, String message) {
+				progressThreads.add(Thread.currentThread());
+			}
+		};
+
+		MappingsChecker.Result result = new MappingsChecker(this.index, mappings).dropBrokenAndEmptyMappings(progress);
+
+		Assertions.assertEquals(Set.of(MISSING_FIELD, MISSING_CLASS, MISSING_CLASS_FIELD, OVERRIDE_GET_NAME), result.broken().getDroppedMappings().keySet());
+		Assertions.assertEquals("getName", result.broken().getDroppedMappings().get(OVERRIDE_GET_NAME));
+		Assertions.assertEquals(Set.of(SUB_CLASS_AA), result.empty().getDroppedMappings().keySet());
+
+		Set<Entry<?>> remaining = new HashSet<>();
+		mappings.getAllEntries().forEach(remaining::add);
+		Assertions.assertEquals(Set.of(BASE_CLASS, NAME_FIELD, SUB_CLASS_B, NUM_THINGS_FIELD), remaining);
+
+		Assertions.assertEquals(Set.of(Thread.currentThread()), progressThreads);
+	}
+
+	@Test
+	public void testSeparateChecks() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(BASE_CLASS, new EntryMapping("Base"));
+		mappings.insert(MISSING_FIELD, new EntryMapping("missing"));
+		mappings.insert(SUB_CLASS_AA, EntryMapping.DEFAULT);
+		mappings.insert(OVERRIDE_GET_NAME, new EntryMapping("getName"));
+
+		// the same mappings are dropped as by the combined check
+		MappingsChecker checker = new MappingsChecker(this.index, mappings);
+		Assertions.assertEquals(Set.of(MISSING_FIELD, OVERRIDE_GET_NAME), checker.dropBrokenMappings(ProgressListener.none()).getDroppedMappings().keySet());
+		Assertions.assertEquals(Set.of(SUB_CLASS_AA), checker.dropEmptyMappings(ProgressListener.none()).getDroppedMappings().keySet());
+
+		Set<Entry<?>> remaining = new HashSet<>();
+		mappings.getAllEntries().forEach(remaining::add);
+		Assertions.assertEquals(Set.of(BASE_CLASS), remaining);
+	}
+}
@@ -125,4 +125,9 @@ public class TestReadWriteCycle {
 	public void testTinyV2() throws IOException, MappingParseException {
 		testReadWriteCycle(MappingFormat.TINY_V2, true, ".tinyv2");
 	}
+
+	@Test
+	public void testBinaryFile() throws IOException, MappingParseException {
+		testReadWriteCycle(MappingFormat.BINARY_FILE, true, ".emap");
+	}
 }
@@ -0,0 +1,136 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.serde.enigma.EnigmaMappingsReader;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestAsyncMappingSaver {
+	private final MappingSaveParameters parameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+	private static Set<String> listFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile).map(file -> directory.relativize(file).toString().replace('\\', '/')).collect(Collectors.toSet());
+		}
+	}
+
+	@Test
+	public void testMergedDelta() {
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>();
+		mappings.insert(new ClassEntry("a"), new EntryMapping("Alpha"));
+		mappings.takeDelta();
+
+		mappings.insert(new ClassEntry("a"), new EntryMapping("Alpha2"));
+		DeltaTrackingTree.Snapshot<EntryMapping> first = mappings.takeSnapshot();
+		mappings.insert(new ClassEntry("b"), new EntryMapping("Bravo"));
+		DeltaTrackingTree.Snapshot<EntryMapping> second = mappings.takeSnapshot();
+
+		// later changes don't leak into the snapshot
+		Assertions.assertNull(first.mappings().get(new ClassEntry("b")));
+		Assertions.assertEquals(new EntryMapping("Alpha2"), first.mappings().get(new ClassEntry("a")));
+
+		MappingDelta<EntryMapping> merged = first.delta().andThen(second.delta());
+		Assertions.assertEquals(new EntryMapping("Alpha"), merged.getBaseMappings().get(new ClassEntry("a")));
+		Assertions.assertEquals(Set.of(new ClassEntry("a"), new ClassEntry("b")), merged.getChangedRoots().collect(Collectors.toSet()));
+	}
+
+	@Test
+	public void testMergedLazyDelta() throws IOException, MappingParseException {
+		Path directory = Files.createTempDirectory("asyncMappings");
+
+		EntryTree<EntryMapping> initial = new HashEntryTree<>();
+		initial.insert(new ClassEntry("a"), new EntryMapping("Alpha"));
+		initial.insert(new ClassEntry("b"), new EntryMapping("Bravo"));
+		MappingFormat.ENIGMA_DIRECTORY.write(initial, directory, ProgressListener.none(), this.parameters);
+
+		LazyEntryTree<EntryMapping> lazyMappings = EnigmaMappingsReader.readDirectoryLazily(directory, null, ProgressListener.none());
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>(lazyMappings);
+
+		mappings.insert(new ClassEntry("a"), new EntryMapping("Alpha2"));
+		DeltaTrackingTree.Snapshot<EntryMapping> first = mappings.takeSnapshot();
+
+		// loaded and renamed while the first save is still queued
+		mappings.insert(new ClassEntry("b"), new EntryMapping("Bravo2"));
+		DeltaTrackingTree.Snapshot<EntryMapping> second = mappings.takeSnapshot();
+
+		MappingDelta<EntryMapping> merged = first.delta().andThen(second.delta());
+		Assertions.assertEquals(new EntryMapping("Bravo"), merged.getBaseMappings().get(new ClassEntry("b")));
+		Assertions.assertNull(first.delta().getBaseMappings().get(new ClassEntry("b")));
+
+		MappingFormat.ENIGMA_DIRECTORY.write(second.mappings(), merged, directory, ProgressListener.none(), this.parameters);
+		Assertions.assertEquals(Set.of("Alpha2.mapping", "Bravo2.mapping"), listFiles(directory));
+
+		Utils.delete(directory);
+	}
+
+	@Test
+	public void testRepeatedSaves() throws IOException, MappingParseException {
+		Path directory = Files.createTempDirectory("asyncMappings");
+		AsyncMappingSaver saver = new AsyncMappingSaver();
+
+		EntryTree<EntryMapping> initial = new HashEntryTree<>();
+		initial.insert(new ClassEntry("a"), new EntryMapping("Alpha"));
+		initial.insert(new ClassEntry("b"), new EntryMapping("Bravo"));
+		EntryRemapper mapper = EntryRemapper.mapped(JarIndex.empty(), initial);
+		saver.save(mapper, MappingFormat.ENIGMA_DIRECTORY, directory, this.parameters, true, ProgressListener.none()).join();
+
+		// requests made while a save is running are merged, the renamed classes must still lose their old files
+		CompletableFuture<?>[] saves = new CompletableFuture<?>[20];
+		for (int i = 0; i < saves.length; i++) {
+			mapper.getObfToDeobf().insert(new ClassEntry("a"), new EntryMapping("Alpha" + i));
+			mapper.getObfToDeobf().insert(FieldEntry.parse("b", "f" + i, "I"), new EntryMapping("field" + i));
+			saves[i] = saver.save(mapper, MappingFormat.ENIGMA_DIRECTORY, directory, this.parameters, false, ProgressListener.none());
+		}
+
+		CompletableFuture.allOf(saves).join();
+
+		Assertions.assertEquals(Set.of("Alpha19.mapping", "Bravo.mapping"), listFiles(directory));
+
+		EntryTree<EntryMapping> loaded = MappingFormat.ENIGMA_DIRECTORY.read(directory, ProgressListener.none(), this.parameters);
+		Assertions.assertEquals(new EntryMapping("Alpha19"), loaded.get(new ClassEntry("a")));
+		for (int i = 0; i < saves.length; i++) {
+			Assertions.assertEquals(new EntryMapping("field" + i), loaded.get(FieldEntry.parse("b", "f" + i, "I")));
+		}
+
+		Utils.delete(directory);
+	}
+
+	@Test
+	public void testSingleFileIsReplaced() throws IOException, MappingParseException {
+		Path directory = Files.createTempDirectory("asyncMappings");
+		Path file = directory.resolve("mappings.tiny");
+		AsyncMappingSaver saver = new AsyncMappingSaver();
+
+		EntryRemapper mapper = EntryRemapper.mapped(JarIndex.empty(), new HashEntryTree<>());
+		mapper.getObfToDeobf().insert(new ClassEntry("a"), new EntryMapping("Alpha"));
+		saver.save(mapper, MappingFormat.TINY_V2, file, this.parameters, true, ProgressListener.none()).join();
+
+		mapper.getObfToDeobf().insert(new ClassEntry("a"), new EntryMapping("Alpha2"));
+		saver.save(mapper, MappingFormat.TINY_V2, file, this.parameters, true, ProgressListener.none()).join();
+
+		// the temporary file was moved into place
+		Assertions.assertEquals(Set.of("mappings.tiny"), listFiles(directory));
+		Assertions.assertEquals(new EntryMapping("Alpha2"), MappingFormat.TINY_V2.read(file, ProgressListener.none(), this.parameters).get(new ClassEntry("a")));
+
+		Utils.delete(directory);
+	}
+}
@@ -0,0 +1,89 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.TestUtil;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests that the tiny writers, which render classes in parallel, still write the same file as when they rendered
+ * one class after the other. The expected files were written by the sequential writers from the same mappings.
+ */
+public class TestTinyWriters {
+	private static final MappingSaveParameters PARAMETERS = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+	private static final int CLASSES = 200;
+
+	/**
+	 * Enough classes for the work to be split between threads, with inner classes, javadoc-only and unmapped entries.
+	 */
+	static EntryTree<EntryMapping> createMappings() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+
+		for (int i = 0; i < CLASSES; i++) {
+			ClassEntry clazz = new ClassEntry("pkg" + i % 5 + "/C" + i);
+			if (i % 7 == 0) {
+				mappings.insert(clazz, new EntryMapping(null, "only documented " + i));
+			} else {
+				mappings.insert(clazz, new EntryMapping("named/Class" + i, i % 3 == 0 ? "class " + i + "\nsecond line" : null));
+			}
+
+			ClassEntry inner = new ClassEntry(clazz, "a");
+			mappings.insert(inner, new EntryMapping("Inner" + i));
+			mappings.insert(FieldEntry.parse(inner.getFullName(), "a", "J"), new EntryMapping("innerField"));
+
+			for (int j = 0; j < 3; j++) {
+				mappings.insert(FieldEntry.parse(clazz.getFullName(), "f" + j, "I"), new EntryMapping("field" + j, j == 1 ? "field " + j : null));
+			}
+
+			MethodEntry method = MethodEntry.parse(clazz.getFullName(), "m", "(ILjava/lang/String;)V");
+			mappings.insert(method, new EntryMapping("method" + i, "does " + i));
+			mappings.insert(new LocalVariableEntry(method, 1, "", true, null), new EntryMapping("count"));
+			mappings.insert(new LocalVariableEntry(method, 2, "", true, null), new EntryMapping("name", "the name"));
+
+			if (i % 4 == 0) {
+				mappings.insert(MethodEntry.parse(clazz.getFullName(), "n", "()V"), new EntryMapping(null, "documented method"));
+			}
+		}
+
+		return mappings;
+	}
+
+	private static void testWriter(MappingFormat format, String expected) throws IOException {
+		EntryTree<EntryMapping> mappings = createMappings();
+		Path directory = Files.createTempDirectory("tinyWriters");
+		Path first = directory.resolve("first");
+		Path second = directory.resolve("second");
+
+		// the writers are shared, so nothing may be left over from the previous write
+		format.write(mappings, first, ProgressListener.none(), PARAMETERS);
+		format.write(mappings, second, ProgressListener.none(), PARAMETERS);
+
+		String expectedContent = Files.readString(TestUtil.getResource("/tinyWriters/" + expected));
+		Assertions.assertEquals(expectedContent, Files.readString(first));
+		Assertions.assertEquals(expectedContent, Files.readString(second));
+
+		Utils.delete(directory);
+	}
+
+	@Test
+	public void testTinyFile() throws IOException {
+		testWriter(MappingFormat.TINY_FILE, "mappings.tiny");
+	}
+
+	@Test
+	public void testTinyV2() throws IOException {
+		testWriter(MappingFormat.TINY_V2, "mappings.tinyv2");
+	}
+}
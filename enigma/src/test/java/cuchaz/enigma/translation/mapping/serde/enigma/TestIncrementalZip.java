@@ -0,0 +1,150 @@
+package cuchaz.enigma.translation.mapping.serde.enigma;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class TestIncrementalZip {
+	private final MappingSaveParameters parameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+	private void save(DeltaTrackingTree<EntryMapping> mappings, Path zip) {
+		MappingFormat.ENIGMA_ZIP.write(mappings, mappings.takeDelta(), zip, ProgressListener.none(), this.parameters);
+	}
+
+	private static Set<String> entryNames(Path zip) throws IOException {
+		try (ZipFile file = new ZipFile(zip.toFile())) {
+			return Collections.list(file.entries()).stream().map(ZipEntry::getName).collect(Collectors.toSet());
+		}
+	}
+
+	@Test
+	public void testChangedClassesOnly() throws IOException, MappingParseException {
+		File tempFile = File.createTempFile("incrementalZip", ".zip");
+		tempFile.delete();
+		Path zip = tempFile.toPath();
+
+		ClassEntry a = new ClassEntry("a");
+		ClassEntry b = new ClassEntry("b");
+		ClassEntry c = new ClassEntry("c");
+
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>();
+		mappings.insert(a, new EntryMapping("pkg/Alpha"));
+		mappings.insert(b, new EntryMapping("pkg/Bravo"));
+		mappings.insert(c, new EntryMapping("Charlie"));
+		this.save(mappings, zip);
+
+		Assertions.assertEquals(Set.of("pkg/Alpha.mapping", "pkg/Bravo.mapping", "Charlie.mapping"), entryNames(zip));
+
+		mappings.insert(b, new EntryMapping("other/Bravo"));
+		mappings.insert(FieldEntry.parse("a", "f", "I"), new EntryMapping("field"));
+		mappings.remove(c);
+		this.save(mappings, zip);
+
+		Assertions.assertEquals(Set.of("pkg/Alpha.mapping", "other/Bravo.mapping"), entryNames(zip));
+
+		EntryTree<EntryMapping> loaded = MappingFormat.ENIGMA_ZIP.read(zip, ProgressListener.none(), this.parameters);
+		Assertions.assertEquals(new EntryMapping("pkg/Alpha"), loaded.get(a));
+		Assertions.assertEquals(new EntryMapping("other/Bravo"), loaded.get(b));
+		Assertions.assertEquals(new EntryMapping("field"), loaded.get(FieldEntry.parse("a", "f", "I")));
+		Assertions.assertNull(loaded.get(c));
+
+		Files.delete(zip);
+	}
+
+	@Test
+	public void testCompaction() throws IOException, MappingParseException {
+		File tempFile = File.createTempFile("incrementalZip", ".zip");
+		tempFile.delete();
+		Path zip = tempFile.toPath();
+
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>();
+		for (int i = 0; i < 100; i++) {
+			mappings.insert(new ClassEntry("c" + i), new EntryMapping("Class" + i));
+		}
+
+		this.save(mappings, zip);
+		long initialSize = Files.size(zip);
+
+		// every save leaves the old version of the class behind, until the archive is compacted
+		ClassEntry changed = new ClassEntry("c0");
+		for (int i = 0; i < 500; i++) {
+			mappings.insert(changed, new EntryMapping("Class0", "version " + i));
+			this.save(mappings, zip);
+		}
+
+		Assertions.assertTrue(Files.size(zip) < initialSize * 3, "Dead entries were not compacted");
+		Assertions.assertEquals(100, entryNames(zip).size());
+
+		EntryTree<EntryMapping> loaded = MappingFormat.ENIGMA_ZIP.read(zip, ProgressListener.none(), this.parameters);
+		Assertions.assertEquals(new EntryMapping("Class0", "version 499"), loaded.get(changed));
+		Assertions.assertEquals(new EntryMapping("Class99"), loaded.get(new ClassEntry("c99")));
+
+		Files.delete(zip);
+	}
+
+	@Test
+	public void testInterruptedSave() throws IOException, MappingParseException {
+		File tempFile = File.createTempFile("incrementalZip", ".zip");
+		tempFile.delete();
+		Path zip = tempFile.toPath();
+
+		DeltaTrackingTree<EntryMapping> mappings = new DeltaTrackingTree<>();
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Alpha"));
+		mappings.insert(new ClassEntry("b"), new EntryMapping("pkg/Bravo"));
+		this.save(mappings, zip);
+		long size = Files.size(zip);
+
+		// the previous version stays readable while new entries are appended
+		try (IncrementalZipWriter writer = IncrementalZipWriter.open(zip)) {
+			writer.write("pkg/Charlie.mapping", "CLASS c pkg/Charlie\n".getBytes(StandardCharsets.UTF_8));
+			Assertions.assertEquals(Set.of("pkg/Alpha.mapping", "pkg/Bravo.mapping"), entryNames(zip));
+		}
+
+		Assertions.assertEquals(Set.of("pkg/Alpha.mapping", "pkg/Bravo.mapping", "pkg/Charlie.mapping"), entryNames(zip));
+
+		// a save that died after appending more than the end record comment can hold
+		byte[] appended = new byte[100_000];
+		new Random(0).nextBytes(appended);
+		size = Files.size(zip);
+		Files.write(zip, appended, StandardOpenOption.APPEND);
+
+		// reading skips what was appended without touching the file, even when it can't be written
+		byte[] contents = Files.readAllBytes(zip);
+		Assertions.assertTrue(zip.toFile().setWritable(false));
+		EntryTree<EntryMapping> loaded = MappingFormat.ENIGMA_ZIP.read(zip, ProgressListener.none(), this.parameters);
+		Assertions.assertTrue(zip.toFile().setWritable(true));
+		Assertions.assertEquals(new EntryMapping("pkg/Charlie"), loaded.get(new ClassEntry("c")));
+		Assertions.assertArrayEquals(contents, Files.readAllBytes(zip));
+
+		// the next save drops it
+		mappings.insert(new ClassEntry("b"), new EntryMapping("other/Bravo"));
+		this.save(mappings, zip);
+
+		Assertions.assertEquals(Set.of("pkg/Alpha.mapping", "other/Bravo.mapping", "pkg/Charlie.mapping"), entryNames(zip));
+		Assertions.assertTrue(Files.size(zip) < size + appended.length);
+
+		Files.delete(zip);
+	}
+}
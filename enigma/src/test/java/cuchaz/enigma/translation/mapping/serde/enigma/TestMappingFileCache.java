@@ -0,0 +1,112 @@
+package cuchaz.enigma.translation.mapping.serde.enigma;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingParseException;
+import cuchaz.enigma.translation.mapping.serde.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.mapping.tree.LazyEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.utils.Utils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TestMappingFileCache {
+	private static final FileTime AN_HOUR_AGO = FileTime.fromMillis(System.currentTimeMillis() - 3600_000);
+
+	private final MappingSaveParameters parameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+	private Path writeDirectory() throws IOException {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(new ClassEntry("a"), new EntryMapping("Alpha", "alpha class"));
+		mappings.insert(FieldEntry.parse("a", "f", "I"), new EntryMapping("field"));
+		mappings.insert(new ClassEntry("b"), new EntryMapping("Bravo"));
+
+		Path directory = Files.createTempDirectory("cachedMappings");
+		MappingFormat.ENIGMA_DIRECTORY.write(mappings, directory, ProgressListener.none(), this.parameters);
+
+		// recently modified files are always hashed
+		for (Path file : this.listFiles(directory)) {
+			Files.setLastModifiedTime(file, AN_HOUR_AGO);
+		}
+
+		return directory;
+	}
+
+	private List<Path> listFiles(Path directory) throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile).toList();
+		}
+	}
+
+	private static void replace(Path file, String target, String replacement, FileTime modified) throws IOException {
+		Files.writeString(file, Files.readString(file).replace(target, replacement));
+		Files.setLastModifiedTime(file, modified);
+	}
+
+	@Test
+	public void testUnchangedFilesAreCached() throws IOException, MappingParseException {
+		Path directory = this.writeDirectory();
+		Path cacheFile = Files.createTempDirectory("mappingCache").resolve("mappings.cache");
+
+		MappingFileCache cache = MappingFileCache.load(cacheFile);
+		EntryTree<EntryMapping> mappings = EnigmaMappingsReader.readDirectory(directory, cache, ProgressListener.none());
+		cache.save();
+
+		Assertions.assertEquals(new EntryMapping("field"), mappings.get(FieldEntry.parse("a", "f", "I")));
+
+		// same size and modification time, so the cached version is used without reading the file
+		Path alpha = directory.resolve("Alpha.mapping");
+		replace(alpha, "field", "fie1d", AN_HOUR_AGO);
+		// touched without changing, found by its hash
+		Path bravo = directory.resolve("Bravo.mapping");
+		Files.setLastModifiedTime(bravo, FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 60_000));
+
+		cache = MappingFileCache.load(cacheFile);
+		mappings = EnigmaMappingsReader.readDirectory(directory, cache, ProgressListener.none());
+		cache.save();
+
+		Assertions.assertEquals(new EntryMapping("field"), mappings.get(FieldEntry.parse("a", "f", "I")));
+		Assertions.assertEquals(new EntryMapping("Alpha", "alpha class"), mappings.get(new ClassEntry("a")));
+		Assertions.assertEquals(new EntryMapping("Bravo"), mappings.get(new ClassEntry("b")));
+
+		// modified files are parsed again
+		replace(alpha, "fie1d", "value", FileTime.fromMillis(AN_HOUR_AGO.toMillis() + 60_000));
+
+		cache = MappingFileCache.load(cacheFile);
+		LazyEntryTree<EntryMapping> lazyMappings = EnigmaMappingsReader.readDirectoryLazily(directory, cache, ProgressListener.none());
+		Assertions.assertEquals(new EntryMapping("value"), lazyMappings.get(FieldEntry.parse("a", "f", "I")));
+		Assertions.assertEquals(new EntryMapping("Bravo"), lazyMappings.get(new ClassEntry("b")));
+
+		Utils.delete(directory);
+		Utils.delete(cacheFile.getParent());
+	}
+
+	@Test
+	public void testCorruptCacheIsIgnored() throws IOException, MappingParseException {
+		Path directory = this.writeDirectory();
+		Path cacheFile = Files.createTempFile("mappings", ".cache");
+		Files.write(cacheFile, new byte[] {0x45, 0x4D, 0x46, 0x43, 0, 0, 0, 1, 0, 0, 0, 5});
+
+		MappingFileCache cache = MappingFileCache.load(cacheFile);
+		EntryTree<EntryMapping> mappings = EnigmaMappingsReader.readDirectory(directory, cache, ProgressListener.none());
+		cache.save();
+
+		Assertions.assertEquals(new EntryMapping("Bravo"), mappings.get(new ClassEntry("b")));
+		Assertions.assertEquals(new EntryMapping("Bravo"), EnigmaMappingsReader.readDirectory(directory, MappingFileCache.load(cacheFile), ProgressListener.none()).get(new ClassEntry("b")));
+
+		Utils.delete(directory);
+		Files.delete(cacheFile);
+	}
+}
@@ -0,0 +1,55 @@
+package cuchaz.enigma.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class TestZipWriter {
+	private static byte[] data(int i) {
+		return ("entry " + i + " ").repeat(i % 64 + 1).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void testReadBack(int count, boolean store) throws IOException {
+		Path path = Files.createTempFile("zipWriter", ".jar");
+
+		try (ZipWriter writer = new ZipWriter(Files.newOutputStream(path))) {
+			for (int i = 0; i < count; i++) {
+				writer.write(ZipWriter.compress("a/" + i + ".class", data(i), store));
+			}
+		}
+
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			Assertions.assertEquals(count, zip.size());
+
+			for (int i = 0; i < count; i += Math.max(1, count / 100)) {
+				ZipEntry entry = zip.getEntry("a/" + i + ".class");
+				Assertions.assertEquals(store ? ZipEntry.STORED : ZipEntry.DEFLATED, entry.getMethod());
+				Assertions.assertArrayEquals(data(i), zip.getInputStream(entry).readAllBytes());
+			}
+		}
+
+		Files.delete(path);
+	}
+
+	@Test
+	public void testDeflated() throws IOException {
+		testReadBack(100, false);
+	}
+
+	@Test
+	public void testStored() throws IOException {
+		testReadBack(100, true);
+	}
+
+	@Test
+	public void testManyEntries() throws IOException {
+		// needs a zip64 end of central directory
+		testReadBack(70000, true);
+	}
+}